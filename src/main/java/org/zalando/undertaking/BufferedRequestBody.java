@@ -0,0 +1,141 @@
+package org.zalando.undertaking;
+
+import static java.util.Objects.requireNonNull;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A request body that has been received completely, either into memory or, if it exceeded the in-memory threshold,
+ * into a temporary file. Temporary files are deleted when the exchange completes, so the body must not be accessed
+ * afterwards.
+ *
+ * @see  RxExchange#receiveBuffered(io.undertow.server.HttpServerExchange, long)
+ */
+public final class BufferedRequestBody {
+
+    private final List<ByteBuffer> chunks;
+    private final Path file;
+    private final long length;
+
+    private BufferedRequestBody(final List<ByteBuffer> chunks, final Path file, final long length) {
+        this.chunks = chunks;
+        this.file = file;
+        this.length = length;
+    }
+
+    static BufferedRequestBody inMemory(final List<ByteBuffer> chunks) {
+        long length = 0;
+        for (final ByteBuffer chunk : chunks) {
+            length += chunk.remaining();
+        }
+
+        return new BufferedRequestBody(Collections.unmodifiableList(new ArrayList<>(chunks)), null, length);
+    }
+
+    static BufferedRequestBody spilled(final Path file, final long length) {
+        return new BufferedRequestBody(null, requireNonNull(file), length);
+    }
+
+    /**
+     * @return  the length of the body in bytes
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return  {@code true} if the body is held in memory, {@code false} if it has been spilled to a temporary file
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * @return  the temporary file holding the body, if it has been spilled to disk
+     */
+    public Optional<Path> getFile() {
+        return Optional.ofNullable(file);
+    }
+
+    /**
+     * Opens a stream reading the body from its beginning.
+     */
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return Files.newInputStream(file);
+        }
+
+        final List<InputStream> streams = new ArrayList<>(chunks.size());
+        for (final ByteBuffer chunk : chunks) {
+            streams.add(new ByteArrayInputStream(chunk.array(), chunk.arrayOffset() + chunk.position(),
+                    chunk.remaining()));
+        }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Opens a channel reading the body from its beginning. For spilled bodies, this is a {@code FileChannel} on the
+     * temporary file.
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        return file == null ? Channels.newChannel(openStream()) : FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Returns a read-only view of the whole body. A body spilled to disk is memory-mapped, a body that has been received
+     * into memory in more than one chunk is copied into a single buffer.
+     *
+     * @throws  IllegalStateException  if the body is too large to be held in a single {@code ByteBuffer}
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        checkState(length <= Integer.MAX_VALUE, "Body of %s bytes is too large for a single ByteBuffer", length);
+
+        if (file != null) {
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+        }
+
+        if (chunks.size() == 1) {
+            return chunks.get(0).asReadOnlyBuffer();
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        for (final ByteBuffer chunk : chunks) {
+            buffer.put(chunk.duplicate());
+        }
+
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)          //
+                          .omitNullValues()              //
+                          .add("length", length)         //
+                          .add("file", file)             //
+                          .toString();
+    }
+}
@@ -0,0 +1,105 @@
+package org.zalando.undertaking;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.reactivex.disposables.Disposable;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+
+import io.undertow.util.AttachmentKey;
+
+/**
+ * Disposes the work done on behalf of HTTP exchanges when their clients close the connection before the exchanges have
+ * completed, e.g. outstanding downstream requests, which would otherwise keep running only to find that nobody is
+ * interested in their results anymore. Work is disposed as soon as Undertow notices that the connection has been
+ * closed.
+ *
+ * <p>Keeps track of how many pieces of work have been disposed this way.</p>
+ */
+public final class ClientDisconnects {
+
+    private static final AttachmentKey<ConnectionWatch> WATCH = AttachmentKey.create(ConnectionWatch.class);
+    private static final LongAdder DISPOSED = new LongAdder();
+
+    /**
+     * Disposes {@code work} if the connection of {@code exchange} gets closed before {@code exchange} has completed.
+     * Only a single close listener is registered per connection, regardless of how many exchanges it serves.
+     *
+     * @param   exchange  the exchange on whose behalf the work is done
+     * @param   work      the work to be disposed
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static void disposeOnDisconnect(final HttpServerExchange exchange, final Disposable work) {
+        requireNonNull(work);
+
+        final ConnectionWatch watch = getWatch(exchange.getConnection());
+        watch.pending.add(work);
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            try {
+                watch.pending.remove(work);
+            } finally {
+                nextListener.proceed();
+            }
+        });
+
+        // Might have been closed in the meantime.
+        if (watch.closed) {
+            watch.disposePending();
+        }
+    }
+
+    /**
+     * @return  the number of pieces of work that have been disposed because clients disconnected
+     */
+    public static long getDisposedCount() {
+        return DISPOSED.sum();
+    }
+
+    private static ConnectionWatch getWatch(final ServerConnection connection) {
+        final ConnectionWatch watch = connection.getAttachment(WATCH);
+        if (watch != null) {
+            return watch;
+        }
+
+        synchronized (connection) {
+            ConnectionWatch newWatch = connection.getAttachment(WATCH);
+            if (newWatch == null) {
+                newWatch = new ConnectionWatch();
+                connection.putAttachment(WATCH, newWatch);
+                connection.addCloseListener(newWatch);
+            }
+
+            return newWatch;
+        }
+    }
+
+    private ClientDisconnects() {
+        throw new AssertionError("No instances for you!");
+    }
+
+    private static final class ConnectionWatch implements ServerConnection.CloseListener {
+        final Set<Disposable> pending = ConcurrentHashMap.newKeySet();
+        volatile boolean closed;
+
+        @Override
+        public void closed(final ServerConnection connection) {
+            closed = true;
+            disposePending();
+        }
+
+        void disposePending() {
+            for (final Disposable work : pending) {
+                if (pending.remove(work) && !work.isDisposed()) {
+                    work.dispose();
+                    DISPOSED.increment();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.zalando.undertaking;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Splits a JSON array that is received in chunks into the encoded representations of its elements. Only tracks the
+ * structure of the array, i.e. nesting and strings, validating the elements themselves is left to the actual parser.
+ * Since all structural characters of JSON are ASCII, this works on any ASCII compatible encoding.
+ *
+ * <p>Only the element currently being received is buffered, elements are handed out as soon as they're complete.</p>
+ */
+final class JsonArrayElementSplitter {
+
+    private enum State {
+        BEFORE_ARRAY,
+        BEFORE_FIRST_ELEMENT,
+        BEFORE_ELEMENT,
+        IN_ELEMENT,
+        AFTER_ARRAY
+    }
+
+    private State state = State.BEFORE_ARRAY;
+    private byte[] element = new byte[64];
+    private int length;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    /**
+     * Consumes the given chunk.
+     *
+     * @return  the elements that have been completed by the given chunk
+     *
+     * @throws  JsonSyntaxException  if the chunk violates the structure of a JSON array
+     */
+    List<byte[]> split(final ByteBuffer chunk) {
+        List<byte[]> elements = Collections.emptyList();
+        while (chunk.hasRemaining()) {
+            final byte b = chunk.get();
+            switch (state) {
+
+                case BEFORE_ARRAY :
+                    if (b == '[') {
+                        state = State.BEFORE_FIRST_ELEMENT;
+                    } else if (!isWhitespace(b)) {
+                        throw unexpected(b, "a JSON array");
+                    }
+
+                    break;
+
+                case BEFORE_FIRST_ELEMENT :
+                case BEFORE_ELEMENT :
+                    if (isWhitespace(b)) {
+                        break;
+                    }
+
+                    if (b == ']' && state == State.BEFORE_FIRST_ELEMENT) {
+                        state = State.AFTER_ARRAY;
+                        break;
+                    }
+
+                    if (b == ',' || b == ']') {
+                        throw unexpected(b, "an array element");
+                    }
+
+                    state = State.IN_ELEMENT;
+                    elements = consumeElementByte(b, elements);
+                    break;
+
+                case IN_ELEMENT :
+                    elements = consumeElementByte(b, elements);
+                    break;
+
+                case AFTER_ARRAY :
+                    if (!isWhitespace(b)) {
+                        throw unexpected(b, "the end of the document");
+                    }
+
+                    break;
+
+                default :
+                    throw new AssertionError(state);
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Signals that no more chunks will be received.
+     *
+     * @throws  JsonSyntaxException  if the array hasn't been closed
+     */
+    void finish() {
+        if (state != State.AFTER_ARRAY) {
+            throw new JsonSyntaxException("Unexpected end of the JSON array.");
+        }
+    }
+
+    /**
+     * Appends the given byte to the current element, or completes the element if the byte ends it.
+     *
+     * @return  {@code elements}, including the completed element, if any
+     */
+    private List<byte[]> consumeElementByte(final byte b, final List<byte[]> elements) {
+        if (!isEndOfElement(b)) {
+            append(b);
+            return elements;
+        }
+
+        final List<byte[]> completed = elements.isEmpty() ? new ArrayList<>() : elements;
+        completed.add(Arrays.copyOf(element, length));
+        length = 0;
+        state = b == ',' ? State.BEFORE_ELEMENT : State.AFTER_ARRAY;
+        return completed;
+    }
+
+    private boolean isEndOfElement(final byte b) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == '"') {
+                inString = false;
+            }
+        } else if (b == '"') {
+            inString = true;
+        } else if (b == '[' || b == '{') {
+            depth++;
+        } else if (depth > 0 && (b == ']' || b == '}')) {
+            depth--;
+        } else if (depth == 0 && (b == ',' || b == ']')) {
+            return true;
+        }
+
+        return false;
+    }
+
+    private void append(final byte b) {
+        if (length == element.length) {
+            element = Arrays.copyOf(element, length * 2);
+        }
+
+        element[length++] = b;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static JsonSyntaxException unexpected(final byte b, final String expected) {
+        return new JsonSyntaxException(String.format("Expected %s, but got '%c'.", expected, (char) (b & 0xFF)));
+    }
+}
@@ -0,0 +1,324 @@
+package org.zalando.undertaking;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+
+/**
+ * A single part of a {@code multipart/form-data} request body, as emitted by
+ * {@link RxExchange#receiveMultipart(io.undertow.server.HttpServerExchange)}.
+ *
+ * <p>The content of a part is streamed while the request body is received, so it has to be consumed before any
+ * further parts can be received: either subscribe to {@link #getContent()}, or {@link #transferTo(Path) transfer} it
+ * to a file. Parts that aren't of interest are skipped by cancelling the subscription to their content.</p>
+ */
+public final class MultipartPart {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MultipartPart.class);
+
+    private final HeaderMap headers;
+    private final Content content;
+
+    MultipartPart(final HeaderMap headers, final MultipartReceiver receiver) {
+        this.headers = requireNonNull(headers);
+        this.content = new Content(requireNonNull(receiver));
+    }
+
+    /**
+     * @return  the headers of this part
+     */
+    public HeaderMap getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return  the name of the form field this part belongs to, as given by its {@code Content-Disposition} header
+     */
+    public Optional<String> getName() {
+        return getDispositionParameter("name");
+    }
+
+    /**
+     * @return  the name of the uploaded file, as given by the {@code Content-Disposition} header of this part
+     */
+    public Optional<String> getFileName() {
+        return getDispositionParameter("filename");
+    }
+
+    /**
+     * @return  the content type of this part
+     */
+    public Optional<String> getContentType() {
+        return Optional.ofNullable(headers.getFirst(Headers.CONTENT_TYPE));
+    }
+
+    /**
+     * Streams the content of this part. May only be subscribed to once.
+     */
+    public Flowable<ByteBuffer> getContent() {
+        return content;
+    }
+
+    /**
+     * Writes the content of this part to the given file, which is created or truncated. Chunks are written without
+     * blocking the calling thread, and the next chunk of content is requested only after the previous one has been
+     * written, so no more than one chunk is held in memory.
+     *
+     * @param   file  the file that receives the content of this part
+     *
+     * @return  a {@code Single} that emits the number of bytes written once the content of this part has been written
+     *          completely
+     */
+    public Single<Long> transferTo(final Path file) {
+        requireNonNull(file);
+        return Single.create(emitter -> content.subscribe(new FileSink(file, emitter)));
+    }
+
+    Content content() {
+        return content;
+    }
+
+    private Optional<String> getDispositionParameter(final String name) {
+        final String disposition = headers.getFirst(Headers.CONTENT_DISPOSITION);
+        return disposition == null ? Optional.empty()
+                                   : Optional.ofNullable(Headers.extractQuotedValueFromHeader(disposition, name));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)    //
+                          .add("headers", headers) //
+                          .toString();
+    }
+
+    /**
+     * The content of a part. All signals are emitted from within {@link MultipartReceiver#drain()}, which is
+     * serialized.
+     */
+    static final class Content extends Flowable<ByteBuffer> implements Subscription {
+        private final MultipartReceiver receiver;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+        private final AtomicLong requested = new AtomicLong();
+        private volatile Subscriber<? super ByteBuffer> subscriber;
+        private volatile boolean cancelled;
+
+        Content(final MultipartReceiver receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        protected void subscribeActual(final Subscriber<? super ByteBuffer> subscriber) {
+            if (subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(this);
+                this.subscriber = subscriber;
+                receiver.drain();
+            } else {
+                Flowable.<ByteBuffer>error(new IllegalStateException("The content of a part can only be received once."))
+                        .subscribe(subscriber);
+            }
+        }
+
+        @Override
+        public void request(final long n) {
+            requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            receiver.drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            receiver.drain();
+        }
+
+        /**
+         * @return  {@code true} if the chunk has been consumed, {@code false} if there's no demand for it yet
+         */
+        boolean offer(final ByteBuffer chunk) {
+            if (cancelled) {
+                return true;
+            }
+
+            final Subscriber<? super ByteBuffer> subscriber = this.subscriber;
+            if (subscriber == null || requested.get() == 0) {
+                return false;
+            }
+
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.decrementAndGet();
+            }
+
+            subscriber.onNext(chunk);
+            return true;
+        }
+
+        /**
+         * @return  {@code true} if the end of the content has been consumed, {@code false} if there's no subscriber yet
+         */
+        boolean complete() {
+            if (cancelled) {
+                return true;
+            }
+
+            final Subscriber<? super ByteBuffer> subscriber = this.subscriber;
+            if (subscriber == null) {
+                return false;
+            }
+
+            subscriber.onComplete();
+            return true;
+        }
+
+        void fail(final Throwable e) {
+            final Subscriber<? super ByteBuffer> subscriber = this.subscriber;
+            if (!cancelled && subscriber != null) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a part to a file without blocking. The next chunk is only requested once the previous one
+     * has been written. Upstream signals and write completions arrive on different threads, hence the synchronization.
+     */
+    private static final class FileSink implements Subscriber<ByteBuffer>, CompletionHandler<Integer, ByteBuffer> {
+        private final Path file;
+        private final SingleEmitter<Long> emitter;
+        private Subscription subscription;
+        private AsynchronousFileChannel channel;
+        private long written;
+        private boolean writing;
+        private boolean received;
+        private boolean terminated;
+
+        FileSink(final Path file, final SingleEmitter<Long> emitter) {
+            this.file = file;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            try {
+                channel = AsynchronousFileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (final IOException e) {
+                subscription.cancel();
+                terminated = true;
+                emitter.onError(e);
+                return;
+            }
+
+            emitter.setCancellable(this::cancel);
+            subscription.request(1);
+        }
+
+        @Override
+        public synchronized void onNext(final ByteBuffer chunk) {
+            if (!terminated) {
+                writing = true;
+                channel.write(chunk, written, chunk, this);
+            }
+        }
+
+        @Override
+        public synchronized void onError(final Throwable e) {
+            if (!terminated) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            received = true;
+            if (!terminated && !writing) {
+                finish();
+            }
+        }
+
+        @Override
+        public synchronized void completed(final Integer count, final ByteBuffer chunk) {
+            writing = false;
+            if (terminated) {
+                return;
+            }
+
+            written += count;
+            if (chunk.hasRemaining()) {
+                writing = true;
+                channel.write(chunk, written, chunk, this);
+            } else if (received) {
+                finish();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public synchronized void failed(final Throwable e, final ByteBuffer chunk) {
+            writing = false;
+            if (!terminated) {
+                subscription.cancel();
+                fail(e);
+            }
+        }
+
+        private void finish() {
+            terminated = true;
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                emitter.onError(e);
+                return;
+            }
+
+            emitter.onSuccess(written);
+        }
+
+        private void fail(final Throwable e) {
+            terminated = true;
+            closeQuietly();
+            emitter.onError(e);
+        }
+
+        private synchronized void cancel() {
+            if (!terminated) {
+                terminated = true;
+                subscription.cancel();
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOG.warn("Failed to close file [{}]: [{}]", file, e.getMessage(), e);
+            }
+        }
+    }
+}
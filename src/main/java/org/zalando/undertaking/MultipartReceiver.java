@@ -0,0 +1,257 @@
+package org.zalando.undertaking;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.Flowable;
+
+import io.undertow.connector.ByteBufferPool;
+
+import io.undertow.util.HeaderMap;
+import io.undertow.util.MultipartParser;
+
+/**
+ * Parses a {@code multipart/form-data} request body with Undertow's non-blocking {@link MultipartParser} while it is
+ * being received, and emits its parts.
+ *
+ * <p>The request body is requested chunk by chunk. The events the parser produces for a chunk are queued and
+ * delivered according to the demand of the subscribers of the parts and of their contents. The next chunk is only
+ * requested once all events have been delivered, so no more than the events of a single chunk are held in memory.</p>
+ */
+final class MultipartReceiver extends Flowable<MultipartPart> implements Subscriber<ByteBuffer>, Subscription,
+    MultipartParser.PartHandler {
+
+    private static final Object END_OF_PART = new Object();
+
+    private final Flowable<ByteBuffer> body;
+    private final ByteBufferPool bufferPool;
+    private final byte[] boundary;
+    private final String charset;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final Queue<Object> events = new ConcurrentLinkedQueue<>();
+
+    private Subscriber<? super MultipartPart> subscriber;
+    private MultipartParser.ParseState parseState;
+    private volatile Subscription upstream;
+    private volatile boolean chunkRequested;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    // only accessed while parsing
+    private ByteBuffer chunk;
+
+    // only accessed while draining
+    private MultipartPart current;
+    private boolean done;
+
+    MultipartReceiver(final Flowable<ByteBuffer> body, final ByteBufferPool bufferPool, final byte[] boundary,
+            final String charset) {
+        this.body = body;
+        this.bufferPool = bufferPool;
+        this.boundary = boundary;
+        this.charset = charset;
+    }
+
+    @Override
+    protected void subscribeActual(final Subscriber<? super MultipartPart> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            Flowable.<MultipartPart>error(new IllegalStateException("The request body can only be received once."))
+                    .subscribe(subscriber);
+            return;
+        }
+
+        this.subscriber = subscriber;
+        parseState = MultipartParser.beginParse(bufferPool, this, boundary, charset);
+        subscriber.onSubscribe(this);
+        body.subscribe(this);
+    }
+
+    // Subscription of the parts
+
+    @Override
+    public void request(final long n) {
+        requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        drain();
+    }
+
+    // Subscriber of the request body
+
+    @Override
+    public void onSubscribe(final Subscription upstream) {
+        this.upstream = upstream;
+        drain();
+    }
+
+    @Override
+    public void onNext(final ByteBuffer chunk) {
+        chunkRequested = false;
+        this.chunk = chunk;
+        try {
+            parseState.parse(chunk);
+        } catch (final IOException e) {
+            upstream.cancel();
+            error = e;
+            upstreamDone = true;
+        } finally {
+            this.chunk = null;
+        }
+
+        drain();
+    }
+
+    @Override
+    public void onError(final Throwable e) {
+        error = e;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    // Parser callbacks, invoked while parsing a chunk
+
+    @Override
+    public void beginPart(final HeaderMap headers) {
+        events.add(new MultipartPart(headers, this));
+    }
+
+    @Override
+    public void data(final ByteBuffer buffer) {
+
+        // Content that isn't encoded is handed out as a view of the current chunk, which has been copied out of
+        // Undertow's pooled buffers already. Decoded content and boundary lookahead live in the parser's own buffers,
+        // which are only valid during this call.
+        final ByteBuffer chunk = this.chunk;
+        if (chunk != null && chunk.hasArray() && buffer.hasArray() && buffer.array() == chunk.array()) {
+            events.add(buffer.slice());
+            return;
+        }
+
+        final ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer).flip();
+        events.add(copy);
+    }
+
+    @Override
+    public void endPart() {
+        events.add(END_OF_PART);
+    }
+
+    /**
+     * Delivers queued events as far as demand allows, and requests the next chunk of the request body once all events
+     * have been delivered. Called whenever demand or events arrive; serialized so that only one thread delivers at a
+     * time.
+     */
+    void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            drainEvents();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainEvents() {
+        if (done) {
+            return;
+        }
+
+        if (cancelled) {
+            done = true;
+            events.clear();
+
+            final Subscription upstream = this.upstream;
+            if (upstream != null) {
+                upstream.cancel();
+            }
+
+            return;
+        }
+
+        final Throwable error = this.error;
+        if (error != null) {
+            done = true;
+            events.clear();
+            if (current != null) {
+                current.content().fail(error);
+            }
+
+            subscriber.onError(error);
+            return;
+        }
+
+        Object event;
+        while ((event = events.peek()) != null) {
+            if (event instanceof MultipartPart) {
+                if (requested.get() == 0) {
+                    return;
+                }
+
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+
+                current = (MultipartPart) event;
+                events.poll();
+                subscriber.onNext(current);
+            } else if (event == END_OF_PART) {
+                if (!current.content().complete()) {
+                    return;
+                }
+
+                current = null;
+                events.poll();
+            } else {
+                if (!current.content().offer((ByteBuffer) event)) {
+                    return;
+                }
+
+                events.poll();
+            }
+        }
+
+        if (upstreamDone) {
+            done = true;
+            if (parseState.isComplete()) {
+                subscriber.onComplete();
+            } else {
+                final IOException incomplete = new IOException("Unexpected end of multipart request body.");
+                if (current != null) {
+                    current.content().fail(incomplete);
+                }
+
+                subscriber.onError(incomplete);
+            }
+        } else if (!chunkRequested && upstream != null) {
+            chunkRequested = true;
+            upstream.request(1);
+        }
+    }
+}
@@ -1,33 +1,81 @@
 package org.zalando.undertaking;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import static java.util.Objects.requireNonNull;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+
+import java.lang.reflect.Type;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import java.util.regex.Pattern;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.xnio.ChannelListener;
+import org.xnio.IoUtils;
+
+import org.xnio.channels.StreamSinkChannel;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
 import io.reactivex.SingleObserver;
 
 import io.reactivex.disposables.Disposable;
-
-import io.reactivex.subjects.AsyncSubject;
+import io.reactivex.disposables.Disposables;
 
 import io.undertow.io.Receiver.ErrorCallback;
 import io.undertow.io.Receiver.FullStringCallback;
+import io.undertow.io.Receiver.PartialBytesCallback;
 
 import io.undertow.server.Connectors;
 import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 
+import io.undertow.util.Headers;
 import io.undertow.util.SameThreadExecutor;
 import io.undertow.util.StatusCodes;
 
@@ -37,6 +85,10 @@ import io.undertow.util.StatusCodes;
 public final class RxExchange {
 
     private static final Logger LOG = LoggerFactory.getLogger(RxExchange.class);
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String EVENT_STREAM = "text/event-stream; charset=UTF-8";
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r\\n|\\r|\\n");
 
     /**
      * Dispatches the given {@code exchange} to the {@code HttpHandler} emitted by the given {@code handlerSingle}.
@@ -52,13 +104,20 @@ public final class RxExchange {
      * </ul>
      * </p>
      *
+     * <p>If {@code handlerSingle} emits synchronously upon subscription, e.g. because it is a {@link Single#just}, the
+     * handler is executed right away as part of the current handler call. Only otherwise the exchange is dispatched, and
+     * the emitted handler is executed as a root handler. The subscription to {@code handlerSingle} is disposed if the
+     * exchange completes or the client closes the connection before a handler has been emitted, see
+     * {@link ClientDisconnects}.</p>
+     *
      * @param   handlerSingle  emits the handler that will be used for dispatching
      * @param   exchange       the exchange that is being dispatched
      *
      * @throws  NullPointerException  if at least one of the arguments is {@code null}
      */
     public static void dispatch(final Single<HttpHandler> handlerSingle, final HttpServerExchange exchange) {
-        exchange.dispatch(SameThreadExecutor.INSTANCE, new SingleDispatch(handlerSingle, exchange));
+        requireNonNull(handlerSingle);
+        new SingleDispatch(exchange).subscribe(handlerSingle);
     }
 
     /**
@@ -103,14 +162,289 @@ public final class RxExchange {
     public static Single<String> receiveFullString(final HttpServerExchange exchange) {
         final Charset requestCharset;
         try {
-            requestCharset = getRequestCharset(exchange);
+            requestCharset = getRequestCharset(exchange, ISO_8859_1);
         } catch (UnsupportedCharsetException | IllegalCharsetNameException e) {
             return Single.error(e);
         }
 
         final FullStringConsumer consumer = new FullStringConsumer();
         exchange.getRequestReceiver().receiveFullString(consumer, consumer, requestCharset);
-        return consumer.toSingle();
+        return consumer;
+    }
+
+    /**
+     * Reads the request body of {@code exchange} and emits it decoded from JSON into an object of the given type. The
+     * body is decoded according to the charset specified by the {@code Content-Type} HTTP request header, defaulting to
+     * {@link java.nio.charset.StandardCharsets#UTF_8 UTF-8}. Parsing works on the received chunks, which are decoded
+     * incrementally, without building a {@code String} of the whole body first. Emits a {@code JsonParseException} if
+     * the body is empty or isn't valid JSON for the given type, or an error if request reading failed.
+     *
+     * <p>As with {@link #receive(HttpServerExchange)}, the request body is read upon subscription.</p>
+     *
+     * @param   exchange  exchange whose request body shall be emitted
+     * @param   gson      the {@code Gson} instance used to decode the request body
+     * @param   type      the type of the object to be emitted
+     *
+     * @return  a {@code Single} that emits the decoded HTTP request body of the given {@code exchange}, or an error if
+     *          request reading or decoding fails
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static <T> Single<T> receiveJson(final HttpServerExchange exchange, final Gson gson, final Type type) {
+        requireNonNull(gson);
+        requireNonNull(type);
+
+        final Charset requestCharset;
+        try {
+            requestCharset = getRequestCharset(exchange, UTF_8);
+        } catch (UnsupportedCharsetException | IllegalCharsetNameException e) {
+            return Single.error(e);
+        }
+
+        return receive(exchange).collect(ArrayList<ByteBuffer>::new, List::add) //
+                                .map(chunks -> fromJson(chunks, requestCharset, gson, type));
+    }
+
+    /**
+     * Reads the request body of {@code exchange}, which is expected to be a JSON array, and emits its elements decoded
+     * into objects of the given type. Elements are emitted as soon as they have been received, and reading of the
+     * request body honors the subscriber's demand, so that neither the whole body nor all of its elements need to be
+     * held in memory at once. The body is decoded according to the charset specified by the {@code Content-Type} HTTP
+     * request header, defaulting to {@link java.nio.charset.StandardCharsets#UTF_8 UTF-8}, which needs to be ASCII
+     * compatible. Emits a {@code JsonParseException} if the body isn't a JSON array, or if one of its elements is
+     * {@code null} or isn't valid JSON for the given type.
+     *
+     * <p>As with {@link #receive(HttpServerExchange)}, the request body is read upon subscription.</p>
+     *
+     * @param   exchange  exchange whose request body shall be emitted
+     * @param   gson      the {@code Gson} instance used to decode the array elements
+     * @param   type      the type of the array elements
+     *
+     * @return  a {@code Flowable} that emits the decoded elements of the JSON array sent as the HTTP request body of the
+     *          given {@code exchange}, or an error if request reading or decoding fails
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static <T> Flowable<T> receiveJsonArray(final HttpServerExchange exchange, final Gson gson,
+            final Type type) {
+        requireNonNull(gson);
+        requireNonNull(type);
+
+        final Charset requestCharset;
+        try {
+            requestCharset = getRequestCharset(exchange, UTF_8);
+        } catch (UnsupportedCharsetException | IllegalCharsetNameException e) {
+            return Flowable.error(e);
+        }
+
+        if ("[".getBytes(requestCharset).length != 1) {
+            return Flowable.error(new UnsupportedCharsetException(requestCharset.name()));
+        }
+
+        final Flowable<ByteBuffer> body = receive(exchange);
+        return Flowable.defer(() -> {
+                    final JsonArrayElementSplitter splitter = new JsonArrayElementSplitter();
+                    return body.flatMapIterable(splitter::split, 1)                        //
+                               .concatWith(Completable.fromAction(splitter::finish).toFlowable());
+                }).map(element -> {
+                    final T value = gson.fromJson(new String(element, requestCharset), type);
+                    if (value == null) {
+                        throw new JsonSyntaxException("JSON array elements must not be null.");
+                    }
+
+                    return value;
+                });
+    }
+
+    private static <T> T fromJson(final List<ByteBuffer> chunks, final Charset charset, final Gson gson,
+            final Type type) throws IOException {
+        final List<InputStream> streams = new ArrayList<>(chunks.size());
+        for (final ByteBuffer chunk : chunks) {
+            streams.add(new ByteArrayInputStream(chunk.array(), chunk.arrayOffset() + chunk.position(),
+                    chunk.remaining()));
+        }
+
+        try(JsonReader reader = new JsonReader(
+                        new InputStreamReader(new SequenceInputStream(Collections.enumeration(streams)), charset))) {
+            final T value = gson.fromJson(reader, type);
+            if (value == null) {
+                throw new JsonSyntaxException("The request body doesn't contain a JSON value.");
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Reads the request body of {@code exchange} completely and emits it once it has been received. Bodies of up to
+     * {@code inMemoryThreshold} bytes are kept in memory. Larger bodies are spilled to a temporary file as soon as they
+     * exceed the threshold, so that big uploads don't occupy the heap. Temporary files are deleted when the exchange
+     * completes, or right away if receiving the body fails or gets cancelled.
+     *
+     * <p>As with {@link #receive(HttpServerExchange)}, the request body is read upon subscription.</p>
+     *
+     * @param   exchange           exchange whose request body shall be emitted
+     * @param   inMemoryThreshold  the maximum number of bytes held in memory
+     *
+     * @return  a {@code Single} that emits the HTTP request body of the given {@code exchange}, or an error if request
+     *          reading or spilling to disk fails
+     *
+     * @throws  NullPointerException      if {@code exchange} is {@code null}
+     * @throws  IllegalArgumentException  if {@code inMemoryThreshold} is negative
+     */
+    public static Single<BufferedRequestBody> receiveBuffered(final HttpServerExchange exchange,
+            final long inMemoryThreshold) {
+        checkArgument(inMemoryThreshold >= 0, "inMemoryThreshold may not be negative: %s", inMemoryThreshold);
+
+        final Flowable<ByteBuffer> body = receive(exchange);
+        return Single.create(emitter -> body.subscribe(new SpillingBodyReceiver(exchange, inMemoryThreshold, emitter)));
+    }
+
+    /**
+     * Parses the {@code multipart/form-data} request body of {@code exchange} while it is being received and emits its
+     * parts. The content of each part is streamed as well, see {@link MultipartPart} for how it has to be consumed.
+     * Parsing is non-blocking and driven by the demand of the subscribers, so uploads of any size are handled with
+     * constant memory on the IO thread. Part headers are decoded according to the charset specified by the
+     * {@code Content-Type} HTTP request header, defaulting to {@link java.nio.charset.StandardCharsets#ISO_8859_1
+     * ISO-8859-1}.
+     *
+     * <p>As with {@link #receive(HttpServerExchange)}, the request body is read upon subscription.</p>
+     *
+     * @param   exchange  exchange whose request body shall be emitted
+     *
+     * @return  a {@code Flowable} that emits the parts of the HTTP request body of the given {@code exchange}, or an
+     *          error if the request isn't a multipart request, or if request reading or parsing fails
+     *
+     * @throws  NullPointerException  if {@code exchange} is {@code null}
+     */
+    public static Flowable<MultipartPart> receiveMultipart(final HttpServerExchange exchange) {
+        final String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+        final boolean multipart = contentType != null
+                && contentType.regionMatches(true, 0, MULTIPART_FORM_DATA, 0, MULTIPART_FORM_DATA.length());
+        final String boundary = multipart ? Headers.extractQuotedValueFromHeader(contentType, "boundary") : null;
+        if (boundary == null) {
+            return Flowable.error(new IllegalArgumentException(
+                        "Not a multipart/form-data request with a boundary: " + contentType));
+        }
+
+        final Charset requestCharset;
+        try {
+            requestCharset = getRequestCharset(exchange, ISO_8859_1);
+        } catch (UnsupportedCharsetException | IllegalCharsetNameException e) {
+            return Flowable.error(e);
+        }
+
+        return new MultipartReceiver(receive(exchange), exchange.getConnection().getByteBufferPool(),
+                boundary.getBytes(US_ASCII), requestCharset.name());
+    }
+
+    /**
+     * Streams the request body of {@code exchange} in the chunks in which it is received. Reading starts when the first
+     * chunk is requested and is paused whenever the subscriber's demand is exhausted, so that at most one read buffer
+     * per request is held, regardless of the size of the request body. The request body can only be read once, hence
+     * the returned {@code Flowable} may only be subscribed to once.
+     *
+     * <p>Chunks are copied out of Undertow's pooled read buffers, so subscribers are free to retain them.</p>
+     *
+     * @param   exchange  exchange whose request body shall be emitted
+     *
+     * @return  a {@code Flowable} that emits the HTTP request body of the given {@code exchange} in chunks, or an error
+     *          if request reading fails
+     *
+     * @throws  NullPointerException  if {@code exchange} is {@code null}
+     */
+    public static Flowable<ByteBuffer> receive(final HttpServerExchange exchange) {
+        return new RequestBodyFlowable(exchange);
+    }
+
+    /**
+     * Streams the given chunks as the response body of {@code exchange}. Each chunk is written to the response channel
+     * without blocking and flushed, and the next chunk is only requested once that has completed, i.e. when the client
+     * has caught up. This way, large or slow responses are sent with constant memory and without occupying a worker
+     * thread. The exchange is ended once {@code body} completes.
+     *
+     * <p>Status code and response headers have to be set before the first chunk is emitted. If {@code body} emits an
+     * error before that, the HTTP status is set to {@code 500 Internal Server Error} and the exchange is
+     * {@linkplain HttpServerExchange#endExchange() ended}, otherwise the connection is closed, since the response can't
+     * be completed anymore. If the exchange completes prematurely, or if the client closes the connection, the
+     * subscription to {@code body} is cancelled.</p>
+     *
+     * <p>Usage example:
+     *
+     * <pre>
+       {@code dispatch(repository.findAll().map(items -> {
+     *      return xc -> RxExchange.sendNdjson(xc, items, gson);
+        }), exchange);}
+     * </pre>
+     * </p>
+     *
+     * @param  exchange  the exchange whose response body shall be sent
+     * @param  body      emits the chunks of the response body
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static void send(final HttpServerExchange exchange, final Flowable<ByteBuffer> body) {
+        final ResponseBodyWriter writer = new ResponseBodyWriter(exchange, body);
+        exchange.dispatch(SameThreadExecutor.INSTANCE, writer::start);
+    }
+
+    /**
+     * Streams the given elements as newline delimited JSON ({@code application/x-ndjson}), one element per line, as the
+     * response body of {@code exchange}. The {@code Content-Type} response header is set unless it is present already.
+     * See {@link #send(HttpServerExchange, Flowable)} for how the elements are written.
+     *
+     * @param  exchange  the exchange whose response body shall be sent
+     * @param  elements  emits the elements to be sent
+     * @param  gson      the {@code Gson} instance used to encode the elements
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static void sendNdjson(final HttpServerExchange exchange, final Flowable<?> elements, final Gson gson) {
+        requireNonNull(gson);
+        setContentTypeIfAbsent(exchange, NDJSON);
+        send(exchange, elements.map(element -> toJsonLine(gson, element)));
+    }
+
+    /**
+     * Streams the given strings as the data of Server-Sent Events ({@code text/event-stream}) as the response body of
+     * {@code exchange}, one event per string. Strings spanning multiple lines are sent as multi-line events. The
+     * {@code Content-Type} response header is set unless it is present already, and caching is disabled. See
+     * {@link #send(HttpServerExchange, Flowable)} for how the events are written.
+     *
+     * @param  exchange  the exchange whose response body shall be sent
+     * @param  events    emits the data of the events to be sent
+     *
+     * @throws  NullPointerException  if at least one of the arguments is {@code null}
+     */
+    public static void sendEvents(final HttpServerExchange exchange, final Flowable<String> events) {
+        setContentTypeIfAbsent(exchange, EVENT_STREAM);
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "no-cache");
+        send(exchange, events.map(RxExchange::toEvent));
+    }
+
+    private static void setContentTypeIfAbsent(final HttpServerExchange exchange, final String contentType) {
+        if (!exchange.getResponseHeaders().contains(Headers.CONTENT_TYPE)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+        }
+    }
+
+    private static ByteBuffer toJsonLine(final Gson gson, final Object element) {
+
+        // Use a JsonWriter of our own, so that a pretty printing Gson instance can't break lines.
+        final StringWriter out = new StringWriter();
+        gson.toJson(element, element.getClass(), new JsonWriter(out));
+        out.append('\n');
+        return ByteBuffer.wrap(out.toString().getBytes(UTF_8));
+    }
+
+    private static ByteBuffer toEvent(final String data) {
+        final StringBuilder event = new StringBuilder(data.length() + 8);
+        for (final String line : LINE_BREAK.split(data, -1)) {
+            event.append("data: ").append(line).append('\n');
+        }
+
+        event.append('\n');
+        return ByteBuffer.wrap(event.toString().getBytes(UTF_8));
     }
 
     /**
@@ -118,31 +452,67 @@ public final class RxExchange {
      * @throws  UnsupportedCharsetException  if no support for the charset specified by the request is available in this
      *                                       instance of the Java virtual machine
      */
-    private static Charset getRequestCharset(final HttpServerExchange exchange) {
-        final String requestCharset = exchange.getRequestCharset();
-        return requestCharset == null ? ISO_8859_1 : Charset.forName(requestCharset);
+    private static Charset getRequestCharset(final HttpServerExchange exchange, final Charset defaultCharset) {
+        final String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+        final String requestCharset = contentType == null ? null
+                                                          : Headers.extractQuotedValueFromHeader(contentType, "charset");
+        return requestCharset == null ? defaultCharset : Charset.forName(requestCharset);
     }
 
     private RxExchange() {
         throw new AssertionError("No instances for you!");
     }
 
-    private static final class SingleDispatch implements Runnable, ExchangeCompletionListener,
+    /**
+     * Subscribes to the handler {@code Single} right away, and executes the handler inline if it is available
+     * synchronously. Otherwise, the exchange gets dispatched and the handler is executed as a root handler once it has
+     * been emitted. Since that might happen while the current handler call is still in progress, the handler is only
+     * executed once both the handler has been emitted and the dispatch task has been run, whichever happens last.
+     */
+    private static final class SingleDispatch extends AtomicInteger implements Runnable, ExchangeCompletionListener,
         SingleObserver<HttpHandler> {
-        private final Single<HttpHandler> handlerSingle;
+        private static final int SUBSCRIBING = 0;
+        private static final int PENDING = 1;
+        private static final int DISPATCHED = 2;
+        private static final int RESOLVED = 3;
+        private static final int DONE = 4;
+
         private final HttpServerExchange exchange;
-        private Disposable disposable;
+        private volatile Disposable disposable;
+        private volatile HttpHandler handler;
+        private volatile Throwable error;
 
-        SingleDispatch(final Single<HttpHandler> handlerSingle, final HttpServerExchange exchange) {
-            this.handlerSingle = requireNonNull(handlerSingle);
+        SingleDispatch(final HttpServerExchange exchange) {
             this.exchange = requireNonNull(exchange);
         }
 
-        // Initial dispatch action, we may safely assume that this gets only called once.
+        void subscribe(final Single<HttpHandler> handlerSingle) {
+            handlerSingle.subscribe(this);
+            if (compareAndSet(SUBSCRIBING, PENDING)) {
+                exchange.addExchangeCompleteListener(this);
+                ClientDisconnects.disposeOnDisconnect(exchange, disposable);
+                exchange.dispatch(SameThreadExecutor.INSTANCE, this);
+            } else if (compareAndSet(RESOLVED, DONE)) {
+                final HttpHandler handler = this.handler;
+                if (handler == null) {
+                    fail(error);
+                    return;
+                }
+
+                try {
+                    handler.handleRequest(exchange);
+                } catch (final Exception e) {
+                    fail(e);
+                }
+            }
+        }
+
+        // Dispatch action, runs after the handler call that subscribed has returned.
         @Override
         public void run() {
-            exchange.addExchangeCompleteListener(this);
-            handlerSingle.subscribe(this);
+            if (!compareAndSet(PENDING, DISPATCHED) && compareAndSet(RESOLVED, DONE)) {
+                deliver();
+            }
         }
 
         @Override
@@ -152,26 +522,14 @@ public final class RxExchange {
 
         @Override
         public void onSuccess(final HttpHandler httpHandler) {
-            if (!disposable.isDisposed()) {
-                disposable.dispose();
-            }
-
-            Connectors.executeRootHandler(httpHandler, exchange);
+            handler = httpHandler;
+            resolve();
         }
 
-        // The Single errored out, not much that we can do about that.
         @Override
         public void onError(final Throwable error) {
-            LOG.error("Error occurred while dispatching request: [{}]", error.getMessage(), error);
-            if (!exchange.isResponseStarted()) {
-                exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
-            }
-
-            if (!disposable.isDisposed()) {
-                disposable.dispose();
-            }
-
-            exchange.endExchange();
+            this.error = error;
+            resolve();
         }
 
         // Called when the HTTP exchange is completed. Used to unsubscribe from handlerSingle if the exchange
@@ -179,13 +537,51 @@ public final class RxExchange {
         @Override
         public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
             try {
-                if (!disposable.isDisposed()) {
+                final Disposable disposable = this.disposable;
+                if (disposable != null && !disposable.isDisposed()) {
                     disposable.dispose();
                 }
             } finally {
                 nextListener.proceed();
             }
         }
+
+        private void resolve() {
+            for (;;) {
+                final int state = get();
+                if (state == DISPATCHED) {
+                    if (compareAndSet(DISPATCHED, DONE)) {
+                        deliver();
+                        return;
+                    }
+                } else if (state == SUBSCRIBING || state == PENDING) {
+                    if (compareAndSet(state, RESOLVED)) {
+                        return;
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void deliver() {
+            final HttpHandler handler = this.handler;
+            if (handler == null) {
+                fail(error);
+            } else {
+                Connectors.executeRootHandler(handler, exchange);
+            }
+        }
+
+        // The Single errored out, not much that we can do about that.
+        private void fail(final Throwable error) {
+            LOG.error("Error occurred while dispatching request: [{}]", error.getMessage(), error);
+            if (!exchange.isResponseStarted()) {
+                exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+            }
+
+            exchange.endExchange();
+        }
     }
 
     private static final class RxDispatchingHttpHandler implements HttpHandler {
@@ -206,29 +602,521 @@ public final class RxExchange {
         }
     }
 
-    private static final class FullStringConsumer implements FullStringCallback, ErrorCallback {
-        private final AsyncSubject<String> payloadSubject;
+    /**
+     * A hot {@code Single} that replays the received request body to all of its observers.
+     */
+    private static final class FullStringConsumer extends Single<String> implements FullStringCallback,
+        ErrorCallback {
+        private static final Waiter[] NO_WAITERS = new Waiter[0];
 
-        FullStringConsumer() {
-            payloadSubject = AsyncSubject.create();
-        }
+        // Either the observers waiting for the body, or the body, or the error.
+        private final AtomicReference<Object> state = new AtomicReference<>(NO_WAITERS);
 
         @Override
         public void handle(final HttpServerExchange exchange, final String payload) {
-            exchange.dispatch(SameThreadExecutor.INSTANCE,
-                () -> {
-                    payloadSubject.onNext(payload);
-                    payloadSubject.onComplete();
-                });
+            complete(payload);
+        }
+
+        @Override
+        public void error(final HttpServerExchange exchange, final IOException e) {
+            complete(e);
+        }
+
+        @Override
+        protected void subscribeActual(final SingleObserver<? super String> observer) {
+            final Waiter waiter = new Waiter(observer);
+            observer.onSubscribe(waiter);
+            for (;;) {
+                final Object current = state.get();
+                if (!(current instanceof Waiter[])) {
+                    waiter.emit(current);
+                    return;
+                }
+
+                final Waiter[] waiters = (Waiter[]) current;
+                final Waiter[] next = Arrays.copyOf(waiters, waiters.length + 1);
+                next[waiters.length] = waiter;
+                if (state.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        private void complete(final Object result) {
+            final Object waiters = state.getAndSet(result);
+            if (waiters instanceof Waiter[]) {
+                for (final Waiter waiter : (Waiter[]) waiters) {
+                    waiter.emit(result);
+                }
+            }
+        }
+
+        /**
+         * Disposal merely suppresses the delivery of the body, a disposed observer stays registered until the body has
+         * been received.
+         */
+        private static final class Waiter extends AtomicBoolean implements Disposable {
+            private final SingleObserver<? super String> observer;
+
+            Waiter(final SingleObserver<? super String> observer) {
+                this.observer = observer;
+            }
+
+            void emit(final Object result) {
+                if (isDisposed()) {
+                    return;
+                }
+
+                if (result instanceof Throwable) {
+                    observer.onError((Throwable) result);
+                } else {
+                    observer.onSuccess((String) result);
+                }
+            }
+
+            @Override
+            public void dispose() {
+                set(true);
+            }
+
+            @Override
+            public boolean isDisposed() {
+                return get();
+            }
+        }
+    }
+
+    private static final class RequestBodyFlowable extends Flowable<ByteBuffer> {
+        private final HttpServerExchange exchange;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        RequestBodyFlowable(final HttpServerExchange exchange) {
+            this.exchange = requireNonNull(exchange);
+        }
+
+        @Override
+        protected void subscribeActual(final Subscriber<? super ByteBuffer> subscriber) {
+            if (subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new RequestBodySubscription(exchange, subscriber));
+            } else {
+                Flowable.<ByteBuffer>error(new IllegalStateException("The request body can only be received once."))
+                        .subscribe(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Translates demand into pausing and resuming the exchange's {@code Receiver}. Chunks are delivered on the IO
+     * thread, so pausing happens there, too. Resuming gets scheduled on the IO thread, so that the decision whether to
+     * resume is never racing with the delivery of a chunk.
+     */
+    private static final class RequestBodySubscription implements Subscription, PartialBytesCallback, ErrorCallback {
+        private final HttpServerExchange exchange;
+        private final Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile boolean paused;
+        private volatile boolean done;
+
+        RequestBodySubscription(final HttpServerExchange exchange, final Subscriber<? super ByteBuffer> subscriber) {
+            this.exchange = exchange;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested a non-positive number of chunks: " + n));
+                return;
+            }
+
+            final long previous = requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            if (started.compareAndSet(false, true)) {
+                exchange.getRequestReceiver().receivePartialBytes(this, this);
+            } else if (previous == 0) {
+                scheduleResume();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!done) {
+                done = true;
+                if (started.get()) {
+                    exchange.getIoThread().execute(() -> exchange.getRequestReceiver().pause());
+                }
+            }
+        }
+
+        @Override
+        public void handle(final HttpServerExchange exchange, final byte[] message, final boolean last) {
+            if (done) {
+                return;
+            }
+
+            if (message.length > 0) {
+                subscriber.onNext(ByteBuffer.wrap(message));
+            }
+
+            if (last) {
+                done = true;
+                subscriber.onComplete();
+            } else if (message.length > 0 && requested.get() != Long.MAX_VALUE && requested.decrementAndGet() == 0) {
+                paused = true;
+                exchange.getRequestReceiver().pause();
+
+                // Demand might have arrived in the meantime.
+                if (requested.get() > 0) {
+                    scheduleResume();
+                }
+            }
         }
 
         @Override
         public void error(final HttpServerExchange exchange, final IOException e) {
-            payloadSubject.onError(e);
+            if (!done) {
+                done = true;
+                subscriber.onError(e);
+            }
+        }
+
+        private void scheduleResume() {
+            exchange.getIoThread().execute(() -> {
+                if (paused && !done && requested.get() > 0) {
+                    paused = false;
+                    exchange.getRequestReceiver().resume();
+                }
+            });
+        }
+    }
+
+    /**
+     * Collects the chunks of a request body in memory until they exceed the threshold, then writes them to a temporary
+     * file. The next chunk is only requested when all previous chunks have been written, so that no more than one
+     * chunk is held in memory while spilling. Upstream signals and write completions arrive on different threads, hence
+     * the synchronization.
+     */
+    private static final class SpillingBodyReceiver implements Subscriber<ByteBuffer>,
+        CompletionHandler<Integer, ByteBuffer> {
+        private final HttpServerExchange exchange;
+        private final long inMemoryThreshold;
+        private final SingleEmitter<BufferedRequestBody> emitter;
+        private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+        private List<ByteBuffer> chunks = new ArrayList<>();
+        private long length;
+        private Subscription subscription;
+        private Path file;
+        private AsynchronousFileChannel channel;
+        private long position;
+        private boolean writing;
+        private boolean received;
+        private boolean terminated;
+
+        SpillingBodyReceiver(final HttpServerExchange exchange, final long inMemoryThreshold,
+                final SingleEmitter<BufferedRequestBody> emitter) {
+            this.exchange = exchange;
+            this.inMemoryThreshold = inMemoryThreshold;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            emitter.setCancellable(this::cancel);
+            subscription.request(1);
+        }
+
+        @Override
+        public synchronized void onNext(final ByteBuffer chunk) {
+            if (terminated) {
+                return;
+            }
+
+            length += chunk.remaining();
+            if (channel == null && length <= inMemoryThreshold) {
+                chunks.add(chunk);
+                subscription.request(1);
+                return;
+            }
+
+            if (channel == null) {
+                try {
+                    spill();
+                } catch (final IOException e) {
+                    subscription.cancel();
+                    fail(e);
+                    return;
+                }
+            }
+
+            pending.add(chunk);
+            if (!writing) {
+                writeNext();
+            }
+        }
+
+        @Override
+        public synchronized void onError(final Throwable e) {
+            if (!terminated) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (terminated) {
+                return;
+            }
+
+            received = true;
+            if (channel == null) {
+                terminated = true;
+                emitter.onSuccess(BufferedRequestBody.inMemory(chunks));
+            } else if (!writing) {
+                finish();
+            }
+        }
+
+        @Override
+        public synchronized void completed(final Integer written, final ByteBuffer chunk) {
+            writing = false;
+            if (terminated) {
+                return;
+            }
+
+            position += written;
+            if (!chunk.hasRemaining()) {
+                pending.remove();
+            }
+
+            writeNext();
+        }
+
+        @Override
+        public synchronized void failed(final Throwable e, final ByteBuffer chunk) {
+            writing = false;
+            if (!terminated) {
+                subscription.cancel();
+                fail(e);
+            }
+        }
+
+        private void spill() throws IOException {
+            file = Files.createTempFile("undertaking-", ".body");
+
+            final Path file = this.file;
+            exchange.addExchangeCompleteListener((ex, nextListener) -> {
+                try {
+                    deleteQuietly(file);
+                } finally {
+                    nextListener.proceed();
+                }
+            });
+
+            channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE);
+            pending.addAll(chunks);
+            chunks = null;
         }
 
-        Single<String> toSingle() {
-            return payloadSubject.singleOrError();
+        private void writeNext() {
+            final ByteBuffer chunk = pending.peek();
+            if (chunk != null) {
+                writing = true;
+                channel.write(chunk, position, chunk, this);
+            } else if (received) {
+                finish();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        private void finish() {
+            terminated = true;
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                fail(e);
+                return;
+            }
+
+            emitter.onSuccess(BufferedRequestBody.spilled(file, length));
+        }
+
+        private synchronized void cancel() {
+            if (!terminated) {
+                subscription.cancel();
+                terminated = true;
+                release();
+            }
+        }
+
+        private void fail(final Throwable e) {
+            terminated = true;
+            release();
+            emitter.onError(e);
+        }
+
+        private void release() {
+            pending.clear();
+            chunks = null;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    LOG.warn("Failed to close temporary file [{}]: [{}]", file, e.getMessage(), e);
+                }
+
+                deleteQuietly(file);
+            }
+        }
+
+        private static void deleteQuietly(final Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                LOG.warn("Failed to delete temporary file [{}]: [{}]", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes the chunks of a response body to the response channel of an exchange, one at a time. All writes happen on
+     * the IO thread of the exchange: upstream signals are handed over to it, so that they never race with the write
+     * listener of the channel.
+     */
+    private static final class ResponseBodyWriter implements Subscriber<ByteBuffer>,
+        ChannelListener<StreamSinkChannel>, ExchangeCompletionListener {
+        private final HttpServerExchange exchange;
+        private final Flowable<ByteBuffer> body;
+        private volatile Subscription subscription;
+        private volatile boolean done;
+
+        // only accessed on the IO thread
+        private StreamSinkChannel channel;
+        private ByteBuffer pending;
+
+        ResponseBodyWriter(final HttpServerExchange exchange, final Flowable<ByteBuffer> body) {
+            this.exchange = requireNonNull(exchange);
+            this.body = requireNonNull(body);
+        }
+
+        void start() {
+            exchange.addExchangeCompleteListener(this);
+            body.subscribe(this);
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            if (done) {
+                subscription.cancel();
+            } else {
+                ClientDisconnects.disposeOnDisconnect(exchange, Disposables.fromSubscription(subscription));
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(final ByteBuffer chunk) {
+            exchange.getIoThread().execute(() -> write(chunk));
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            exchange.getIoThread().execute(() -> abort(e));
+        }
+
+        @Override
+        public void onComplete() {
+            exchange.getIoThread().execute(() -> {
+                if (!done) {
+                    done = true;
+                    exchange.endExchange();
+                }
+            });
+        }
+
+        // Called when the response channel is writable again.
+        @Override
+        public void handleEvent(final StreamSinkChannel channel) {
+            if (!done) {
+                writePending();
+            }
+        }
+
+        // Called when the HTTP exchange is completed. Used to stop the response body if the exchange completed before
+        // the body has been written, e.g. because the connection has been closed.
+        @Override
+        public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
+            try {
+                if (!done) {
+                    done = true;
+
+                    final Subscription subscription = this.subscription;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                }
+            } finally {
+                nextListener.proceed();
+            }
+        }
+
+        private void write(final ByteBuffer chunk) {
+            if (done) {
+                return;
+            }
+
+            if (channel == null) {
+                channel = exchange.getResponseChannel();
+                channel.getWriteSetter().set(this);
+            }
+
+            pending = chunk;
+            writePending();
+        }
+
+        private void writePending() {
+            try {
+                while (pending.hasRemaining()) {
+                    if (channel.write(pending) == 0) {
+                        channel.resumeWrites();
+                        return;
+                    }
+                }
+
+                if (!channel.flush()) {
+                    channel.resumeWrites();
+                    return;
+                }
+            } catch (final IOException e) {
+                LOG.debug("Failed to write response body: [{}]", e.getMessage(), e);
+                done = true;
+                subscription.cancel();
+                IoUtils.safeClose(exchange.getConnection());
+                return;
+            }
+
+            channel.suspendWrites();
+            subscription.request(1);
+        }
+
+        private void abort(final Throwable error) {
+            if (done) {
+                return;
+            }
+
+            done = true;
+            LOG.error("Error occurred while sending response body: [{}]", error.getMessage(), error);
+            if (exchange.isResponseStarted()) {
+
+                // The response can't be completed anymore, so let the client know that it's broken.
+                IoUtils.safeClose(exchange.getConnection());
+            } else {
+                exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                exchange.endExchange();
+            }
         }
     }
 }
@@ -0,0 +1,102 @@
+package org.zalando.undertaking.ahc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Determines how long to wait before retrying a failed request. Randomized delays spread the retries of concurrent
+ * callers, so that a degraded downstream isn't hit by all of them at the same instant.
+ *
+ * @see  ClientConfig.Builder#backoff(Backoff)
+ */
+public abstract class Backoff {
+
+    private static final Backoff NONE = new Backoff() {
+        @Override
+        public long delayNanos(final int retry, final long previousDelayNanos) {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Backoff.none()";
+        }
+    };
+
+    Backoff() { }
+
+    /**
+     * Returns a {@code Backoff} that retries immediately.
+     */
+    public static Backoff none() {
+        return NONE;
+    }
+
+    /**
+     * Returns an exponential {@code Backoff} with full jitter: the delay before the <em>n</em>-th retry is chosen
+     * uniformly at random between zero and {@code base * 2^(n-1)}, but never exceeds {@code cap}.
+     *
+     * @throws  IllegalArgumentException  if {@code base} isn't positive or {@code cap} is less than {@code base}
+     * @throws  NullPointerException      if {@code unit} is {@code null}
+     */
+    public static Backoff fullJitter(final long base, final long cap, final TimeUnit unit) {
+        final long baseNanos = unit.toNanos(base);
+        final long capNanos = unit.toNanos(cap);
+        checkArgument(baseNanos > 0, "base expected to be greater than 0");
+        checkArgument(capNanos >= baseNanos, "cap expected to be greater than or equal to base");
+
+        return new Backoff() {
+            @Override
+            public long delayNanos(final int retry, final long previousDelayNanos) {
+                final int shift = Math.min(Math.max(retry - 1, 0), Long.numberOfLeadingZeros(baseNanos) - 1);
+                return ThreadLocalRandom.current().nextLong(Math.min(capNanos, baseNanos << shift) + 1);
+            }
+
+            @Override
+            public String toString() {
+                return "Backoff.fullJitter(" + baseNanos + "ns, " + capNanos + "ns)";
+            }
+        };
+    }
+
+    /**
+     * Returns an exponential {@code Backoff} with decorrelated jitter: the delay before a retry is chosen uniformly at
+     * random between {@code base} and three times the previous delay, but never exceeds {@code cap}. The delay before
+     * the first retry is chosen between {@code base} and three times {@code base}.
+     *
+     * @throws  IllegalArgumentException  if {@code base} isn't positive or {@code cap} is less than {@code base}
+     * @throws  NullPointerException      if {@code unit} is {@code null}
+     */
+    public static Backoff decorrelatedJitter(final long base, final long cap, final TimeUnit unit) {
+        final long baseNanos = unit.toNanos(base);
+        final long capNanos = unit.toNanos(cap);
+        checkArgument(baseNanos > 0, "base expected to be greater than 0");
+        checkArgument(capNanos >= baseNanos, "cap expected to be greater than or equal to base");
+
+        return new Backoff() {
+            @Override
+            public long delayNanos(final int retry, final long previousDelayNanos) {
+                final long previous = Math.max(baseNanos, Math.min(capNanos, previousDelayNanos));
+                final long upper = previous > capNanos / 3 ? capNanos : previous * 3;
+                return ThreadLocalRandom.current().nextLong(baseNanos, upper + 1);
+            }
+
+            @Override
+            public String toString() {
+                return "Backoff.decorrelatedJitter(" + baseNanos + "ns, " + capNanos + "ns)";
+            }
+        };
+    }
+
+    /**
+     * Returns the time to wait before the given retry.
+     *
+     * @param   retry               the number of the retry, starting at one
+     * @param   previousDelayNanos  the delay before the previous retry, or zero for the first retry
+     *
+     * @return  the delay in nanoseconds, zero to retry immediately
+     */
+    public abstract long delayNanos(int retry, long previousDelayNanos);
+}
@@ -14,15 +14,25 @@ public class ClientConfig {
     private final long timeoutMillis;
     private final int maxRetries;
     private final String circuitBreakerName;
+    private final Backoff backoff;
+    private final RetryBudget retryBudget;
+    private final HedgePolicy hedgePolicy;
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     private ClientConfig(final Set<Class<? extends Throwable>> nonRetryableExceptions,
             final Set<Class<? extends Throwable>> circuitBreakerIgnoreFailure, final long timeoutMillis,
-            final int maxRetries, final String circuitBreakerName) {
+            final int maxRetries, final String circuitBreakerName, final Backoff backoff,
+            final RetryBudget retryBudget, final HedgePolicy hedgePolicy,
+            final ConcurrencyLimiter concurrencyLimiter) {
         this.nonRetryableExceptions = nonRetryableExceptions;
         this.circuitBreakerIgnoreFailure = circuitBreakerIgnoreFailure;
         this.timeoutMillis = timeoutMillis;
         this.maxRetries = maxRetries;
         this.circuitBreakerName = circuitBreakerName;
+        this.backoff = backoff;
+        this.retryBudget = retryBudget;
+        this.hedgePolicy = hedgePolicy;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     public static Builder builder() {
@@ -49,12 +59,32 @@ public class ClientConfig {
         return circuitBreakerName;
     }
 
+    public Backoff getBackoff() {
+        return backoff;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     public static class Builder {
         private long timeoutMillis = 2000L;
         private int maxRetries = 1;
         private String circuitBreakerName = "unnamed";
         private Set<Class<? extends Throwable>> circuitBreakerIgnoreFailures = Collections.emptySet();
         private Set<Class<? extends Throwable>> nonRetryableExceptions = Collections.emptySet();
+        private Backoff backoff = Backoff.none();
+        private RetryBudget retryBudget = RetryBudget.unlimited();
+        private HedgePolicy hedgePolicy = HedgePolicy.none();
+        private ConcurrencyLimiter concurrencyLimiter = ConcurrencyLimiter.unlimited();
 
         private Builder() { }
 
@@ -88,9 +118,49 @@ public class ClientConfig {
             return this;
         }
 
+        /**
+         * Sets the delay between retries. Defaults to {@link Backoff#none()}.
+         */
+        public Builder backoff(final Backoff backoff) {
+            requireNonNull(backoff);
+            this.backoff = backoff;
+            return this;
+        }
+
+        /**
+         * Sets the budget that caps the number of retries. Defaults to {@link RetryBudget#unlimited()}, i.e. retries
+         * are only limited by {@link #maxRetries(int)}. Pass {@link RetryBudget#shared()} to share a budget with all
+         * other clients that opted in.
+         */
+        public Builder retryBudget(final RetryBudget retryBudget) {
+            requireNonNull(retryBudget);
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Sets the policy for hedging requests. Defaults to {@link HedgePolicy#none()}. Hedging must only be enabled
+         * for idempotent requests.
+         */
+        public Builder hedgePolicy(final HedgePolicy hedgePolicy) {
+            requireNonNull(hedgePolicy);
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        /**
+         * Sets the limiter for concurrent requests. Defaults to {@link ConcurrencyLimiter#unlimited()}. Limiters keep
+         * state, so each endpoint should get a limiter of its own.
+         */
+        public Builder concurrencyLimiter(final ConcurrencyLimiter concurrencyLimiter) {
+            requireNonNull(concurrencyLimiter);
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
         public ClientConfig build() {
             return new ClientConfig(nonRetryableExceptions, circuitBreakerIgnoreFailures, timeoutMillis, maxRetries,
-                    circuitBreakerName);
+                    circuitBreakerName, backoff, retryBudget, hedgePolicy, concurrencyLimiter);
         }
     }
 }
@@ -0,0 +1,15 @@
+package org.zalando.undertaking.ahc;
+
+/**
+ * Thrown to indicate that a request hasn't been sent because too many requests to the same endpoint are in flight and
+ * no permit became available in time.
+ *
+ * @see  ConcurrencyLimiter
+ */
+@SuppressWarnings("serial")
+public final class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,422 @@
+package org.zalando.undertaking.ahc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.google.common.base.MoreObjects;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Limits the number of concurrent requests to an endpoint, so that a slow endpoint cannot absorb all connections of the
+ * HTTP client and degrade the requests to all other endpoints. The limit adapts to the observed latency by additive
+ * increase and multiplicative decrease (AIMD): each request that completes within the latency threshold raises the
+ * limit by one over the current limit, i.e. by about one per round trip, while a request that exceeds the threshold or
+ * times out cuts the limit by ten percent.
+ *
+ * <p>Requests exceeding the limit wait for a permit for a bounded time, or are rejected right away if no waiting is
+ * configured. Rejected requests fail with a {@link ConcurrencyLimitExceededException}. Keeps track of the current limit,
+ * the number of requests in flight and waiting, the time spent waiting and the number of rejections.</p>
+ *
+ * @see  ClientConfig.Builder#concurrencyLimiter(ConcurrencyLimiter)
+ */
+public final class ConcurrencyLimiter {
+
+    private static final ConcurrencyLimiter UNLIMITED = new ConcurrencyLimiter(builder());
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final long maxWaitNanos;
+    private final int maxQueued;
+
+    private final AtomicLong limitBits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder queueTimeNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private ConcurrencyLimiter(final Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.latencyThresholdNanos = builder.latencyThresholdNanos;
+        this.maxWaitNanos = builder.maxWaitNanos;
+        this.maxQueued = builder.maxQueued;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(builder.initialLimit));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a {@code ConcurrencyLimiter} that doesn't limit anything.
+     */
+    public static ConcurrencyLimiter unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @return  {@code true} if this limiter limits requests at all
+     */
+    public boolean isEnabled() {
+        return this != UNLIMITED;
+    }
+
+    /**
+     * @return  the current limit of concurrent requests
+     */
+    public int getLimit() {
+        return (int) getExactLimit();
+    }
+
+    /**
+     * @return  the number of requests currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return  the number of requests currently waiting for a permit
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return  the number of requests that have waited for a permit, regardless of whether they got one
+     */
+    public long getWaitedCount() {
+        return waited.sum();
+    }
+
+    /**
+     * @return  the time requests have spent waiting for a permit, in nanoseconds
+     */
+    public long getQueueTimeNanos() {
+        return queueTimeNanos.sum();
+    }
+
+    /**
+     * @return  the number of requests that have been rejected
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        if (this == UNLIMITED) {
+            return "ConcurrencyLimiter.unlimited()";
+        }
+
+        return MoreObjects.toStringHelper(this)        //
+                          .add("limit", getLimit())    //
+                          .add("inFlight", getInFlight()) //
+                          .add("queued", getQueued())  //
+                          .toString();
+    }
+
+    /**
+     * Returns a {@code Single} that subscribes to {@code request} once a permit is available. The permit is released
+     * when {@code request} terminates or gets disposed.
+     *
+     * @param  timeouts  schedules the maximum wait for a permit
+     */
+    <T> Single<T> limit(final Single<T> request, final TimeoutScheduler timeouts) {
+        return limit(request, timeouts, NO_DEADLINE);
+    }
+
+    /**
+     * Returns a {@code Single} that subscribes to {@code request} once a permit is available. The permit is released
+     * when {@code request} terminates or gets disposed. If it gets disposed once the given deadline has passed, i.e.
+     * by a timeout applied downstream, this counts as a timeout of the request and decreases the limit.
+     *
+     * @param  timeouts      schedules the maximum wait for a permit
+     * @param  deadlineNanos the {@link System#nanoTime()} at which the caller times out the request
+     */
+    <T> Single<T> limit(final Single<T> request, final TimeoutScheduler timeouts, final long deadlineNanos) {
+        return Single.defer(() -> {
+                if (tryAcquire()) {
+                    return run(request, deadlineNanos);
+                }
+
+                if (maxWaitNanos <= 0 || queued.incrementAndGet() > maxQueued) {
+                    if (maxWaitNanos > 0) {
+                        queued.decrementAndGet();
+                    }
+
+                    return reject();
+                }
+
+                return Single.<Waiter>create(emitter -> enqueue(new Waiter(emitter), timeouts)) //
+                             .flatMap(waiter ->
+                                     waiter.handOver() ? run(request, deadlineNanos) : Single.<T>never());
+            });
+    }
+
+    private <T> Single<T> run(final Single<T> request, final long deadlineNanos) {
+        final Permit permit = new Permit(deadlineNanos);
+        return request.doOnSubscribe(d -> permit.start = System.nanoTime()) //
+                      .doOnEvent((value, error) -> permit.release(error))  //
+                      .doOnDispose(permit::cancel);
+    }
+
+    private <T> Single<T> reject() {
+        rejected.increment();
+        return Single.error(new ConcurrencyLimitExceededException("Concurrency limit of " + getLimit() + " exceeded"));
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    private void enqueue(final Waiter waiter, final TimeoutScheduler timeouts) {
+        waited.increment();
+        waiter.emitter.setCancellable(waiter::cancel);
+        waiters.offer(waiter);
+        waiter.setTimeout(timeouts.schedule(waiter::timeout, maxWaitNanos, TimeUnit.NANOSECONDS));
+
+        // A permit might have been released in the meantime.
+        drain();
+    }
+
+    /**
+     * Hands released permits to waiting requests in the order they arrived.
+     */
+    private void drain() {
+        Waiter waiter;
+        while ((waiter = waiters.peek()) != null && tryAcquire()) {
+            if (waiters.remove(waiter) && waiter.grant()) {
+                continue;
+            }
+
+            // Timed out, cancelled or granted concurrently.
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void adapt(final long latencyNanos, final Throwable error) {
+        final boolean overloaded = error instanceof TimeoutException
+                || (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos);
+
+        long bits;
+        double limit;
+        do {
+            bits = limitBits.get();
+
+            final double current = Double.longBitsToDouble(bits);
+            if (overloaded) {
+                limit = Math.max(minLimit, current * BACKOFF_RATIO);
+            } else if (error == null) {
+                limit = Math.min(maxLimit, current + 1 / current);
+            } else {
+                return;
+            }
+        } while (limit != Double.longBitsToDouble(bits)
+                && !limitBits.compareAndSet(bits, Double.doubleToLongBits(limit)));
+    }
+
+    private double getExactLimit() {
+        return this == UNLIMITED ? Integer.MAX_VALUE : Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * A permit held by a running request.
+     */
+    private final class Permit extends AtomicBoolean {
+        final long deadlineNanos;
+        volatile long start;
+
+        Permit(final long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void release(final Throwable error) {
+            if (compareAndSet(false, true)) {
+                adapt(System.nanoTime() - start, error);
+                ConcurrencyLimiter.this.release();
+            }
+        }
+
+        void cancel() {
+            if (compareAndSet(false, true)) {
+                final long now = System.nanoTime();
+
+                // Disposed by the caller's timeout, which never reaches this permit as an error.
+                if (deadlineNanos != NO_DEADLINE && now - deadlineNanos >= 0) {
+                    adapt(now - start, new TimeoutException());
+                }
+
+                ConcurrencyLimiter.this.release();
+            }
+        }
+    }
+
+    /**
+     * A request waiting for a permit. Once it has been granted a permit, it's handed over to the request, unless the
+     * waiting request has been cancelled in the meantime, in which case the permit is released again.
+     */
+    private final class Waiter extends AtomicInteger {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int GONE = 2;
+
+        final SingleEmitter<Waiter> emitter;
+        final long enqueued = System.nanoTime();
+        final AtomicBoolean handedOver = new AtomicBoolean();
+        volatile Disposable timeout;
+
+        Waiter(final SingleEmitter<Waiter> emitter) {
+            this.emitter = emitter;
+        }
+
+        void setTimeout(final Disposable timeout) {
+            this.timeout = timeout;
+
+            // Might have been dequeued in the meantime.
+            if (get() != WAITING) {
+                timeout.dispose();
+            }
+        }
+
+        boolean grant() {
+            if (!compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+
+            dequeued();
+            emitter.onSuccess(this);
+            return true;
+        }
+
+        boolean handOver() {
+            return handedOver.compareAndSet(false, true);
+        }
+
+        void timeout() {
+            if (compareAndSet(WAITING, GONE)) {
+                waiters.remove(this);
+                dequeued();
+                rejected.increment();
+                emitter.onError(new ConcurrencyLimitExceededException(
+                        "No permit within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms, limit is "
+                        + getLimit()));
+            }
+        }
+
+        void cancel() {
+            if (compareAndSet(WAITING, GONE)) {
+                waiters.remove(this);
+                dequeued();
+            } else if (get() == GRANTED && handOver()) {
+
+                // Granted, but cancelled before the request could take the permit.
+                release();
+            }
+        }
+
+        private void dequeued() {
+            queued.decrementAndGet();
+            queueTimeNanos.add(System.nanoTime() - enqueued);
+
+            final Disposable timeout = this.timeout;
+            if (timeout != null) {
+                timeout.dispose();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private long latencyThresholdNanos;
+        private long maxWaitNanos;
+        private int maxQueued = Integer.MAX_VALUE;
+
+        private Builder() { }
+
+        /**
+         * Sets the limit to start with. Defaults to 20.
+         */
+        public Builder initialLimit(final int initialLimit) {
+            checkArgument(initialLimit > 0, "initialLimit expected to be greater than 0");
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the limit. Defaults to 1 and 200.
+         */
+        public Builder limitBounds(final int minLimit, final int maxLimit) {
+            checkArgument(minLimit > 0, "minLimit expected to be greater than 0");
+            checkArgument(maxLimit >= minLimit, "maxLimit expected to be greater than or equal to minLimit");
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the latency above which the limit gets decreased. By default, only timeouts decrease the limit.
+         */
+        public Builder latencyThreshold(final long latencyThreshold, final TimeUnit unit) {
+            checkArgument(latencyThreshold > 0, "latencyThreshold expected to be greater than 0");
+            this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+            return this;
+        }
+
+        /**
+         * Sets the maximum time requests wait for a permit and the maximum number of waiting requests. By default,
+         * requests exceeding the limit are rejected right away.
+         */
+        public Builder maxWait(final long maxWait, final TimeUnit unit, final int maxQueued) {
+            checkArgument(maxWait > 0, "maxWait expected to be greater than 0");
+            checkArgument(maxQueued > 0, "maxQueued expected to be greater than 0");
+            this.maxWaitNanos = unit.toNanos(maxWait);
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public ConcurrencyLimiter build() {
+            checkState(initialLimit >= minLimit && initialLimit <= maxLimit,
+                "initialLimit expected to be within the limit bounds");
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.zalando.undertaking.ahc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.asynchttpclient.BoundRequestBuilder;
+import org.asynchttpclient.Response;
+
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.google.common.base.MoreObjects;
+
+import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+import io.github.robwin.circuitbreaker.operator.CircuitBreakerOperator;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+/**
+ * Executes requests guarded by the retry handler, the timeout and the circuit breaker described by a
+ * {@link ClientConfig}. Everything that only depends on the configuration, i.e. the circuit breaker and its metrics,
+ * the retry predicate and the timeout, is resolved once when the endpoint is created, so that executing a request
+ * doesn't do anything but preparing the request itself.
+ *
+ * <p>Retries are delayed according to the configured {@link Backoff} and only made if the configured
+ * {@link RetryBudget} grants them. Delays are scheduled on the same {@code TimeoutScheduler} as the timeouts. Each
+ * attempt may be hedged according to the configured {@link HedgePolicy}. The timeout covers the request including all
+ * of its retries, hedges and delays. Each attempt, including hedges and retries, needs a permit of the configured
+ * {@link ConcurrencyLimiter}; attempts cancelled by the timeout count as timed out for the limiter.</p>
+ *
+ * <p>Endpoints are meant to be created once per configuration and kept for the lifetime of the calling component.</p>
+ *
+ * @see  GuardedHttpClient#endpoint(ClientConfig)
+ */
+public final class GuardedEndpoint {
+    private final GuardedHttpClient client;
+    private final ClientConfig config;
+    private final CircuitBreaker circuitBreaker;
+    private final Predicate<Throwable> retryable;
+    private final TimeoutScheduler timeouts;
+
+    GuardedEndpoint(final GuardedHttpClient client, final CircuitBreakerRegistry circuitBreakerRegistry,
+            final TimeoutScheduler timeouts, final ClientConfig config) {
+        this.client = requireNonNull(client);
+        this.config = requireNonNull(config);
+        this.timeouts = requireNonNull(timeouts);
+
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(config.getCircuitBreakerName(),
+                CircuitBreakerConfig.custom()                                                       //
+                                    .recordFailure(isNotRejected().and(
+                                            exceptionIsNotOfType(config.getCircuitBreakerIgnoreFailure()))) //
+                                    .build());
+        this.retryable = isNotRejected().and(exceptionIsNotOfType(config.getNonRetryableExceptions()));
+    }
+
+    /**
+     * @return  the configuration of this endpoint
+     */
+    public ClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return  the circuit breaker guarding this endpoint
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Executes a request whose response is converted by the given {@code responseHandler}.
+     *
+     * @see  GuardedHttpClient#executeRequest(BoundRequestBuilder, Function, ClientConfig)
+     */
+    public <T> Single<T> executeRequest(final BoundRequestBuilder builder,
+            final Function<Response, T> responseHandler) {
+        return guard(client.prepareRequest(builder, responseHandler));
+    }
+
+    /**
+     * Executes a request whose response is processed by the given {@code parser}.
+     *
+     * @see  GuardedHttpClient#executeRequest(BoundRequestBuilder, ResponseBodyParser, ClientConfig)
+     */
+    public <T> Single<T> executeRequest(final BoundRequestBuilder builder, final ResponseBodyParser<T> parser) {
+        return guard(client.prepareRequest(builder, parser));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)                       //
+                          .add("circuitBreaker", circuitBreaker.getName()) //
+                          .add("timeoutMillis", config.getTimeoutMillis()) //
+                          .add("maxRetries", config.getMaxRetries())   //
+                          .toString();
+    }
+
+    private <T> Single<T> guard(final Single<T> request) {
+        final ConcurrencyLimiter limiter = config.getConcurrencyLimiter();
+
+        // The deadline is taken before the timeout gets scheduled, so that permits disposed by it know they timed out.
+        final Single<T> guarded = limiter.isEnabled()
+            ? Single.defer(() -> {
+                    final long deadlineNanos = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMillis());
+                    return attempts(limiter.limit(request, timeouts, deadlineNanos));
+                })
+            : attempts(request);
+        return guarded.lift(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private <T> Single<T> attempts(final Single<T> request) {
+        //J-
+        final Single<T> attempt = config.getHedgePolicy().isEnabled() ? hedged(request) : request;
+        return retrying(attempt, 1, 0)
+            .doOnSubscribe(d -> config.getRetryBudget().deposit())
+            .lift(timeouts.timeout(config.getTimeoutMillis(), TimeUnit.MILLISECONDS));
+        //J+
+    }
+
+    /**
+     * Subscribes to {@code request} a second time if it doesn't respond within the delay of the hedge policy, as long
+     * as the policy grants the hedge. The first successful response wins, the other subscription gets disposed, which
+     * cancels its HTTP request. Errors are held back until all attempts that have been sent failed, so that a hedge
+     * failing fast cannot fail a request whose first attempt would have succeeded. Only the latency of successful
+     * first attempts is recorded by the policy.
+     */
+    private <T> Single<T> hedged(final Single<T> request) {
+        final HedgePolicy policy = config.getHedgePolicy();
+
+        return Single.defer(() -> {
+                policy.requested();
+
+                final AtomicBoolean hedgeSent = new AtomicBoolean();
+                final AtomicReference<Throwable> firstError = new AtomicReference<>();
+                final Maybe<T> hedge = Maybe.defer(() -> {
+                        if (!policy.tryHedge()) {
+                            return Maybe.<T>empty();
+                        }
+
+                        hedgeSent.set(true);
+                        return request.doOnSuccess(value -> policy.hedgeWon()).toMaybe();
+                    });
+
+                // Hedges, errors and disposals would bias the latencies towards the faster attempt, which would lower
+                // an adaptive delay and cause even more hedges, so that the delay would no longer follow the latency
+                // of a single attempt.
+                final long start = System.nanoTime();
+                final Maybe<T> primary = request.doOnSuccess(value -> policy.record(System.nanoTime() - start))
+                                                .toMaybe();
+                final Maybe<T> delayedHedge = hedge.delaySubscription(delay(policy.getDelayNanos()).toFlowable());
+                return Maybe.merge(                                                             //
+                                holdBackError(primary, firstError, hedgeSent::get),             //
+                                holdBackError(delayedHedge, firstError, () -> true))            //
+                            .firstElement()                                                     //
+                            .switchIfEmpty(Maybe.defer(() -> Maybe.<T>error(firstError.get()))) //
+                            .toSingle();
+            });
+    }
+
+    /**
+     * Holds back the error of an attempt if {@code holdBack} says that another attempt has been sent. Only the first
+     * error held back is kept, it's signalled once all attempts have failed.
+     */
+    private static <T> Maybe<T> holdBackError(final Maybe<T> attempt, final AtomicReference<Throwable> firstError,
+            final BooleanSupplier holdBack) {
+        return attempt.onErrorComplete(error -> {
+                if (!holdBack.getAsBoolean()) {
+                    return false;
+                }
+
+                firstError.compareAndSet(null, error);
+                return true;
+            });
+    }
+
+    /**
+     * Resubscribes to {@code request} if it fails with a retryable error, as long as there are retries left in the
+     * configuration and in the retry budget. The retries are chained lazily, i.e. only when an error occurs.
+     */
+    private <T> Single<T> retrying(final Single<T> request, final int retry, final long previousDelayNanos) {
+        return request.onErrorResumeNext(error -> {
+                if (retry > config.getMaxRetries() || !retryable.test(error)
+                        || !config.getRetryBudget().tryRetry()) {
+                    return Single.error(error);
+                }
+
+                final long delayNanos = config.getBackoff().delayNanos(retry, previousDelayNanos);
+                final Single<T> next = retrying(request, retry + 1, delayNanos);
+                return delayNanos > 0 ? next.delaySubscription(delay(delayNanos)) : next;
+            });
+    }
+
+    /**
+     * Completes after the given delay. The delay is scheduled on this endpoint's {@code TimeoutScheduler}, like the
+     * timeouts, rather than on RxJava's computation scheduler.
+     */
+    private Completable delay(final long delayNanos) {
+        return Completable.create(emitter ->
+                    emitter.setDisposable(timeouts.schedule(emitter::onComplete, delayNanos, TimeUnit.NANOSECONDS)));
+    }
+
+    /**
+     * Requests rejected by the concurrency limiter have never reached the endpoint, so they are neither retried nor
+     * recorded as failures by the circuit breaker.
+     */
+    private static Predicate<Throwable> isNotRejected() {
+        return e -> !(e instanceof ConcurrencyLimitExceededException);
+    }
+
+    private static Predicate<Throwable> exceptionIsNotOfType(final Set<Class<? extends Throwable>> exceptionTypes) {
+        return e -> !exceptionTypes.contains(e.getClass());
+    }
+}
@@ -2,63 +2,126 @@ package org.zalando.undertaking.ahc;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.Collection;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
-import java.util.function.Predicate;
 
 import org.asynchttpclient.BoundRequestBuilder;
 import org.asynchttpclient.Response;
 
-import io.github.robwin.circuitbreaker.CircuitBreaker;
-import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
-import io.github.robwin.circuitbreaker.operator.CircuitBreakerOperator;
 
 import io.reactivex.Single;
 
-import io.reactivex.functions.BiPredicate;
-
 /**
  * Helper class to create HTTP Requests guarded by a retry handler and a circuit breaker.
  *
  * @see  ClientConfig
+ * @see  GuardedEndpoint
  */
 public class GuardedHttpClient {
     private CircuitBreakerRegistry circuitBreakerRegistry;
     private Function<BoundRequestBuilder, Single<Response>> requestCreator;
+    private RxHttpClient httpClient;
+    private TimeoutScheduler timeouts;
+
+    // Keyed by identity, since configurations don't implement equals. Endpoints reference their configuration, so weak
+    // keys alone would never be cleared; weak values let an entry go once nobody holds on to its endpoint anymore.
+    private final LoadingCache<ClientConfig, GuardedEndpoint> endpoints = //
+        CacheBuilder.newBuilder().weakKeys().weakValues().build(CacheLoader.from(config ->
+                    new GuardedEndpoint(this, circuitBreakerRegistry, timeouts, config)));
 
     public GuardedHttpClient(final CircuitBreakerRegistry circuitBreakerRegistry,
             final Function<BoundRequestBuilder, Single<Response>> requestCreator) {
+        this(circuitBreakerRegistry, requestCreator, TimeoutScheduler.computation());
+    }
+
+    /**
+     * @param  timeouts  schedules the request timeouts, e.g. {@link TimeoutScheduler#hashedWheel()}
+     */
+    public GuardedHttpClient(final CircuitBreakerRegistry circuitBreakerRegistry,
+            final Function<BoundRequestBuilder, Single<Response>> requestCreator, final TimeoutScheduler timeouts) {
         this.circuitBreakerRegistry = requireNonNull(circuitBreakerRegistry);
         this.requestCreator = requireNonNull(requestCreator);
+        this.timeouts = requireNonNull(timeouts);
+    }
+
+    /**
+     * Creates a {@code GuardedHttpClient} that executes requests using the given {@code RxHttpClient}. Requests executed
+     * with a {@link ResponseBodyParser} are parsed straight from the received body parts.
+     */
+    public static GuardedHttpClient using(final CircuitBreakerRegistry circuitBreakerRegistry,
+            final RxHttpClient httpClient) {
+        return using(circuitBreakerRegistry, httpClient, TimeoutScheduler.computation());
     }
 
+    /**
+     * Creates a {@code GuardedHttpClient} that executes requests using the given {@code RxHttpClient} and schedules
+     * their timeouts using the given {@code TimeoutScheduler}.
+     *
+     * @see  #using(CircuitBreakerRegistry, RxHttpClient)
+     */
+    public static GuardedHttpClient using(final CircuitBreakerRegistry circuitBreakerRegistry,
+            final RxHttpClient httpClient, final TimeoutScheduler timeouts) {
+        requireNonNull(httpClient);
+
+        final GuardedHttpClient client = new GuardedHttpClient(circuitBreakerRegistry,
+                builder -> httpClient.prepareRequest(builder.build()), timeouts);
+        client.httpClient = httpClient;
+        return client;
+    }
+
+    /**
+     * Returns the endpoint that executes requests guarded as described by the given {@code config}. The circuit breaker
+     * of the endpoint is looked up once, so callers should keep the returned endpoint instead of passing the
+     * configuration to {@code executeRequest} on every call. Endpoints are only cached for as long as they are
+     * referenced.
+     *
+     * @throws  NullPointerException  if {@code config} is {@code null}
+     */
+    public GuardedEndpoint endpoint(final ClientConfig config) {
+        return endpoints.getUnchecked(requireNonNull(config));
+    }
+
+    /**
+     * Executes a request whose response is converted by the given {@code responseHandler}, using the
+     * {@linkplain #endpoint(ClientConfig) endpoint} for {@code config}.
+     */
     public <T> Single<T> executeRequest(final BoundRequestBuilder builder, final Function<Response, T> responseHandler,
             final ClientConfig config) {
-        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(config.getCircuitBreakerName(),
-                buildCircuitBreakerConfig(config));
-        //J-
-        return requestCreator.apply(builder)
-            .map(responseHandler::apply)
-            .retry(maxRetriesOr(config.getMaxRetries(), exceptionIsNotOfType(config.getNonRetryableExceptions())))
-            .timeout(config.getTimeoutMillis(), TimeUnit.MILLISECONDS, Single.error(new TimeoutException()))
-            .lift(CircuitBreakerOperator.of(circuitBreaker));
-        //J+
+        return endpoint(config).executeRequest(builder, responseHandler);
     }
 
-    private CircuitBreakerConfig buildCircuitBreakerConfig(final ClientConfig config) {
-        return CircuitBreakerConfig.custom()
-                                   .recordFailure(exceptionIsNotOfType(config.getCircuitBreakerIgnoreFailure()))
-                                   .build();
+    /**
+     * Executes a request whose response is processed by the given {@code parser}. If this client has been created
+     * {@linkplain #using(CircuitBreakerRegistry, RxHttpClient) using} an {@code RxHttpClient}, the response body is
+     * handed to the parser in the parts it has been received in, otherwise it is taken from the {@code Response} emitted
+     * by the request creator.
+     */
+    public <T> Single<T> executeRequest(final BoundRequestBuilder builder, final ResponseBodyParser<T> parser,
+            final ClientConfig config) {
+        return endpoint(config).executeRequest(builder, parser);
+    }
+
+    long cachedEndpoints() {
+        endpoints.cleanUp();
+        return endpoints.size();
     }
 
-    private Predicate<Throwable> exceptionIsNotOfType(final Collection<Class<? extends Throwable>> exceptionTypes) {
-        return e -> !exceptionTypes.contains(e.getClass());
+    <T> Single<T> prepareRequest(final BoundRequestBuilder builder, final Function<Response, T> responseHandler) {
+        return requestCreator.apply(builder).map(responseHandler::apply);
     }
 
-    private BiPredicate<Integer, Throwable> maxRetriesOr(final int maxRetries, final Predicate<Throwable> pred) {
-        return (tries, ex) -> tries <= maxRetries && pred.test(ex);
+    <T> Single<T> prepareRequest(final BoundRequestBuilder builder, final ResponseBodyParser<T> parser) {
+        if (httpClient == null) {
+            return requestCreator.apply(builder).map(response ->
+                        parser.parse(response.getStatusCode(), ResponseBody.of(response)));
+        }
+
+        return httpClient.prepareRequest(builder.build(), () -> new ParsingAsyncHandler<>(parser));
     }
 }
@@ -0,0 +1,181 @@
+package org.zalando.undertaking.ahc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Determines if and when a second attempt of a request is sent while the first one is still outstanding. Whichever
+ * attempt responds first wins, the other one gets cancelled. Hedging trades a bit of additional load for a shorter
+ * tail latency, so it must only be used for idempotent requests, e.g. {@code GET} requests.
+ *
+ * <p>Hedges are capped to a percentage of the requests, just like retries are capped by a {@link RetryBudget}, so that
+ * hedging cannot amplify the load of a downstream that is slow because it's overloaded. Keeps track of how many hedges
+ * have been sent, how many of them responded first and how many have been denied.</p>
+ *
+ * @see  ClientConfig.Builder#hedgePolicy(HedgePolicy)
+ */
+public final class HedgePolicy {
+
+    private static final HedgePolicy NONE = new HedgePolicy(0, 0, false);
+
+    private static final int CAPACITY = 10;
+    private static final int WINDOW_SIZE = 256;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final int percentage;
+    private final boolean adaptive;
+    private final RetryBudget budget;
+
+    private volatile long delayNanos;
+    private final AtomicLongArray latencies;
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder won = new LongAdder();
+
+    private HedgePolicy(final long delayNanos, final int percentage, final boolean adaptive) {
+        this.delayNanos = delayNanos;
+        this.percentage = percentage;
+        this.adaptive = adaptive;
+        this.budget = percentage > 0 ? RetryBudget.of(percentage, CAPACITY) : null;
+        this.latencies = adaptive ? new AtomicLongArray(WINDOW_SIZE) : null;
+    }
+
+    /**
+     * Returns a {@code HedgePolicy} that never hedges.
+     */
+    public static HedgePolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a {@code HedgePolicy} that hedges requests that haven't responded within a fixed delay.
+     *
+     * @param   delay       the time to wait for a response before sending the hedge
+     * @param   unit        the unit of {@code delay}
+     * @param   percentage  the percentage of requests that may be hedged
+     *
+     * @throws  IllegalArgumentException  if {@code delay} or {@code percentage} isn't positive
+     * @throws  NullPointerException      if {@code unit} is {@code null}
+     */
+    public static HedgePolicy fixed(final long delay, final TimeUnit unit, final int percentage) {
+        checkArgument(delay > 0, "delay expected to be greater than 0");
+        checkArgument(percentage > 0, "percentage expected to be greater than 0");
+        return new HedgePolicy(unit.toNanos(delay), percentage, false);
+    }
+
+    /**
+     * Returns a {@code HedgePolicy} that hedges requests that haven't responded within the 95th percentile of the
+     * latencies of recent requests, i.e. roughly one in twenty requests gets hedged if the budget permits. The
+     * percentile is computed over the latest 256 requests, until enough of them have been observed the initial delay
+     * is used.
+     *
+     * @param   initialDelay  the time to wait for a response before sending the hedge, until the percentile is known
+     * @param   unit          the unit of {@code initialDelay}
+     * @param   percentage    the percentage of requests that may be hedged
+     *
+     * @throws  IllegalArgumentException  if {@code initialDelay} or {@code percentage} isn't positive
+     * @throws  NullPointerException      if {@code unit} is {@code null}
+     */
+    public static HedgePolicy p95(final long initialDelay, final TimeUnit unit, final int percentage) {
+        checkArgument(initialDelay > 0, "initialDelay expected to be greater than 0");
+        checkArgument(percentage > 0, "percentage expected to be greater than 0");
+        return new HedgePolicy(unit.toNanos(initialDelay), percentage, true);
+    }
+
+    /**
+     * @return  {@code true} if this policy hedges requests at all
+     */
+    public boolean isEnabled() {
+        return budget != null;
+    }
+
+    /**
+     * @return  the current time to wait for a response before sending the hedge, in nanoseconds
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * @return  the number of hedges that have been sent
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * @return  the number of hedges that responded before the attempt they were hedging
+     */
+    public long getWonCount() {
+        return won.sum();
+    }
+
+    /**
+     * @return  the number of hedges that have not been sent because too many requests have been hedged already
+     */
+    public long getDeniedCount() {
+        return budget == null ? 0 : budget.getDeniedCount();
+    }
+
+    @Override
+    public String toString() {
+        if (this == NONE) {
+            return "HedgePolicy.none()";
+        }
+
+        return MoreObjects.toStringHelper(this)           //
+                          .add("delayNanos", delayNanos)  //
+                          .add("adaptive", adaptive)      //
+                          .add("percentage", percentage)  //
+                          .toString();
+    }
+
+    void requested() {
+        budget.deposit();
+    }
+
+    boolean tryHedge() {
+        if (budget.tryRetry()) {
+            sent.increment();
+            return true;
+        }
+
+        return false;
+    }
+
+    void hedgeWon() {
+        won.increment();
+    }
+
+    /**
+     * Records the latency of a request. Every {@value #RECOMPUTE_EVERY} requests, the delay of adaptive policies is
+     * recomputed from the latest {@value #WINDOW_SIZE} latencies. Concurrent updates of the window may get lost, which
+     * is fine for an estimate.
+     */
+    void record(final long latencyNanos) {
+        if (!adaptive) {
+            return;
+        }
+
+        final int index = recorded.getAndIncrement();
+        latencies.lazySet(index & (WINDOW_SIZE - 1), latencyNanos);
+        if ((index + 1) % RECOMPUTE_EVERY == 0) {
+            final int size = index + 1 < WINDOW_SIZE && index >= 0 ? index + 1 : WINDOW_SIZE;
+            final long[] window = new long[size];
+            for (int i = 0; i < size; i++) {
+                window[i] = latencies.get(i);
+            }
+
+            Arrays.sort(window);
+            delayNanos = Math.max(1, window[(int) Math.ceil(size * 0.95) - 1]);
+        }
+    }
+}
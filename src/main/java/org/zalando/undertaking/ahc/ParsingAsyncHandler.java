@@ -0,0 +1,59 @@
+package org.zalando.undertaking.ahc;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+
+/**
+ * Collects the status code and the body parts of a HTTP response and hands them to a {@link ResponseBodyParser} once
+ * the response has been received completely. In contrast to {@link org.asynchttpclient.AsyncCompletionHandlerBase},
+ * neither a {@code Response} nor a contiguous copy of the body is created.
+ */
+final class ParsingAsyncHandler<T> implements AsyncHandler<T> {
+
+    private final ResponseBodyParser<? extends T> parser;
+    private final List<byte[]> parts = new ArrayList<>(2);
+    private int statusCode;
+
+    ParsingAsyncHandler(final ResponseBodyParser<? extends T> parser) {
+        this.parser = requireNonNull(parser);
+    }
+
+    @Override
+    public State onStatusReceived(final HttpResponseStatus responseStatus) {
+        statusCode = responseStatus.getStatusCode();
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onHeadersReceived(final HttpResponseHeaders headers) {
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onBodyPartReceived(final HttpResponseBodyPart bodyPart) {
+        if (bodyPart.length() > 0) {
+
+            // Eagerly received parts hand out their backing array, lazy ones are copied, as they're released afterwards.
+            parts.add(bodyPart.getBodyPartBytes());
+        }
+
+        return State.CONTINUE;
+    }
+
+    @Override
+    public T onCompleted() throws Exception {
+        return parser.parse(statusCode, parts.isEmpty() ? null : new ResponseBody(parts));
+    }
+
+    @Override
+    public void onThrowable(final Throwable t) {
+        // reported by the request's Single
+    }
+}
@@ -0,0 +1,111 @@
+package org.zalando.undertaking.ahc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+
+import java.nio.ByteBuffer;
+
+import java.nio.charset.Charset;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.asynchttpclient.Response;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * The body of a HTTP response, as the sequence of body parts in which it has been received. Body parts are not copied
+ * into a contiguous buffer, but read in place.
+ */
+public final class ResponseBody {
+
+    private final List<byte[]> parts;
+
+    ResponseBody(final List<byte[]> parts) {
+        this.parts = requireNonNull(parts);
+    }
+
+    /**
+     * Creates a {@code ResponseBody} from the body of a fully received {@code Response}.
+     *
+     * @return  the response body, or {@code null} if the response didn't have any body
+     */
+    public static ResponseBody of(final Response response) {
+        final ByteBuffer buffer = response.getResponseBodyAsByteBuffer();
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return new ResponseBody(ImmutableList.of(buffer.array()));
+        }
+
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new ResponseBody(ImmutableList.of(bytes));
+    }
+
+    /**
+     * @return  the number of bytes of this body
+     */
+    public long length() {
+        long length = 0;
+        for (final byte[] part : parts) {
+            length += part.length;
+        }
+
+        return length;
+    }
+
+    /**
+     * @return  a stream reading the raw bytes of this body
+     */
+    public InputStream openStream() {
+        if (parts.size() == 1) {
+            return new ByteArrayInputStream(parts.get(0));
+        }
+
+        return new SequenceInputStream(Collections.enumeration(
+                    Lists.transform(parts, part -> (InputStream) new ByteArrayInputStream(part))));
+    }
+
+    /**
+     * Opens a reader that decodes this body as UTF-8. Malformed input is replaced by {@code U+FFFD}.
+     */
+    public Reader openUtf8Reader() {
+        return new InputStreamReader(openStream(), UTF_8);
+    }
+
+    /**
+     * Decodes this body into a string, using the given charset.
+     */
+    public String asString(final Charset charset) {
+        if (parts.size() == 1) {
+            return new String(parts.get(0), charset);
+        }
+
+        final byte[] bytes = new byte[Math.toIntExact(length())];
+        int offset = 0;
+        for (final byte[] part : parts) {
+            System.arraycopy(part, 0, bytes, offset, part.length);
+            offset += part.length;
+        }
+
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString() {
+        return asString(UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package org.zalando.undertaking.ahc;
+
+/**
+ * Turns the status code and body of a HTTP response into a result object. Used to process responses without
+ * materializing them as {@link org.asynchttpclient.Response} first.
+ *
+ * @param  <T>  type of the parsed result
+ *
+ * @see    GuardedHttpClient#executeRequest(org.asynchttpclient.BoundRequestBuilder, ResponseBodyParser, ClientConfig)
+ */
+@FunctionalInterface
+public interface ResponseBodyParser<T> {
+
+    /**
+     * Parses a received HTTP response.
+     *
+     * @param   statusCode  the HTTP status code of the response
+     * @param   body        the response body, or {@code null} if the response didn't have any body
+     *
+     * @return  the parsed result, never {@code null}
+     *
+     * @throws  Exception  if the response cannot be parsed
+     */
+    T parse(int statusCode, ResponseBody body) throws Exception;
+}
@@ -0,0 +1,152 @@
+package org.zalando.undertaking.ahc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Token bucket that caps retries to a percentage of the requests that have been made. Every request deposits a fraction
+ * of a token, every retry withdraws a whole one. Retries are denied while the bucket is empty, so that a degraded
+ * downstream doesn't get hit by more than {@code 1 + percentage / 100} times its usual load, no matter how many
+ * retries the individual callers are configured to make. The bucket starts full, so that retries aren't denied right
+ * after startup.
+ *
+ * <p>Keeps track of how many retries have been attempted, granted and denied.</p>
+ *
+ * @see  ClientConfig.Builder#retryBudget(RetryBudget)
+ */
+public final class RetryBudget {
+
+    private static final long MILLIS_PER_TOKEN = 1000;
+
+    private static final RetryBudget SHARED = new RetryBudget(10, 100);
+    private static final RetryBudget UNLIMITED = new RetryBudget(0, 0);
+
+    private final long depositMillis;
+    private final long capacityMillis;
+    private final AtomicLong balanceMillis;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    private RetryBudget(final int percentage, final int capacity) {
+        this.depositMillis = percentage * MILLIS_PER_TOKEN / 100;
+        this.capacityMillis = capacity * MILLIS_PER_TOKEN;
+        this.balanceMillis = new AtomicLong(capacityMillis);
+    }
+
+    /**
+     * Returns a new {@code RetryBudget}.
+     *
+     * @param   percentage  the percentage of requests that may be retried
+     * @param   capacity    the maximum number of retries that may be saved up, i.e. the size of the largest burst of
+     *                      retries
+     *
+     * @throws  IllegalArgumentException  if {@code percentage} or {@code capacity} isn't positive
+     */
+    public static RetryBudget of(final int percentage, final int capacity) {
+        checkArgument(percentage > 0, "percentage expected to be greater than 0");
+        checkArgument(capacity > 0, "capacity expected to be greater than 0");
+        return new RetryBudget(percentage, capacity);
+    }
+
+    /**
+     * Returns the {@code RetryBudget} that is shared by all {@link ClientConfig}s that opt in to it. It allows retrying
+     * 10% of the requests, with bursts of up to 100 retries.
+     */
+    public static RetryBudget shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a {@code RetryBudget} that grants every retry. This is the default of {@link ClientConfig}.
+     */
+    public static RetryBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Records a request, which adds to the budget for retries. This is a single read if the bucket is full already.
+     */
+    public void deposit() {
+        if (this == UNLIMITED) {
+            return;
+        }
+
+        long balance;
+        do {
+            balance = balanceMillis.get();
+            if (balance >= capacityMillis) {
+                return;
+            }
+        } while (!balanceMillis.compareAndSet(balance, Math.min(capacityMillis, balance + depositMillis)));
+    }
+
+    /**
+     * Withdraws a retry from the budget.
+     *
+     * @return  {@code true} if the retry may be made, {@code false} if the budget is exhausted
+     */
+    public boolean tryRetry() {
+        if (this == UNLIMITED) {
+            granted.increment();
+            return true;
+        }
+
+        long balance;
+        do {
+            balance = balanceMillis.get();
+            if (balance < MILLIS_PER_TOKEN) {
+                denied.increment();
+                return false;
+            }
+        } while (!balanceMillis.compareAndSet(balance, balance - MILLIS_PER_TOKEN));
+
+        granted.increment();
+        return true;
+    }
+
+    /**
+     * @return  the number of retries that have been attempted, i.e. the sum of granted and denied retries
+     */
+    public long getAttemptedCount() {
+        return granted.sum() + denied.sum();
+    }
+
+    /**
+     * @return  the number of retries that have been granted
+     */
+    public long getGrantedCount() {
+        return granted.sum();
+    }
+
+    /**
+     * @return  the number of retries that have been denied because the budget was exhausted
+     */
+    public long getDeniedCount() {
+        return denied.sum();
+    }
+
+    /**
+     * @return  the number of retries that may currently be made, or {@code Long.MAX_VALUE} if this budget is unlimited
+     */
+    public long getBalance() {
+        return this == UNLIMITED ? Long.MAX_VALUE : balanceMillis.get() / MILLIS_PER_TOKEN;
+    }
+
+    @Override
+    public String toString() {
+        if (this == UNLIMITED) {
+            return "RetryBudget.unlimited()";
+        }
+
+        return MoreObjects.toStringHelper(this)                                  //
+                          .add("percentage", depositMillis * 100 / MILLIS_PER_TOKEN) //
+                          .add("capacity", capacityMillis / MILLIS_PER_TOKEN)    //
+                          .add("balance", getBalance())                          //
+                          .toString();
+    }
+}
@@ -0,0 +1,70 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Publishes the statistics of a Guava style cache as gauges to a {@code MetricRegistry}. Published metrics per cache
+ * are:
+ *
+ * <ul>
+ *   <li># of requests</li>
+ *   <li># of hits</li>
+ *   <li># of misses</li>
+ *   <li>hit rate</li>
+ *   <li># of evictions</li>
+ * </ul>
+ */
+public class CacheDropwizardMetrics {
+    private static final String PREFIX = "cache";
+
+    private final String name;
+    private final Supplier<CacheStats> stats;
+    private final MetricRegistry registry;
+
+    private CacheDropwizardMetrics(final String name, final Supplier<CacheStats> stats,
+            final MetricRegistry registry) {
+        this.name = requireNonNull(name);
+        this.stats = requireNonNull(stats);
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the cache statistics emitted by {@code stats} under {@code cache.<name>}.
+     *
+     * @param  name      the name of the cache, normalized via {@link MetricNameNormalizer}
+     * @param  stats     supplies the current statistics of the cache, e.g. {@code tokenInfoCache::stats}
+     * @param  registry  the metric registry to which the gauges are published
+     */
+    public static void register(final String name, final Supplier<CacheStats> stats, final MetricRegistry registry) {
+        new CacheDropwizardMetrics(name, stats, registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("requests"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauge("requests", () -> stats.get().requestCount());
+        registerGauge("hits", () -> stats.get().hitCount());
+        registerGauge("misses", () -> stats.get().missCount());
+        registerGauge("hitRate", () -> stats.get().hitRate());
+        registerGauge("evictions", () -> stats.get().evictionCount());
+    }
+
+    private <T> void registerGauge(final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(name), fn);
+    }
+
+    private String getPrefixedMetricName(final String name) {
+        return PREFIX + "." + MetricNameNormalizer.normalize(this.name) + "." + name;
+    }
+}
@@ -42,15 +42,17 @@ public class CircuitBreakerDropwizardMetrics {
     }
 
     private void doRegister() {
-        if (registry.getMetrics().containsKey(getPrefixedMetricName("state"))) {
+        try {
+            registerGauge("state", () -> breaker.getState().toString());
+        } catch (final IllegalArgumentException e) {
 
-            // Do not register or subscribe to the event stream more than once.
+            // Do not register or subscribe to the event stream more than once. Checking the registry's metrics up
+            // front would copy all of them into a sorted map.
             return;
         }
 
         CircuitBreaker.Metrics metrics = breaker.getMetrics();
 
-        registerGauge("state", () -> breaker.getState().toString());
         registerGauge("timestamp", System::currentTimeMillis);
         registerGauge("failureRate", metrics::getFailureRate);
         registerGauge("buffered", metrics::getNumberOfBufferedCalls);
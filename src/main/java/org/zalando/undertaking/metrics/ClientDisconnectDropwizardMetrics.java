@@ -0,0 +1,52 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import org.zalando.undertaking.ClientDisconnects;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Publishes the statistics of {@link ClientDisconnects} as gauges to a {@code MetricRegistry}. Published metrics are:
+ *
+ * <ul>
+ *   <li># of pieces of work disposed because clients disconnected</li>
+ * </ul>
+ */
+public class ClientDisconnectDropwizardMetrics {
+    private static final String PREFIX = "disconnects";
+
+    private final MetricRegistry registry;
+
+    private ClientDisconnectDropwizardMetrics(final MetricRegistry registry) {
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the statistics of {@link ClientDisconnects} under {@code disconnects}.
+     *
+     * @param  registry  the metric registry to which the gauges are published
+     */
+    public static void register(final MetricRegistry registry) {
+        new ClientDisconnectDropwizardMetrics(registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("disposed"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauge("disposed", ClientDisconnects::getDisposedCount);
+    }
+
+    private <T> void registerGauge(final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(name), fn);
+    }
+
+    private static String getPrefixedMetricName(final String name) {
+        return PREFIX + "." + name;
+    }
+}
@@ -0,0 +1,70 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import org.zalando.undertaking.ahc.ConcurrencyLimiter;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Publishes the statistics of a {@link ConcurrencyLimiter} as gauges to a {@code MetricRegistry}. Published metrics
+ * per limiter are:
+ *
+ * <ul>
+ *   <li>current limit of concurrent requests</li>
+ *   <li># of requests in flight</li>
+ *   <li># of requests waiting for a permit</li>
+ *   <li># of requests that have waited for a permit</li>
+ *   <li>time spent waiting for permits, in nanoseconds</li>
+ *   <li># of rejected requests</li>
+ * </ul>
+ */
+public class ConcurrencyLimitDropwizardMetrics {
+    private static final String PREFIX = "concurrency";
+
+    private final String name;
+    private final ConcurrencyLimiter limiter;
+    private final MetricRegistry registry;
+
+    private ConcurrencyLimitDropwizardMetrics(final String name, final ConcurrencyLimiter limiter,
+            final MetricRegistry registry) {
+        this.name = requireNonNull(name);
+        this.limiter = requireNonNull(limiter);
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the statistics of {@code limiter} under {@code concurrency.<name>}.
+     *
+     * @param  name      the name of the limited endpoint, normalized via {@link MetricNameNormalizer}
+     * @param  limiter   the limiter whose statistics are published
+     * @param  registry  the metric registry to which the gauges are published
+     */
+    public static void register(final String name, final ConcurrencyLimiter limiter, final MetricRegistry registry) {
+        new ConcurrencyLimitDropwizardMetrics(name, limiter, registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("limit"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauge("limit", limiter::getLimit);
+        registerGauge("inFlight", limiter::getInFlight);
+        registerGauge("queued", limiter::getQueued);
+        registerGauge("waited", limiter::getWaitedCount);
+        registerGauge("queueTimeNanos", limiter::getQueueTimeNanos);
+        registerGauge("rejected", limiter::getRejectedCount);
+    }
+
+    private <T> void registerGauge(final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(name), fn);
+    }
+
+    private String getPrefixedMetricName(final String name) {
+        return PREFIX + "." + MetricNameNormalizer.normalize(this.name) + "." + name;
+    }
+}
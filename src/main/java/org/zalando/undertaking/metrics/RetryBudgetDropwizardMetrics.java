@@ -0,0 +1,65 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import org.zalando.undertaking.ahc.RetryBudget;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Publishes the statistics of a {@link RetryBudget} as gauges to a {@code MetricRegistry}. Published metrics per budget
+ * are:
+ *
+ * <ul>
+ *   <li># of attempted retries</li>
+ *   <li># of granted retries</li>
+ *   <li># of retries denied because the budget was exhausted</li>
+ *   <li># of retries that may currently be made</li>
+ * </ul>
+ */
+public class RetryBudgetDropwizardMetrics {
+    private static final String PREFIX = "retries";
+
+    private final String name;
+    private final RetryBudget budget;
+    private final MetricRegistry registry;
+
+    private RetryBudgetDropwizardMetrics(final String name, final RetryBudget budget, final MetricRegistry registry) {
+        this.name = requireNonNull(name);
+        this.budget = requireNonNull(budget);
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the statistics of {@code budget} under {@code retries.<name>}.
+     *
+     * @param  name      the name of the budget, normalized via {@link MetricNameNormalizer}
+     * @param  budget    the budget whose statistics are published, e.g. {@code RetryBudget.shared()}
+     * @param  registry  the metric registry to which the gauges are published
+     */
+    public static void register(final String name, final RetryBudget budget, final MetricRegistry registry) {
+        new RetryBudgetDropwizardMetrics(name, budget, registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("attempted"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauge("attempted", budget::getAttemptedCount);
+        registerGauge("granted", budget::getGrantedCount);
+        registerGauge("denied", budget::getDeniedCount);
+        registerGauge("balance", budget::getBalance);
+    }
+
+    private <T> void registerGauge(final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(name), fn);
+    }
+
+    private String getPrefixedMetricName(final String name) {
+        return PREFIX + "." + MetricNameNormalizer.normalize(this.name) + "." + name;
+    }
+}
@@ -0,0 +1,64 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Publishes the statistics of a {@link TimeoutScheduler} as gauges to a {@code MetricRegistry}. Published metrics per
+ * scheduler are:
+ *
+ * <ul>
+ *   <li># of scheduled timeouts</li>
+ *   <li># of cancelled timeouts</li>
+ *   <li># of fired timeouts</li>
+ * </ul>
+ */
+public class TimeoutDropwizardMetrics {
+    private static final String PREFIX = "timeouts";
+
+    private final String name;
+    private final TimeoutScheduler scheduler;
+    private final MetricRegistry registry;
+
+    private TimeoutDropwizardMetrics(final String name, final TimeoutScheduler scheduler,
+            final MetricRegistry registry) {
+        this.name = requireNonNull(name);
+        this.scheduler = requireNonNull(scheduler);
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the statistics of {@code scheduler} under {@code timeouts.<name>}.
+     *
+     * @param  name       the name of the scheduler, normalized via {@link MetricNameNormalizer}
+     * @param  scheduler  the scheduler whose statistics are published, e.g. {@code TimeoutScheduler.hashedWheel()}
+     * @param  registry   the metric registry to which the gauges are published
+     */
+    public static void register(final String name, final TimeoutScheduler scheduler, final MetricRegistry registry) {
+        new TimeoutDropwizardMetrics(name, scheduler, registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("scheduled"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauge("scheduled", scheduler::getScheduledCount);
+        registerGauge("cancelled", scheduler::getCancelledCount);
+        registerGauge("fired", scheduler::getFiredCount);
+    }
+
+    private <T> void registerGauge(final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(name), fn);
+    }
+
+    private String getPrefixedMetricName(final String name) {
+        return PREFIX + "." + MetricNameNormalizer.normalize(this.name) + "." + name;
+    }
+}
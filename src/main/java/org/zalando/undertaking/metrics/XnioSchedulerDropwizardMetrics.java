@@ -0,0 +1,62 @@
+package org.zalando.undertaking.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import org.zalando.undertaking.rx.XnioScheduler;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Publishes the statistics of {@link XnioScheduler XnioSchedulers} as gauges to a {@code MetricRegistry}, under
+ * {@code schedulers.ioThread} and {@code schedulers.worker}. Published metrics per kind of scheduler are:
+ *
+ * <ul>
+ *   <li># of queued tasks</li>
+ *   <li># of executed tasks</li>
+ *   <li>total time executed tasks have been queued, in nanoseconds</li>
+ * </ul>
+ */
+public class XnioSchedulerDropwizardMetrics {
+    private static final String PREFIX = "schedulers";
+
+    private final MetricRegistry registry;
+
+    private XnioSchedulerDropwizardMetrics(final MetricRegistry registry) {
+        this.registry = requireNonNull(registry);
+    }
+
+    /**
+     * Registers gauges for the statistics of IO thread and worker pool schedulers.
+     *
+     * @param  registry  the metric registry to which the gauges are published
+     */
+    public static void register(final MetricRegistry registry) {
+        new XnioSchedulerDropwizardMetrics(registry).doRegister();
+    }
+
+    private void doRegister() {
+        if (registry.getMetrics().containsKey(getPrefixedMetricName("ioThread", "queueDepth"))) {
+
+            // Do not register more than once.
+            return;
+        }
+
+        registerGauges("ioThread", XnioScheduler.ioThreadStatistics());
+        registerGauges("worker", XnioScheduler.workerStatistics());
+    }
+
+    private void registerGauges(final String kind, final XnioScheduler.Statistics statistics) {
+        registerGauge(kind, "queueDepth", statistics::getQueueDepth);
+        registerGauge(kind, "executed", statistics::getExecutedCount);
+        registerGauge(kind, "queueTimeNanos", statistics::getQueueTimeNanos);
+    }
+
+    private <T> void registerGauge(final String kind, final String name, final Gauge<T> fn) {
+        registry.register(getPrefixedMetricName(kind, name), fn);
+    }
+
+    private static String getPrefixedMetricName(final String kind, final String name) {
+        return PREFIX + "." + kind + "." + name;
+    }
+}
@@ -8,6 +8,8 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 
+import java.io.IOException;
+
 import java.util.List;
 
 import javax.inject.Inject;
@@ -15,7 +17,9 @@ import javax.inject.Inject;
 import org.asynchttpclient.*;
 
 import org.zalando.undertaking.ahc.ClientConfig;
+import org.zalando.undertaking.ahc.GuardedEndpoint;
 import org.zalando.undertaking.ahc.GuardedHttpClient;
+import org.zalando.undertaking.ahc.ResponseBody;
 import org.zalando.undertaking.oauth2.credentials.ClientCredentials;
 import org.zalando.undertaking.oauth2.credentials.RequestCredentials;
 import org.zalando.undertaking.oauth2.credentials.UserCredentials;
@@ -25,6 +29,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.net.HttpHeaders;
 
+import com.google.gson.TypeAdapter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import io.reactivex.Single;
 
 import io.undertow.util.StatusCodes;
@@ -40,7 +49,7 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
                                                            .nonRetryableExceptions(ImmutableSet.of(
                 BadAccessTokenException.class)).timeOutMs(10_000L).build();
 
-    private final GuardedHttpClient guardedHttpClient;
+    private final GuardedEndpoint endpoint;
 
     @Inject
     public AccessTokenRequestProvider(final AccessTokenSettings settings, final AsyncHttpClient client,
@@ -49,11 +58,11 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
         super(client);
         this.settings = requireNonNull(settings);
         this.clock = requireNonNull(clock);
-        this.guardedHttpClient = requireNonNull(guardedHttpClient);
+        this.endpoint = guardedHttpClient.endpoint(requestConfig);
     }
 
     public Single<AccessTokenResponse> requestAccessToken(final RequestCredentials credentials) {
-        return guardedHttpClient.executeRequest(createRequestBuilder(credentials), this::handleResponse, requestConfig);
+        return endpoint.executeRequest(createRequestBuilder(credentials), this::handleResponse);
     }
 
     private static Realm createRealm(final ClientCredentials credentials) {
@@ -71,18 +80,16 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
                       .setFormParams(createFormParams(credentials.getUserCredentials()));
     }
 
-    private AccessTokenResponse handleResponse(final Response response) {
-        return buildResponse(parsePayload(response), clock.instant());
+    private AccessTokenResponse handleResponse(final int statusCode, final ResponseBody body) {
+        return buildResponse(parsePayload(statusCode, body), clock.instant());
     }
 
-    private Payload parsePayload(final Response response) {
-        final int statusCode = response.getStatusCode();
-
+    private Payload parsePayload(final int statusCode, final ResponseBody body) {
         switch (statusCode) {
 
             case StatusCodes.OK :
 
-                final Payload payload = parse(response.getResponseBody(), Payload.class);
+                final Payload payload = parse(body, Payload.ADAPTER);
                 if (payload == null) {
                     throw new AccessTokenRequestException("No payload for OK response");
                 }
@@ -98,7 +105,7 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
 
                 final ErrorPayload errorPayload;
                 try {
-                    errorPayload = parse(response.getResponseBody(), ErrorPayload.class);
+                    errorPayload = parse(body, ErrorPayload.ADAPTER);
 
                     throw new BadAccessTokenException(errorPayload == null ? null : errorPayload.error,
                         errorPayload == null ? null : errorPayload.errorDescription);
@@ -107,8 +114,7 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
                 }
         }
 
-        throw new AccessTokenRequestException("Unexpected status code: " + statusCode + ": "
-                + response.getResponseBody());
+        throw new AccessTokenRequestException("Unexpected status code: " + statusCode + ": " + body);
     }
 
     private AccessTokenResponse buildResponse(final Payload payload, final Instant requestTime) {
@@ -126,12 +132,37 @@ class AccessTokenRequestProvider extends OAuth2RequestProvider {
     private static final class Payload {
 
         long expiresIn;
-        String tokenType;
-        String realm;
-        String scope;
-        String grantType;
-        String uid;
         String accessToken;
+
+        static final TypeAdapter<Payload> ADAPTER = new PayloadAdapter<Payload>() {
+            @Override
+            Payload create() {
+                return new Payload();
+            }
+
+            @Override
+            void readField(final JsonReader in, final String name, final Payload payload) throws IOException {
+                switch (name) {
+
+                    case "expires_in" :
+                        payload.expiresIn = in.nextLong();
+                        break;
+
+                    case "access_token" :
+                        payload.accessToken = nextString(in);
+                        break;
+
+                    default :
+                        in.skipValue();
+                }
+            }
+
+            @Override
+            void writeFields(final JsonWriter out, final Payload payload) throws IOException {
+                out.name("expires_in").value(payload.expiresIn);
+                out.name("access_token").value(payload.accessToken);
+            }
+        };
     }
 
 }
@@ -4,12 +4,11 @@ import java.util.Optional;
 import java.util.Set;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableSet;
 
 public class AuthenticationInfo {
 
     private final Optional<String> uid;
-    private final Set<String> scopes;
+    private final ScopeSet scopes;
     private final Optional<String> businessPartnerId;
 
     protected AuthenticationInfo(final Builder builder) {
@@ -41,6 +40,14 @@ public class AuthenticationInfo {
         return scopes;
     }
 
+    /**
+     * @return  the granted scopes as an interned {@code ScopeSet}, which is the very same instance as returned by
+     *          {@link #getScopes()}
+     */
+    public final ScopeSet getScopeSet() {
+        return scopes;
+    }
+
     public final Optional<String> getBusinessPartnerId() {
         return businessPartnerId;
     }
@@ -57,7 +64,7 @@ public class AuthenticationInfo {
 
     public static class Builder {
         private String uid;
-        private Set<String> scopes = ImmutableSet.of();
+        private ScopeSet scopes = ScopeSet.of();
         private String businessPartnerId;
 
         protected Builder() {
@@ -70,12 +77,12 @@ public class AuthenticationInfo {
         }
 
         public Builder scopes(final Set<String> scopes) {
-            this.scopes = ImmutableSet.copyOf(scopes);
+            this.scopes = ScopeSet.of(scopes);
             return this;
         }
 
         public Builder scopes(final String... scopes) {
-            this.scopes = ImmutableSet.copyOf(scopes);
+            this.scopes = ScopeSet.of(scopes);
             return this;
         }
 
@@ -1,5 +1,9 @@
 package org.zalando.undertaking.oauth2;
 
+import static java.util.Objects.requireNonNull;
+
+import javax.inject.Provider;
+
 import org.zalando.undertaking.inject.HttpExchangeScoped;
 import org.zalando.undertaking.inject.Request;
 
@@ -13,6 +17,27 @@ import io.reactivex.Single;
  */
 public final class AuthenticationInfoModule extends PrivateModule {
 
+    private final Class<? extends Provider<? extends Single<AuthenticationInfo>>> providerType;
+
+    /**
+     * Provides authentication info by querying the token info endpoint.
+     *
+     * @see  AuthenticationInfoProvider
+     */
+    public AuthenticationInfoModule() {
+        this(AuthenticationInfoProvider.class);
+    }
+
+    /**
+     * Provides authentication info using the given provider type, e.g. {@link JwtAuthenticationInfoProvider}. The
+     * provider is instantiated once per HTTP exchange and may inject the {@link Request} scoped access token.
+     *
+     * @param  providerType  type of the provider used to obtain authentication info
+     */
+    public AuthenticationInfoModule(final Class<? extends Provider<? extends Single<AuthenticationInfo>>> providerType) {
+        this.providerType = requireNonNull(providerType);
+    }
+
     @Override
     protected void configure() {
         final TypeLiteral<Single<AccessToken>> accessToken = new TypeLiteral<Single<AccessToken>>() {
@@ -27,7 +52,7 @@ public final class AuthenticationInfoModule extends PrivateModule {
         bind(accessToken).annotatedWith(Request.class).toProvider(AuthorizationHeaderTokenProvider.class).in(
             HttpExchangeScoped.class);
 
-        bind(authenticationInfo).toProvider(AuthenticationInfoProvider.class).in(HttpExchangeScoped.class);
+        bind(authenticationInfo).toProvider(providerType).in(HttpExchangeScoped.class);
         expose(authenticationInfo);
     }
 
@@ -1,31 +1,39 @@
 package org.zalando.undertaking.oauth2;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.reactivestreams.Publisher;
 
+import org.zalando.undertaking.rx.SharedSingle;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 
 import io.reactivex.Flowable;
 import io.reactivex.Single;
-import io.reactivex.SingleEmitter;
-import io.reactivex.SingleOnSubscribe;
 
 import io.reactivex.functions.Function;
 
-import io.reactivex.subjects.AsyncSubject;
-
 /**
  * Provides authentication by delegating to a chain of other providers. The {@code AuthenticationInfo} of the first
- * provider emitting a successful result will be forwarded.
+ * provider emitting a successful result will be forwarded. The order in which the providers are consulted is determined
+ * by an {@link EvaluationStrategy}.
  */
 public class AuthenticationInfoProviderChain implements Provider<Single<AuthenticationInfo>> {
 
     private final List<Provider<Single<AuthenticationInfo>>> providerChain;
+    private final EvaluationStrategy strategy;
     private final Flowable<AuthenticationInfo> missingAuth = //
         Flowable.defer(() ->
                 Flowable.error(
@@ -34,7 +42,13 @@ public class AuthenticationInfoProviderChain implements Provider<Single<Authenti
 
     @Inject
     public AuthenticationInfoProviderChain(final List<Provider<Single<AuthenticationInfo>>> providerChain) {
+        this(providerChain, EvaluationStrategy.eager());
+    }
+
+    public AuthenticationInfoProviderChain(final List<Provider<Single<AuthenticationInfo>>> providerChain,
+            final EvaluationStrategy strategy) {
         this.providerChain = ImmutableList.copyOf(providerChain);
+        this.strategy = requireNonNull(strategy);
     }
 
     private static <T> Flowable<T> dropBadOrMalformedTokenExceptions(final Throwable error) {
@@ -45,9 +59,9 @@ public class AuthenticationInfoProviderChain implements Provider<Single<Authenti
     @Override
     public Single<AuthenticationInfo> get() {
         final Flowable<AuthenticationInfo> observable = //
-            Flowable.concatEager(getObservableChain()).take(1).switchIfEmpty(missingAuth);
+            strategy.evaluate(getObservableChain()).take(1).switchIfEmpty(missingAuth);
 
-        return Single.create(new CachedSubscribe<>(observable));
+        return new SharedSingle<>(observable.singleOrError());
     }
 
     private List<Flowable<AuthenticationInfo>> getObservableChain() {
@@ -62,34 +76,158 @@ public class AuthenticationInfoProviderChain implements Provider<Single<Authenti
         return builder.build();
     }
 
-    private static final class CachedSubscribe<T> extends AtomicReference<Single<T>> implements SingleOnSubscribe<T> {
+    /**
+     * Determines how the providers of a chain are subscribed to. Each provider is represented by a {@code Flowable} that
+     * either emits a single {@code AuthenticationInfo}, completes empty if the provider couldn't authenticate the
+     * request, or fails.
+     */
+    @FunctionalInterface
+    public interface EvaluationStrategy {
+
+        /**
+         * Combines the given provider attempts, ordered as in the chain, into a {@code Flowable} whose first emission is
+         * the chain's result.
+         */
+        Flowable<AuthenticationInfo> evaluate(List<Flowable<AuthenticationInfo>> attempts);
+
+        /**
+         * Subscribes to all providers at once, but prefers the results of earlier providers. This is the default, and
+         * issues the I/O of every provider for every request.
+         */
+        static EvaluationStrategy eager() {
+            return Flowable::concatEager;
+        }
+
+        /**
+         * Subscribes to a provider only after all previous ones failed to authenticate the request.
+         */
+        static EvaluationStrategy sequential() {
+            return Flowable::concat;
+        }
+
+        /**
+         * Subscribes to all providers at once and forwards the first successful result, regardless of the providers'
+         * order. The remaining providers are cancelled. Errors are only reported if no provider succeeds.
+         */
+        static EvaluationStrategy parallel() {
+            return AuthenticationInfoProviderChain::firstSuccess;
+        }
+
+        /**
+         * Consults providers sequentially, cheapest first. The cost of a provider is derived from its observed success
+         * rate and latency, providers without observations keep their position in the chain. The returned instance
+         * holds the observations and must therefore be shared by all requests using the same chain.
+         */
+        static EvaluationStrategy costOrdered() {
+            return new CostOrderedStrategy(Ticker.systemTicker());
+        }
+    }
+
+    private static Flowable<AuthenticationInfo> firstSuccess(final List<Flowable<AuthenticationInfo>> attempts) {
+        return Flowable.defer(() -> {
+                final AtomicReference<Throwable> firstError = new AtomicReference<>();
+                final List<Flowable<AuthenticationInfo>> guarded =
+                    attempts.stream()                                             //
+                            .map(attempt -> holdBackError(attempt, firstError)) //
+                            .collect(Collectors.toList());
+
+                return Flowable.merge(guarded).take(1).switchIfEmpty(Flowable.defer(() -> {
+                                final Throwable error = firstError.get();
+                                return error == null ? Flowable.empty() : Flowable.error(error);
+                            }));
+            });
+    }
+
+    /**
+     * Errors of parallel attempts are held back, as they must neither win over nor outlive a successful provider.
+     */
+    private static Flowable<AuthenticationInfo> holdBackError(final Flowable<AuthenticationInfo> attempt,
+            final AtomicReference<Throwable> firstError) {
+        return attempt.onErrorResumeNext(
+                (Function<? super Throwable, ? extends Publisher<? extends AuthenticationInfo>>) error -> {
+                    firstError.compareAndSet(null, error);
+                    return Flowable.empty();
+                });
+    }
+
+    @VisibleForTesting
+    static final class CostOrderedStrategy implements EvaluationStrategy {
+
+        private static final double SMOOTHING = 0.2;
 
-        private final Flowable<? extends T> source;
+        private final Ticker ticker;
+        private final AtomicReference<ProviderStats[]> stats = new AtomicReference<>(new ProviderStats[0]);
 
-        CachedSubscribe(final Flowable<? extends T> source) {
-            this.source = source;
+        CostOrderedStrategy(final Ticker ticker) {
+            this.ticker = requireNonNull(ticker);
         }
 
         @Override
-        public void subscribe(final SingleEmitter<T> emitter) throws Exception {
-            Single<T> single;
+        public Flowable<AuthenticationInfo> evaluate(final List<Flowable<AuthenticationInfo>> attempts) {
+            final ProviderStats[] current = getStats(attempts.size());
+            final List<Flowable<AuthenticationInfo>> ordered =
+                IntStream.range(0, attempts.size()).boxed()                                    //
+                         .sorted(Comparator.comparingDouble(i -> current[i].getExpectedCost())) //
+                         .map(i -> observe(attempts.get(i), current[i]))                        //
+                         .collect(Collectors.toList());
+
+            return Flowable.concat(ordered);
+        }
 
+        private ProviderStats[] getStats(final int size) {
             for (;;) {
-                single = get();
-                if (single != null) {
-                    break;
+                final ProviderStats[] current = stats.get();
+                if (current.length >= size) {
+                    return current;
                 }
 
-                final AsyncSubject<T> subject = AsyncSubject.create();
-                single = subject.singleOrError();
+                final ProviderStats[] grown = Arrays.copyOf(current, size);
+                for (int i = current.length; i < size; i++) {
+                    grown[i] = new ProviderStats();
+                }
 
-                if (compareAndSet(null, single)) {
-                    source.subscribe(subject::onNext, subject::onError, subject::onComplete);
-                    break;
+                if (stats.compareAndSet(current, grown)) {
+                    return grown;
                 }
             }
+        }
+
+        private Flowable<AuthenticationInfo> observe(final Flowable<AuthenticationInfo> attempt,
+                final ProviderStats providerStats) {
+            return Flowable.defer(() -> {
+                    final long start = ticker.read();
+                    final boolean[] succeeded = new boolean[1];
+                    return attempt.doOnNext(authInfo -> {
+                                succeeded[0] = true;
+                                providerStats.record(true, ticker.read() - start);
+                            }).doOnTerminate(() -> {
+                                if (!succeeded[0]) {
+                                    providerStats.record(false, ticker.read() - start);
+                                }
+                            });
+                });
+        }
+
+        @VisibleForTesting
+        double getExpectedCost(final int index) {
+            return getStats(index + 1)[index].getExpectedCost();
+        }
+    }
+
+    private static final class ProviderStats {
+        private double successRate = 1.0;
+        private double latencyNanos;
+
+        synchronized void record(final boolean success, final long elapsedNanos) {
+            successRate += CostOrderedStrategy.SMOOTHING * ((success ? 1.0 : 0.0) - successRate);
+            latencyNanos += CostOrderedStrategy.SMOOTHING * (elapsedNanos - latencyNanos);
+        }
 
-            single.subscribe(emitter::onSuccess, emitter::onError);
+        /**
+         * Expected time spent until this provider yields a result, or infinity if it never succeeds.
+         */
+        synchronized double getExpectedCost() {
+            return latencyNanos / Math.max(successRate, Double.MIN_NORMAL);
         }
     }
 }
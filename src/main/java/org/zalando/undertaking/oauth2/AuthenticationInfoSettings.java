@@ -2,6 +2,8 @@ package org.zalando.undertaking.oauth2;
 
 import java.net.URI;
 
+import java.time.Duration;
+
 /**
  * Provides configuration settings to request token information.
  *
@@ -27,4 +29,93 @@ public interface AuthenticationInfoSettings {
      * @return  the required scope, {@code null} means that no request is permitted to override the business partner
      */
     String getBusinessPartnerIdOverrideScope();
+
+    /**
+     * Maximum time for which the outcome of a token info request is cached and shared across HTTP requests. Entries
+     * are never kept longer than the access token itself is valid, as reported by the token info endpoint.
+     *
+     * @return  the time to live of cached token info entries, {@code null} or zero disables caching
+     */
+    default Duration getTokenInfoCacheTtl() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Maximum number of token info entries kept in the cache. Least recently used entries will be evicted first.
+     */
+    default long getTokenInfoCacheMaximumSize() {
+        return 10_000L;
+    }
+
+    /**
+     * Age after which cached token info is revalidated in the background. Until the revalidation completes, the cached
+     * token info keeps being served.
+     *
+     * @return  the age after which cached entries are refreshed, {@code null} or zero disables background refreshes
+     */
+    default Duration getTokenInfoCacheRefreshAfter() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Time for which expired token info keeps being served if the token info endpoint cannot be reached, i.e. if its
+     * circuit breaker is open or the request times out. Token info is never served beyond the expiry of the access
+     * token itself.
+     *
+     * @return  the grace period, {@code null} or zero disables serving of expired token info
+     */
+    default Duration getTokenInfoCacheGracePeriod() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Maximum time a lookup waits for the revalidation of expired token info during its grace period. If the token info
+     * endpoint doesn't respond in time, the expired token info is served while the revalidation continues in the
+     * background. This needs to be shorter than the timeout of the whole authorization flow, otherwise the flow times
+     * out before expired token info can be served.
+     *
+     * @return  the revalidation timeout, {@code null} or zero waits for the revalidation to complete
+     */
+    default Duration getTokenInfoCacheRevalidationTimeout() {
+        return Duration.ofMillis(500);
+    }
+
+    /**
+     * Time for which access tokens rejected by the token info endpoint are remembered. Requests using such a token are
+     * rejected right away during that time.
+     *
+     * @return  the time to live of rejected tokens, {@code null} or zero disables caching of rejections
+     */
+    default Duration getRejectedTokenCacheTtl() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Maximum number of rejected access tokens to be remembered. Least recently used entries will be evicted first.
+     */
+    default long getRejectedTokenCacheMaximumSize() {
+        return 10_000L;
+    }
+
+    /**
+     * Percentage of token info requests for which a second request may be sent if the first one is slow to respond.
+     * Whichever request responds first wins, the other one gets cancelled.
+     *
+     * @return  the percentage of hedged token info requests, zero disables hedging
+     */
+    default int getTokenInfoHedgePercentage() {
+        return 0;
+    }
+
+    /**
+     * Time to wait for a token info response before sending a second request, if hedging is enabled.
+     *
+     * @return  the delay of hedged token info requests, {@code null} or zero to track the 95th percentile of recent
+     *          token info latencies
+     *
+     * @see     #getTokenInfoHedgePercentage()
+     */
+    default Duration getTokenInfoHedgeDelay() {
+        return null;
+    }
 }
@@ -0,0 +1,253 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import java.math.BigInteger;
+
+import java.net.URI;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.zalando.undertaking.ahc.ClientConfig;
+import org.zalando.undertaking.ahc.GuardedEndpoint;
+import org.zalando.undertaking.ahc.GuardedHttpClient;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+
+import io.reactivex.Single;
+
+import io.reactivex.schedulers.Schedulers;
+
+import io.undertow.util.StatusCodes;
+
+/**
+ * Loads the JSON Web Key Set configured by {@link JwtSettings#getJwksLocation()} and keeps the parsed keys in memory.
+ * The key set is reloaded periodically, or earlier if a key is requested that is not part of the current key set. If a
+ * reload fails, the previously loaded keys are kept.
+ */
+@Singleton
+class JsonWebKeySetProvider extends OAuth2RequestProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonWebKeySetProvider.class);
+
+    private static final Map<String, String> EC_CURVES = ImmutableMap.of( //
+            "P-256", "secp256r1",                                         //
+            "P-384", "secp384r1",                                         //
+            "P-521", "secp521r1");
+
+    private final ClientConfig requestConfig = ClientConfig.builder().circuitBreakerName("auth/jwks").maxRetries(3)
+                                                           .timeOutMs(10_000L).build();
+
+    private final JwtSettings settings;
+    private final GuardedEndpoint endpoint;
+    private final Clock clock;
+
+    private final AtomicReference<KeySet> keySet = new AtomicReference<>();
+    private final AtomicReference<Map<String, PublicKey>> lastKnownKeys = new AtomicReference<>();
+
+    @Inject
+    JsonWebKeySetProvider(final JwtSettings settings, final AsyncHttpClient client,
+            final GuardedHttpClient guardedHttpClient, final Clock clock) {
+        super(client);
+        this.settings = requireNonNull(settings);
+        this.endpoint = guardedHttpClient.endpoint(requestConfig);
+        this.clock = requireNonNull(clock);
+    }
+
+    /**
+     * Emits the key with the given key identifier. If {@code keyId} is {@code null}, the only key of the key set is
+     * emitted, if it contains exactly one key.
+     *
+     * @return  a {@code Single} emitting the matching key, or an empty {@code Optional} if there's no such key
+     */
+    Single<Optional<PublicKey>> getKey(final String keyId) {
+        return Single.defer(() -> {
+                final KeySet current = getCurrentKeySet();
+                return current.keys.flatMap(keys -> {
+                        final Optional<PublicKey> key = selectKey(keys, keyId);
+                        if (key.isPresent() || !current.isOlderThan(settings.getClockSkew())) {
+                            return Single.just(key);
+                        }
+
+                        LOG.info("Unknown JSON Web Key [{}], reloading key set", keyId);
+                        return reload(current).keys.map(reloaded -> selectKey(reloaded, keyId));
+                    });
+            });
+    }
+
+    private static Optional<PublicKey> selectKey(final Map<String, PublicKey> keys, final String keyId) {
+        if (keyId == null) {
+            return keys.size() == 1 ? Optional.of(keys.values().iterator().next()) : Optional.empty();
+        }
+
+        return Optional.ofNullable(keys.get(keyId));
+    }
+
+    private KeySet getCurrentKeySet() {
+        final KeySet current = keySet.get();
+        if (current != null && !current.isOlderThan(settings.getJwksRefreshInterval())) {
+            return current;
+        }
+
+        return reload(current);
+    }
+
+    private KeySet reload(final KeySet expected) {
+        final KeySet next = new KeySet(clock.instant());
+        return keySet.compareAndSet(expected, next) ? next : keySet.get();
+    }
+
+    private Single<Map<String, PublicKey>> load() {
+        final URI location = settings.getJwksLocation();
+
+        final Single<String> payload;
+        if ("file".equals(location.getScheme())) {
+            payload = Single.fromCallable(() -> new String(Files.readAllBytes(Paths.get(location)), UTF_8)) //
+                            .subscribeOn(Schedulers.io());
+        } else {
+            payload = Single.defer(() ->
+                        endpoint.executeRequest(
+                            httpClient.prepareGet(location.toString()).setHeader(HttpHeaders.ACCEPT, "application/json"),
+                            this::getResponseBody));
+        }
+
+        return payload.map(this::parseKeys).onErrorResumeNext(error -> {
+                    final TokenInfoRequestException e =
+                        new TokenInfoRequestException("Failed to load JSON Web Key Set from " + location, error);
+
+                    final Map<String, PublicKey> fallback = lastKnownKeys.get();
+                    if (fallback == null) {
+                        return Single.error(e);
+                    }
+
+                    LOG.warn("Keeping previously loaded JSON Web Keys: [{}]", e.getMessage(), e);
+                    return Single.just(fallback);
+                });
+    }
+
+    private String getResponseBody(final Response response) {
+        if (response.getStatusCode() != StatusCodes.OK) {
+            throw new TokenInfoRequestException("Unexpected status code: " + response.getStatusCode());
+        }
+
+        return response.getResponseBody(UTF_8);
+    }
+
+    private Map<String, PublicKey> parseKeys(final String json) throws IOException {
+        final Payload payload = parse(json, Payload.class);
+        if (payload == null || payload.keys == null) {
+            throw new IOException("No keys in JSON Web Key Set");
+        }
+
+        final ImmutableMap.Builder<String, PublicKey> keys = ImmutableMap.builder();
+        for (final Key key : payload.keys) {
+            if (key.use != null && !"sig".equals(key.use)) {
+                continue;
+            }
+
+            try {
+                final Optional<PublicKey> publicKey = toPublicKey(key);
+                if (publicKey.isPresent()) {
+                    keys.put(key.kid == null ? "" : key.kid, publicKey.get());
+                } else {
+                    LOG.debug("Ignoring JSON Web Key [{}] of unsupported type [{}]", key.kid, key.kty);
+                }
+            } catch (final GeneralSecurityException | IllegalArgumentException | NullPointerException e) {
+                LOG.warn("Ignoring invalid JSON Web Key [{}]: [{}]", key.kid, e.getMessage());
+            }
+        }
+
+        final Map<String, PublicKey> result = keys.build();
+        lastKnownKeys.set(result);
+        LOG.info("Loaded JSON Web Keys {}", result.keySet());
+        return result;
+    }
+
+    private static Optional<PublicKey> toPublicKey(final Key key) throws GeneralSecurityException {
+        if ("RSA".equals(key.kty)) {
+            return Optional.of(KeyFactory.getInstance("RSA").generatePublic(
+                        new RSAPublicKeySpec(toBigInteger(key.n), toBigInteger(key.e))));
+        }
+
+        if ("EC".equals(key.kty) && EC_CURVES.containsKey(key.crv)) {
+            final AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(EC_CURVES.get(key.crv)));
+
+            final ECPoint point = new ECPoint(toBigInteger(key.x), toBigInteger(key.y));
+            return Optional.of(KeyFactory.getInstance("EC").generatePublic(
+                        new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class))));
+        }
+
+        return Optional.empty();
+    }
+
+    private static BigInteger toBigInteger(final String base64Url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(requireNonNull(base64Url)));
+    }
+
+    private final class KeySet {
+        final Instant loadedAt;
+        final Single<Map<String, PublicKey>> keys;
+
+        KeySet(final Instant loadedAt) {
+            this.loadedAt = loadedAt;
+
+            // Forget failed loads, so that the next request retries.
+            this.keys = load().doOnError(e -> keySet.compareAndSet(this, null)).cache();
+        }
+
+        boolean isOlderThan(final Duration duration) {
+            return loadedAt.plus(duration).isBefore(clock.instant());
+        }
+    }
+
+    private static final class Payload {
+        List<Key> keys;
+    }
+
+    private static final class Key {
+        String kty;
+        String kid;
+        String use;
+        String n;
+        String e;
+        String crv;
+        String x;
+        String y;
+    }
+}
@@ -0,0 +1,50 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.util.Objects.requireNonNull;
+
+import static org.zalando.undertaking.oauth2.TokenInfoRequestProvider.injectBusinessPartnerId;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.zalando.undertaking.inject.Request;
+
+import io.reactivex.Single;
+
+import io.undertow.util.HeaderMap;
+
+/**
+ * Provides authentication info by validating self-contained JSON Web Tokens locally, without calling any token info
+ * endpoint. Tokens must be signed by one of the keys of the JSON Web Key Set configured via {@link JwtSettings}.
+ *
+ * <p>Can be used in place of the default token info based provider, either via
+ * {@link AuthenticationInfoModule#AuthenticationInfoModule(Class)} or as part of an
+ * {@link AuthenticationInfoProviderChain}. Tokens that aren't JWTs or fail validation are rejected with a
+ * {@link BadTokenInfoException}, which lets a chain fall back to the next provider.</p>
+ */
+public final class JwtAuthenticationInfoProvider implements Provider<Single<AuthenticationInfo>> {
+
+    private final Provider<Single<AccessToken>> accessTokenProvider;
+    private final Provider<HeaderMap> requestHeadersProvider;
+    private final AuthenticationInfoSettings settings;
+    private final JwtValidator validator;
+
+    @Inject
+    JwtAuthenticationInfoProvider(@Request final Provider<Single<AccessToken>> accessTokenProvider,
+            @Request final Provider<HeaderMap> requestHeadersProvider, final AuthenticationInfoSettings settings,
+            final JwtValidator validator) {
+        this.accessTokenProvider = requireNonNull(accessTokenProvider);
+        this.requestHeadersProvider = requireNonNull(requestHeadersProvider);
+        this.settings = requireNonNull(settings);
+        this.validator = requireNonNull(validator);
+    }
+
+    @Override
+    public Single<AuthenticationInfo> get() {
+        final HeaderMap requestHeaders = requestHeadersProvider.get();
+        final String overrideHeader = settings.getBusinessPartnerIdOverrideHeader();
+
+        return accessTokenProvider.get().flatMap(validator::validate).map(authInfo ->
+                    injectBusinessPartnerId(authInfo, overrideHeader, requestHeaders)).cache();
+    }
+}
@@ -0,0 +1,66 @@
+package org.zalando.undertaking.oauth2;
+
+import java.net.URI;
+
+import java.time.Duration;
+
+/**
+ * Provides configuration settings to validate JSON Web Tokens locally.
+ *
+ * @see  JwtAuthenticationInfoProvider
+ */
+public interface JwtSettings {
+
+    /**
+     * Location of the JSON Web Key Set containing the keys to verify token signatures with. Supports {@code file:} as
+     * well as {@code http:} and {@code https:} URIs.
+     */
+    URI getJwksLocation();
+
+    /**
+     * Interval in which the JSON Web Key Set is reloaded. Tokens signed by an unknown key trigger an early reload, but
+     * not more often than once per {@linkplain #getClockSkew() clock skew} interval.
+     */
+    default Duration getJwksRefreshInterval() {
+        return Duration.ofMinutes(10);
+    }
+
+    /**
+     * Expected value of the {@code iss} claim.
+     *
+     * @return  the required issuer, or {@code null} if the issuer shall not be verified
+     */
+    default String getIssuer() {
+        return null;
+    }
+
+    /**
+     * Name of the claim that is mapped to {@link AuthenticationInfo#getUid()}.
+     */
+    default String getUidClaim() {
+        return "sub";
+    }
+
+    /**
+     * Name of the claim that is mapped to {@link AuthenticationInfo#getScopes()}. The claim may either be a space
+     * delimited string or an array of strings.
+     */
+    default String getScopesClaim() {
+        return "scope";
+    }
+
+    /**
+     * Tolerated deviation between the local clock and the clock of the token issuer when checking the {@code exp} and
+     * {@code nbf} claims.
+     */
+    default Duration getClockSkew() {
+        return Duration.ofSeconds(30);
+    }
+
+    /**
+     * Maximum number of verified tokens to be cached. Cached tokens are not verified again until they expire.
+     */
+    default long getVerifiedTokensCacheMaximumSize() {
+        return 10_000L;
+    }
+}
@@ -0,0 +1,259 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+
+import java.math.BigInteger;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import io.reactivex.Single;
+
+/**
+ * Validates signed JSON Web Tokens locally, using the keys provided by a {@link JsonWebKeySetProvider}. Only asymmetric
+ * signature algorithms are accepted. Successfully verified tokens are cached until they expire, but at most for the
+ * {@linkplain JwtSettings#getJwksRefreshInterval() key set refresh interval}.
+ */
+@Singleton
+class JwtValidator {
+
+    private static final Splitter DOT = Splitter.on('.');
+    private static final Splitter SPACE = Splitter.on(' ').omitEmptyStrings();
+
+    private static final Map<String, String> ALGORITHMS =
+        ImmutableMap.<String, String>builder()       //
+                    .put("RS256", "SHA256withRSA")   //
+                    .put("RS384", "SHA384withRSA")   //
+                    .put("RS512", "SHA512withRSA")   //
+                    .put("ES256", "SHA256withECDSA") //
+                    .put("ES384", "SHA384withECDSA") //
+                    .put("ES512", "SHA512withECDSA") //
+                    .build();
+
+    private final JwtSettings settings;
+    private final JsonWebKeySetProvider keySetProvider;
+    private final Clock clock;
+    private final TokenInfoCache cache;
+
+    @Inject
+    JwtValidator(final JwtSettings settings, final JsonWebKeySetProvider keySetProvider, final Clock clock) {
+        this.settings = requireNonNull(settings);
+        this.keySetProvider = requireNonNull(keySetProvider);
+        this.clock = requireNonNull(clock);
+        this.cache = TokenInfoCache.builder()                                               //
+                                   .ttl(settings.getJwksRefreshInterval())                  //
+                                   .maximumSize(settings.getVerifiedTokensCacheMaximumSize()) //
+                                   .build();
+    }
+
+    /**
+     * Validates the given access token.
+     *
+     * @return  a {@code Single} that emits the {@code AuthenticationInfo} derived from the token's claims, or a
+     *          {@link BadTokenInfoException} if the token is not a valid JWT
+     */
+    Single<AuthenticationInfo> validate(final AccessToken accessToken) {
+        return cache.lookup(accessToken, Single.defer(() -> verify(accessToken.getValue())));
+    }
+
+    private Single<TokenInfo> verify(final String token) {
+        final Jwt jwt = Jwt.parse(token);
+        return keySetProvider.getKey(jwt.keyId).map(key -> {
+                    verifySignature(jwt, key.orElseThrow(() -> invalidToken("Unknown signing key.")));
+                    return toTokenInfo(jwt.claims);
+                });
+    }
+
+    private static void verifySignature(final Jwt jwt, final PublicKey key) throws GeneralSecurityException {
+        final boolean ecdsa = jwt.algorithm.startsWith("ES");
+        if (ecdsa ? !(key instanceof ECPublicKey) : !(key instanceof RSAPublicKey)) {
+            throw invalidToken("Signing key doesn't match the signature algorithm.");
+        }
+
+        final Signature signature = Signature.getInstance(ALGORITHMS.get(jwt.algorithm));
+        signature.initVerify(key);
+        signature.update(jwt.signingInput);
+
+        final byte[] signatureBytes = ecdsa ? toDer(jwt.signature) : jwt.signature;
+        try {
+            if (signatureBytes != null && signature.verify(signatureBytes)) {
+                return;
+            }
+        } catch (final SignatureException e) {
+            // malformed signature, handled below
+        }
+
+        throw invalidToken("Invalid signature.");
+    }
+
+    private TokenInfo toTokenInfo(final JsonObject claims) {
+        final Instant now = clock.instant();
+        final Duration skew = settings.getClockSkew();
+
+        final Instant expiry = getInstant(claims, "exp").orElseThrow(() -> invalidToken("Missing expiry."));
+        if (!now.isBefore(expiry.plus(skew))) {
+            throw invalidToken("Access Token expired");
+        }
+
+        final Optional<Instant> notBefore = getInstant(claims, "nbf");
+        if (notBefore.isPresent() && now.plus(skew).isBefore(notBefore.get())) {
+            throw invalidToken("Access Token not yet valid");
+        }
+
+        final String issuer = settings.getIssuer();
+        if (issuer != null && !issuer.equals(getString(claims, "iss").orElse(null))) {
+            throw invalidToken("Unexpected issuer.");
+        }
+
+        final AuthenticationInfo authInfo =
+            AuthenticationInfo.builder()                                                   //
+                              .uid(getString(claims, settings.getUidClaim()).orElse(null)) //
+                              .scopes(getScopes(claims.get(settings.getScopesClaim())))    //
+                              .build();
+
+        return new TokenInfo(authInfo, Optional.of(Duration.between(now, expiry)));
+    }
+
+    private static Optional<Instant> getInstant(final JsonObject claims, final String name) {
+        final JsonElement element = claims.get(name);
+        try {
+            return element == null || element.isJsonNull() ? Optional.empty()
+                                                            : Optional.of(Instant.ofEpochSecond(element.getAsLong()));
+        } catch (final ClassCastException | IllegalStateException | NumberFormatException e) {
+            throw invalidToken("Malformed claim: " + name);
+        }
+    }
+
+    private static Optional<String> getString(final JsonObject claims, final String name) {
+        final JsonElement element = claims.get(name);
+        return element != null && element.isJsonPrimitive() ? Optional.of(element.getAsString()) : Optional.empty();
+    }
+
+    private static ImmutableSet<String> getScopes(final JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return ImmutableSet.of();
+        }
+
+        try {
+            if (element.isJsonArray()) {
+                final ImmutableSet.Builder<String> scopes = ImmutableSet.builder();
+                element.getAsJsonArray().forEach(scope -> scopes.add(scope.getAsString()));
+                return scopes.build();
+            }
+
+            return ImmutableSet.copyOf(SPACE.split(element.getAsString()));
+        } catch (final IllegalStateException | UnsupportedOperationException e) {
+            throw invalidToken("Malformed scopes claim.");
+        }
+    }
+
+    /**
+     * Converts a JWS ECDSA signature, which is the concatenation of the unsigned values {@code R} and {@code S}, into
+     * the ASN.1 DER sequence expected by the JCA.
+     */
+    private static byte[] toDer(final byte[] signature) {
+        if (signature.length == 0 || signature.length % 2 != 0) {
+            return null;
+        }
+
+        final int half = signature.length / 2;
+        final byte[] r = new BigInteger(1, Arrays.copyOfRange(signature, 0, half)).toByteArray();
+        final byte[] s = new BigInteger(1, Arrays.copyOfRange(signature, half, signature.length)).toByteArray();
+
+        final ByteArrayOutputStream der = new ByteArrayOutputStream(signature.length + 9);
+        der.write(0x30);
+        writeLength(der, r.length + s.length + 4);
+        der.write(0x02);
+        writeLength(der, r.length);
+        der.write(r, 0, r.length);
+        der.write(0x02);
+        writeLength(der, s.length);
+        der.write(s, 0, s.length);
+        return der.toByteArray();
+    }
+
+    private static void writeLength(final ByteArrayOutputStream out, final int length) {
+        if (length > 0x7f) {
+            out.write(0x81);
+        }
+
+        out.write(length);
+    }
+
+    private static BadTokenInfoException invalidToken(final String description) {
+        return new BadTokenInfoException("invalid_token", description);
+    }
+
+    private static final class Jwt {
+        final String algorithm;
+        final String keyId;
+        final JsonObject claims;
+        final byte[] signingInput;
+        final byte[] signature;
+
+        private Jwt(final String algorithm, final String keyId, final JsonObject claims, final byte[] signingInput,
+                final byte[] signature) {
+            this.algorithm = algorithm;
+            this.keyId = keyId;
+            this.claims = claims;
+            this.signingInput = signingInput;
+            this.signature = signature;
+        }
+
+        static Jwt parse(final String token) {
+            final List<String> parts = token == null ? null : DOT.splitToList(token);
+            if (parts == null || parts.size() != 3) {
+                throw invalidToken("Access Token is not a signed JWT.");
+            }
+
+            try {
+                final JsonObject header = decodeJson(parts.get(0));
+                final String algorithm = getString(header, "alg").orElse(null);
+                if (!ALGORITHMS.containsKey(algorithm)) {
+                    throw invalidToken("Unsupported signature algorithm.");
+                }
+
+                final byte[] signingInput = token.substring(0, token.lastIndexOf('.')).getBytes(US_ASCII);
+                return new Jwt(algorithm, getString(header, "kid").orElse(null), decodeJson(parts.get(1)),
+                        signingInput, Base64.getUrlDecoder().decode(parts.get(2)));
+            } catch (final IllegalArgumentException | IllegalStateException | JsonParseException e) {
+                throw invalidToken("Access Token is not a signed JWT.");
+            }
+        }
+
+        private static JsonObject decodeJson(final String part) {
+            return new JsonParser().parse(new String(Base64.getUrlDecoder().decode(part), UTF_8)).getAsJsonObject();
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package org.zalando.undertaking.oauth2;
 
+import java.io.EOFException;
+import java.io.IOException;
+
 import org.asynchttpclient.AsyncHttpClient;
 
+import org.zalando.undertaking.ahc.ResponseBody;
 import org.zalando.undertaking.request.RequestProvider;
 
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 class OAuth2RequestProvider extends RequestProvider {
 
@@ -14,6 +23,36 @@ class OAuth2RequestProvider extends RequestProvider {
     static final class ErrorPayload {
         protected String error;
         protected String errorDescription;
+
+        static final TypeAdapter<ErrorPayload> ADAPTER = new PayloadAdapter<ErrorPayload>() {
+            @Override
+            ErrorPayload create() {
+                return new ErrorPayload();
+            }
+
+            @Override
+            void readField(final JsonReader in, final String name, final ErrorPayload payload) throws IOException {
+                switch (name) {
+
+                    case "error" :
+                        payload.error = nextString(in);
+                        break;
+
+                    case "error_description" :
+                        payload.errorDescription = nextString(in);
+                        break;
+
+                    default :
+                        in.skipValue();
+                }
+            }
+
+            @Override
+            void writeFields(final JsonWriter out, final ErrorPayload payload) throws IOException {
+                out.name("error").value(payload.error);
+                out.name("error_description").value(payload.errorDescription);
+            }
+        };
     }
 
     public OAuth2RequestProvider(final AsyncHttpClient client) {
@@ -27,4 +66,93 @@ class OAuth2RequestProvider extends RequestProvider {
             throw new AccessTokenRequestException("Failed to parse JSON payload", e);
         }
     }
+
+    /**
+     * Parses a JSON payload straight from the response body, without binding it reflectively.
+     *
+     * @return  the parsed payload, or {@code null} if the body is absent or empty
+     */
+    protected <T> T parse(final ResponseBody body, final TypeAdapter<T> adapter) {
+        if (body == null) {
+            return null;
+        }
+
+        try(final JsonReader in = new JsonReader(body.openUtf8Reader())) {
+            in.setLenient(true);
+            try {
+                in.peek();
+            } catch (final EOFException e) {
+                return null;
+            }
+
+            return adapter.read(in);
+        } catch (final IOException | IllegalStateException | NumberFormatException e) {
+            throw new AccessTokenRequestException("Failed to parse JSON payload", e);
+        }
+    }
+
+    /**
+     * Base class for hand-written adapters of flat JSON objects.
+     */
+    abstract static class PayloadAdapter<T> extends TypeAdapter<T> {
+
+        abstract T create();
+
+        /**
+         * Reads the value of the field {@code name}. Unknown fields have to be skipped.
+         */
+        abstract void readField(JsonReader in, String name, T payload) throws IOException;
+
+        /**
+         * Writes the names and values of all fields of {@code payload}.
+         */
+        abstract void writeFields(JsonWriter out, T payload) throws IOException;
+
+        @Override
+        public final T read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            final T payload = create();
+            in.beginObject();
+            while (in.hasNext()) {
+                readField(in, in.nextName(), payload);
+            }
+
+            in.endObject();
+            return payload;
+        }
+
+        @Override
+        public final void write(final JsonWriter out, final T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            writeFields(out, value);
+            out.endObject();
+        }
+
+        static String nextString(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            return in.nextString();
+        }
+
+        static Long nextLong(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            return in.nextLong();
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package org.zalando.undertaking.oauth2;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * An {@code AuthenticationInfoPredicate} that requires certain scopes. The required scopes are compiled into a
+ * {@link ScopeSet} upfront, so that testing an {@code AuthenticationInfo} boils down to a bitmask check, and the error
+ * description is computed only once.
+ */
+public final class ScopePredicate implements AuthenticationInfoPredicate {
+
+    private final ScopeSet scopes;
+    private final boolean requireAll;
+    private final Optional<String> errorDescription;
+
+    private ScopePredicate(final ScopeSet scopes, final boolean requireAll) {
+        this.scopes = scopes;
+        this.requireAll = requireAll;
+        this.errorDescription = Optional.of(String.format("The request requires %s of the scopes %s.",
+                    requireAll ? "all" : "one", String.join(", ", scopes)));
+    }
+
+    /**
+     * Creates a predicate that matches if all of the given scopes have been granted.
+     */
+    public static ScopePredicate requireAll(final String... scopes) {
+        return requireAll(Arrays.asList(scopes));
+    }
+
+    /**
+     * Creates a predicate that matches if all of the given scopes have been granted.
+     */
+    public static ScopePredicate requireAll(final Collection<String> scopes) {
+        return new ScopePredicate(ScopeSet.of(scopes), true);
+    }
+
+    /**
+     * Creates a predicate that matches if at least one of the given scopes has been granted.
+     *
+     * @throws  IllegalArgumentException  if no scopes are given
+     */
+    public static ScopePredicate requireAny(final String... scopes) {
+        return requireAny(Arrays.asList(scopes));
+    }
+
+    /**
+     * Creates a predicate that matches if at least one of the given scopes has been granted.
+     *
+     * @throws  IllegalArgumentException  if no scopes are given
+     */
+    public static ScopePredicate requireAny(final Collection<String> scopes) {
+        if (scopes.isEmpty()) {
+            throw new IllegalArgumentException("At least one scope is required");
+        }
+
+        return new ScopePredicate(ScopeSet.of(scopes), false);
+    }
+
+    @Override
+    public boolean test(final AuthenticationInfo authInfo) {
+        final ScopeSet granted = authInfo.getScopeSet();
+        return requireAll ? granted.containsAll(scopes) : granted.intersects(scopes);
+    }
+
+    @Override
+    public Optional<String> getErrorDescription(final AuthenticationInfo authInfo) {
+        return errorDescription;
+    }
+
+    @Override
+    public String toString() {
+        return (requireAll ? "requireAll" : "requireAny") + scopes;
+    }
+}
@@ -0,0 +1,241 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * An immutable set of OAuth2 scopes, stored as a bitset over a process-wide scope dictionary.
+ *
+ * <p>Every distinct scope name is assigned a dense index the first time it is seen. Scope sets are interned, so that
+ * tokens carrying identical scopes share a single instance, and checking a set against another one, such as a
+ * {@link ScopePredicate}, is a matter of comparing a few machine words. Since scopes are issued by a trusted
+ * authorization server, the dictionary is not bounded.</p>
+ */
+public final class ScopeSet extends AbstractSet<String> {
+
+    private static final long[] NO_WORDS = new long[0];
+    private static final Interner<ScopeSet> INTERNER = Interners.newWeakInterner();
+    private static final ScopeSet EMPTY = INTERNER.intern(new ScopeSet(NO_WORDS));
+
+    private final long[] words;
+    private final int size;
+    private final int hashCode;
+
+    private ScopeSet(final long[] words) {
+        this.words = words;
+
+        int size = 0;
+        int hashCode = 0;
+        for (int index = nextIndex(0); index >= 0; index = nextIndex(index + 1)) {
+            size++;
+            hashCode += Dictionary.nameOf(index).hashCode();
+        }
+
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * @return  the empty scope set
+     */
+    public static ScopeSet of() {
+        return EMPTY;
+    }
+
+    /**
+     * @return  the interned scope set containing the given scopes
+     */
+    public static ScopeSet of(final String... scopes) {
+        return of(Arrays.asList(scopes));
+    }
+
+    /**
+     * @return  the interned scope set containing the given scopes
+     */
+    public static ScopeSet of(final Collection<String> scopes) {
+        if (scopes instanceof ScopeSet) {
+            return (ScopeSet) scopes;
+        }
+
+        if (scopes.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[] words = NO_WORDS;
+        for (final String scope : scopes) {
+            final int index = Dictionary.indexOf(requireNonNull(scope));
+            final int word = index >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, word + 1);
+            }
+
+            words[word] |= 1L << index;
+        }
+
+        return INTERNER.intern(new ScopeSet(words));
+    }
+
+    /**
+     * Checks whether this set contains all scopes of {@code other}.
+     */
+    public boolean containsAll(final ScopeSet other) {
+        if (other.words.length > words.length) {
+            for (int i = words.length; i < other.words.length; i++) {
+                if (other.words[i] != 0) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = Math.min(words.length, other.words.length) - 1; i >= 0; i--) {
+            if ((words[i] & other.words[i]) != other.words[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether this set contains at least one scope of {@code other}.
+     */
+    public boolean intersects(final ScopeSet other) {
+        for (int i = Math.min(words.length, other.words.length) - 1; i >= 0; i--) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        return c instanceof ScopeSet ? containsAll((ScopeSet) c) : super.containsAll(c);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        final int index = o instanceof String ? Dictionary.lookup((String) o) : -1;
+        return index >= 0 && (index >>> 6) < words.length && (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = nextIndex(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                final String scope = Dictionary.nameOf(next);
+                next = nextIndex(next + 1);
+                return scope;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (o instanceof ScopeSet) {
+            final ScopeSet other = (ScopeSet) o;
+            return size == other.size && hashCode == other.hashCode && containsAll(other) && other.containsAll(this);
+        }
+
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private int nextIndex(final int fromIndex) {
+        int word = fromIndex >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+
+        long bits = words[word] & (-1L << fromIndex);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+
+            if (++word == words.length) {
+                return -1;
+            }
+
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Assigns dense indexes to scope names. Indexes are never reused.
+     */
+    private static final class Dictionary {
+        private static final ConcurrentMap<String, Integer> INDEXES = new ConcurrentHashMap<>();
+        private static volatile String[] names = new String[64];
+        private static int count;
+
+        static int lookup(final String scope) {
+            final Integer index = INDEXES.get(scope);
+            return index == null ? -1 : index;
+        }
+
+        static int indexOf(final String scope) {
+            final Integer index = INDEXES.get(scope);
+            return index != null ? index : register(scope);
+        }
+
+        static String nameOf(final int index) {
+            return names[index];
+        }
+
+        private static synchronized int register(final String scope) {
+            final Integer existing = INDEXES.get(scope);
+            if (existing != null) {
+                return existing;
+            }
+
+            final int index = count++;
+            if (index == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+
+            // Publish the name before the index, so that readers finding the index always see the name.
+            final String[] current = names;
+            current[index] = scope;
+            names = current;
+            INDEXES.put(scope, index);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Outcome of a successful token info request: the {@code AuthenticationInfo} derived from the access token alone, along
+ * with the remaining lifetime of the token, if reported by the token info endpoint.
+ */
+final class TokenInfo {
+
+    private final AuthenticationInfo authenticationInfo;
+    private final Optional<Duration> expiresIn;
+
+    TokenInfo(final AuthenticationInfo authenticationInfo, final Optional<Duration> expiresIn) {
+        this.authenticationInfo = requireNonNull(authenticationInfo);
+        this.expiresIn = requireNonNull(expiresIn);
+    }
+
+    AuthenticationInfo getAuthenticationInfo() {
+        return authenticationInfo;
+    }
+
+    Optional<Duration> getExpiresIn() {
+        return expiresIn;
+    }
+
+    @Override
+    public String toString() {
+        return
+            MoreObjects.toStringHelper(this)                     //
+                       .omitNullValues()                         //
+                       .add("authInfo", authenticationInfo)      //
+                       .add("expiresIn", expiresIn.orElse(null)) //
+                       .toString();
+    }
+}
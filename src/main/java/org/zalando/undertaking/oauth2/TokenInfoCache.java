@@ -0,0 +1,463 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.zalando.undertaking.rx.SharedSingle;
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+
+import io.reactivex.Single;
+
+/**
+ * Process-wide cache for the outcome of token info requests, shared across HTTP exchanges.
+ *
+ * <p>Entries are keyed by a SHA-256 hash of the access token value, so raw tokens are never retained. An entry is kept
+ * for at most {@link AuthenticationInfoSettings#getTokenInfoCacheTtl()}, but never longer than the access token is
+ * valid according to the token info endpoint. If the cache grows beyond
+ * {@link AuthenticationInfoSettings#getTokenInfoCacheMaximumSize()}, the least recently used entries are evicted.</p>
+ *
+ * <p>Concurrent lookups for the same access token are coalesced, regardless of whether caching is enabled: the first
+ * lookup issues the token info request, while later ones subscribe to its pending outcome until it completes. A
+ * pending request is cancelled as soon as all lookups waiting for it have been disposed, unless it revalidates an
+ * entry in the background.</p>
+ *
+ * <p>Optionally, tokens rejected by the token info endpoint with a {@link BadTokenInfoException} are remembered for
+ * {@link AuthenticationInfoSettings#getRejectedTokenCacheTtl()}, so that repeated requests with the same invalid token
+ * are rejected without any outgoing request. Rejections are kept in a separate cache with its own size bound.</p>
+ *
+ * <p>Entries older than {@link AuthenticationInfoSettings#getTokenInfoCacheRefreshAfter()} are revalidated in the
+ * background while the cached value is still served. Once an entry expired, it is kept for another
+ * {@link AuthenticationInfoSettings#getTokenInfoCacheGracePeriod()}: if the token info endpoint is unavailable during
+ * that time, i.e. its circuit breaker is open or the request times out, the expired value is served instead of failing.
+ * Lookups wait for such a revalidation for at most
+ * {@link AuthenticationInfoSettings#getTokenInfoCacheRevalidationTimeout()} before serving the expired value, while the
+ * revalidation continues in the background.
+ * Entries are never served beyond the expiry of their access token, and an entry is dropped as soon as revalidation
+ * rejects its token.</p>
+ *
+ * <p>Hit, miss and eviction counts are available via {@link #stats()} and {@link #rejectionStats()} and can be
+ * published using {@link org.zalando.undertaking.metrics.CacheDropwizardMetrics}.</p>
+ */
+@Singleton
+public class TokenInfoCache {
+
+    private final Ticker ticker;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final long graceNanos;
+    private final long revalidationTimeoutNanos;
+    private final TimeoutScheduler timeouts;
+    private final LongAdder graceHits = new LongAdder();
+    private final Cache<HashCode, Entry> cache;
+    private final boolean rejectionsEnabled;
+    private final Cache<HashCode, BadTokenInfoException> rejections;
+    private final ConcurrentMap<HashCode, Lookup> inFlight = new ConcurrentHashMap<>();
+
+    @Inject
+    public TokenInfoCache(final AuthenticationInfoSettings settings) {
+        this(builder().ttl(settings.getTokenInfoCacheTtl())                                 //
+                      .maximumSize(settings.getTokenInfoCacheMaximumSize())                 //
+                      .refreshAfter(settings.getTokenInfoCacheRefreshAfter())               //
+                      .gracePeriod(settings.getTokenInfoCacheGracePeriod())                 //
+                      .revalidationTimeout(settings.getTokenInfoCacheRevalidationTimeout()) //
+                      .rejectionTtl(settings.getRejectedTokenCacheTtl())                    //
+                      .rejectionMaximumSize(settings.getRejectedTokenCacheMaximumSize()));
+    }
+
+    private TokenInfoCache(final Builder builder) {
+        ticker = builder.ticker;
+        ttlNanos = toNanos(builder.ttl);
+        refreshAfterNanos = toNanos(builder.refreshAfter);
+        graceNanos = toNanos(builder.gracePeriod);
+        revalidationTimeoutNanos = toNanos(builder.revalidationTimeout);
+        timeouts = builder.timeouts;
+        cache = newCache(ttlNanos + graceNanos, builder.maximumSize, ticker);
+
+        final long rejectionTtlNanos = toNanos(builder.rejectionTtl);
+        rejectionsEnabled = rejectionTtlNanos > 0;
+        rejections = newCache(rejectionTtlNanos, builder.rejectionMaximumSize, ticker);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static long toNanos(final Duration duration) {
+        return duration == null || duration.isNegative() ? 0L : duration.toNanos();
+    }
+
+    private static <V> Cache<HashCode, V> newCache(final long ttlNanos, final long maximumSize, final Ticker ticker) {
+        return
+            CacheBuilder.newBuilder()                                                   //
+                        .maximumSize(maximumSize)                                       //
+                        .expireAfterWrite(Math.max(ttlNanos, 1L), TimeUnit.NANOSECONDS) //
+                        .ticker(ticker)                                                 //
+                        .recordStats()                                                  //
+                        .build();
+    }
+
+    /**
+     * Computes the key under which token info for the given access token is cached.
+     *
+     * @throws  IllegalArgumentException  if {@code accessToken} has no value
+     */
+    static HashCode fingerprint(final AccessToken accessToken) {
+        final String value = accessToken.getValue();
+        if (value == null) {
+            throw new IllegalArgumentException("Cannot fingerprint an access token without value");
+        }
+
+        return Hashing.sha256().hashString(value, UTF_8);
+    }
+
+    /**
+     * @return  {@code true} if token info is actually cached, {@code false} if caching has been disabled
+     */
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+    /**
+     * Looks up the cached {@code AuthenticationInfo} for the given access token without triggering any token info
+     * requests.
+     *
+     * @return  the cached {@code AuthenticationInfo}, or an empty {@code Optional} if nothing valid is cached
+     */
+    public Optional<AuthenticationInfo> getIfPresent(final AccessToken accessToken) {
+        if (!isEnabled() || accessToken.getValue() == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(getValidEntry(fingerprint(accessToken))).map(entry -> entry.authenticationInfo);
+    }
+
+    /**
+     * Looks up whether the given access token has recently been rejected by the token info endpoint.
+     *
+     * @return  the cached rejection, or an empty {@code Optional} if the token hasn't been rejected recently
+     */
+    public Optional<BadTokenInfoException> getRejection(final AccessToken accessToken) {
+        if (!rejectionsEnabled || accessToken.getValue() == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(rejections.getIfPresent(fingerprint(accessToken)));
+    }
+
+    /**
+     * Drops all cached entries, including cached rejections.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        rejections.invalidateAll();
+    }
+
+    /**
+     * @return  a snapshot of the hit, miss and eviction counts of this cache
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return  a snapshot of the hit, miss and eviction counts of the rejected tokens cache
+     */
+    public CacheStats rejectionStats() {
+        return rejections.stats();
+    }
+
+    /**
+     * @return  the number of lookups that have been answered with expired token info because the token info endpoint
+     *          was unavailable
+     */
+    public long graceHitCount() {
+        return graceHits.sum();
+    }
+
+    /**
+     * @return  the approximate number of entries in this cache
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns a {@code Single} that emits the cached {@code AuthenticationInfo} for the given access token. If nothing
+     * valid is cached, joins a pending lookup for the same token or subscribes to {@code loader} and caches its
+     * outcome.
+     */
+    Single<AuthenticationInfo> lookup(final AccessToken accessToken, final Single<TokenInfo> loader) {
+        if (accessToken.getValue() == null) {
+            return loader.map(TokenInfo::getAuthenticationInfo);
+        }
+
+        final HashCode key = fingerprint(accessToken);
+        return Single.defer(() -> {
+                if (rejectionsEnabled) {
+                    final BadTokenInfoException rejection = rejections.getIfPresent(key);
+                    if (rejection != null) {
+                        return Single.error(rejection);
+                    }
+                }
+
+                if (isEnabled()) {
+                    final Entry entry = cache.getIfPresent(key);
+                    if (entry != null) {
+                        final long now = ticker.read();
+                        if (now - entry.expiresAtNanos < 0) {
+                            if (now - entry.refreshAtNanos >= 0) {
+
+                                // Revalidate in the background, the outcome is picked up via the cache.
+                                coalesce(key, loader).subscribe(tokenInfo -> { }, e -> { });
+                            }
+
+                            return Single.just(entry.authenticationInfo);
+                        }
+
+                        if (now - entry.graceUntilNanos < 0) {
+                            return revalidate(key, loader).map(TokenInfo::getAuthenticationInfo).onErrorResumeNext(e ->
+                                        serveExpired(entry, e));
+                        }
+
+                        cache.invalidate(key);
+                    }
+                }
+
+                return coalesce(key, loader).map(TokenInfo::getAuthenticationInfo);
+            });
+    }
+
+    /**
+     * Revalidates an expired entry, waiting at most for the revalidation timeout. The revalidation itself continues in
+     * the background, so that its outcome is picked up via the cache.
+     */
+    private Single<TokenInfo> revalidate(final HashCode key, final Single<TokenInfo> loader) {
+        final Single<TokenInfo> revalidation = coalesce(key, loader);
+        if (revalidationTimeoutNanos <= 0) {
+            return revalidation;
+        }
+
+        revalidation.subscribe(tokenInfo -> { }, e -> { });
+        return revalidation.lift(timeouts.timeout(revalidationTimeoutNanos, TimeUnit.NANOSECONDS));
+    }
+
+    private Single<AuthenticationInfo> serveExpired(final Entry entry, final Throwable e) {
+        if (!(e instanceof CircuitBreakerOpenException || e instanceof TimeoutException)
+                || ticker.read() - entry.graceUntilNanos >= 0) {
+            return Single.error(e);
+        }
+
+        graceHits.increment();
+        return Single.just(entry.authenticationInfo);
+    }
+
+    /**
+     * @return  the number of token info requests currently pending
+     */
+    int getPendingLookups() {
+        return inFlight.size();
+    }
+
+    private Single<TokenInfo> coalesce(final HashCode key, final Single<TokenInfo> loader) {
+        final Lookup lookup = new Lookup(key, loader);
+        final Lookup existing = inFlight.putIfAbsent(key, lookup);
+        return existing != null ? existing.pending : lookup.pending;
+    }
+
+    private Entry getValidEntry(final HashCode key) {
+        final Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+
+        final long now = ticker.read();
+        if (now - entry.expiresAtNanos < 0) {
+            return entry;
+        }
+
+        if (now - entry.graceUntilNanos >= 0) {
+
+            // The token itself expired before the entry's TTL did.
+            cache.invalidate(key);
+        }
+
+        return null;
+    }
+
+    private void put(final HashCode key, final TokenInfo tokenInfo) {
+        final long tokenLifetimeNanos = tokenInfo.getExpiresIn().map(Duration::toNanos).orElse(Long.MAX_VALUE);
+        final long lifetimeNanos = Math.min(tokenLifetimeNanos, ttlNanos);
+        if (lifetimeNanos <= 0) {
+            return;
+        }
+
+        final long refreshAfter = refreshAfterNanos > 0 ? Math.min(refreshAfterNanos, lifetimeNanos) : lifetimeNanos;
+        final long graceLifetimeNanos = Math.min(tokenLifetimeNanos, lifetimeNanos + graceNanos);
+
+        final long now = ticker.read();
+        cache.put(key,
+            new Entry(tokenInfo.getAuthenticationInfo(), now + refreshAfter, now + lifetimeNanos,
+                now + graceLifetimeNanos));
+    }
+
+    /**
+     * A pending token info request, shared by all lookups for the same access token.
+     */
+    private final class Lookup {
+        final HashCode key;
+        final Single<TokenInfo> pending;
+
+        Lookup(final HashCode key, final Single<TokenInfo> loader) {
+            this.key = key;
+            this.pending = new SharedSingle<>(
+                    loader.doOnSuccess(this::loaded)   //
+                          .doOnError(this::failed)     //
+                          .doOnDispose(this::done));
+        }
+
+        private void loaded(final TokenInfo tokenInfo) {
+            if (isEnabled()) {
+                put(key, tokenInfo);
+            }
+
+            done();
+        }
+
+        private void failed(final Throwable e) {
+            if (e instanceof BadTokenInfoException) {
+                cache.invalidate(key);
+                if (rejectionsEnabled) {
+                    rejections.put(key, (BadTokenInfoException) e);
+                }
+            }
+
+            done();
+        }
+
+        private void done() {
+            inFlight.remove(key, this);
+        }
+    }
+
+    private static final class Entry {
+        final AuthenticationInfo authenticationInfo;
+        final long refreshAtNanos;
+        final long expiresAtNanos;
+        final long graceUntilNanos;
+
+        Entry(final AuthenticationInfo authenticationInfo, final long refreshAtNanos, final long expiresAtNanos,
+                final long graceUntilNanos) {
+            this.authenticationInfo = authenticationInfo;
+            this.refreshAtNanos = refreshAtNanos;
+            this.expiresAtNanos = expiresAtNanos;
+            this.graceUntilNanos = graceUntilNanos;
+        }
+    }
+
+    public static final class Builder {
+        private Duration ttl = Duration.ZERO;
+        private long maximumSize = 10_000L;
+        private Duration refreshAfter = Duration.ZERO;
+        private Duration gracePeriod = Duration.ZERO;
+        private Duration revalidationTimeout = Duration.ofMillis(500);
+        private TimeoutScheduler timeouts = TimeoutScheduler.hashedWheel();
+        private Duration rejectionTtl = Duration.ZERO;
+        private long rejectionMaximumSize = 10_000L;
+        private Ticker ticker = Ticker.systemTicker();
+
+        private Builder() { }
+
+        /**
+         * Maximum time for which token info is cached, {@code null} or zero disables caching.
+         */
+        public Builder ttl(final Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder maximumSize(final long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Age after which entries are revalidated in the background, {@code null} or zero disables revalidation.
+         */
+        public Builder refreshAfter(final Duration refreshAfter) {
+            this.refreshAfter = refreshAfter;
+            return this;
+        }
+
+        /**
+         * Time for which expired entries are served if the token info endpoint is unavailable, {@code null} or zero
+         * disables serving of expired entries.
+         */
+        public Builder gracePeriod(final Duration gracePeriod) {
+            this.gracePeriod = gracePeriod;
+            return this;
+        }
+
+        /**
+         * Maximum time to wait for the revalidation of an expired entry before serving it, {@code null} or zero waits
+         * for the revalidation to complete.
+         */
+        public Builder revalidationTimeout(final Duration revalidationTimeout) {
+            this.revalidationTimeout = revalidationTimeout;
+            return this;
+        }
+
+        /**
+         * Schedules the revalidation timeouts, defaults to {@link TimeoutScheduler#hashedWheel()}.
+         */
+        public Builder timeouts(final TimeoutScheduler timeouts) {
+            this.timeouts = requireNonNull(timeouts);
+            return this;
+        }
+
+        /**
+         * Time for which rejected tokens are remembered, {@code null} or zero disables caching of rejections.
+         */
+        public Builder rejectionTtl(final Duration rejectionTtl) {
+            this.rejectionTtl = rejectionTtl;
+            return this;
+        }
+
+        public Builder rejectionMaximumSize(final long rejectionMaximumSize) {
+            this.rejectionMaximumSize = rejectionMaximumSize;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder ticker(final Ticker ticker) {
+            this.ticker = requireNonNull(ticker);
+            return this;
+        }
+
+        public TokenInfoCache build() {
+            return new TokenInfoCache(this);
+        }
+    }
+}
@@ -2,21 +2,34 @@ package org.zalando.undertaking.oauth2;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
+
+import java.io.IOException;
+
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.asynchttpclient.AsyncHttpClient;
 import org.asynchttpclient.BoundRequestBuilder;
-import org.asynchttpclient.Response;
 
 import org.zalando.undertaking.ahc.ClientConfig;
+import org.zalando.undertaking.ahc.GuardedEndpoint;
 import org.zalando.undertaking.ahc.GuardedHttpClient;
+import org.zalando.undertaking.ahc.HedgePolicy;
+import org.zalando.undertaking.ahc.ResponseBody;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.net.HttpHeaders;
 
+import com.google.gson.TypeAdapter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 import io.reactivex.Single;
 
 import io.undertow.util.HeaderMap;
@@ -24,27 +37,73 @@ import io.undertow.util.StatusCodes;
 
 class TokenInfoRequestProvider extends OAuth2RequestProvider {
 
+    private static final Duration INITIAL_HEDGE_DELAY = Duration.ofMillis(100);
+
     private final AuthenticationInfoSettings settings;
-    private final GuardedHttpClient guardedHttpClient;
+    private final GuardedEndpoint endpoint;
+    private final TokenInfoCache cache;
 
-    private final ClientConfig requestConfig = ClientConfig.builder().circuitBreakerName("auth/tokenInfo").maxRetries(3)
-                                                           .circuitBreakerIgnoreFailures(ImmutableSet.of(
-                                                                   BadAccessTokenException.class))
-                                                           .nonRetryableExceptions(ImmutableSet.of(
-                BadAccessTokenException.class)).timeOutMs(10_000L).build();
+    /**
+     * Creates a provider with a {@link TokenInfoCache} of its own, configured by {@code settings}.
+     */
+    public TokenInfoRequestProvider(final AuthenticationInfoSettings settings, final AsyncHttpClient client,
+            final GuardedHttpClient guardedHttpClient) {
+        this(settings, client, guardedHttpClient, new TokenInfoCache(settings));
+    }
 
     @Inject
     public TokenInfoRequestProvider(final AuthenticationInfoSettings settings, final AsyncHttpClient client,
-            final GuardedHttpClient guardedHttpClient) {
+            final GuardedHttpClient guardedHttpClient, final TokenInfoCache cache) {
         super(client);
         this.settings = requireNonNull(settings);
-        this.guardedHttpClient = requireNonNull(guardedHttpClient);
+
+        final ClientConfig requestConfig = ClientConfig.builder().circuitBreakerName("auth/tokenInfo").maxRetries(3)
+                                                       .circuitBreakerIgnoreFailures(ImmutableSet.of(
+                                                               BadAccessTokenException.class,
+                                                               BadTokenInfoException.class))
+                                                       .nonRetryableExceptions(ImmutableSet.of(
+                    BadAccessTokenException.class, BadTokenInfoException.class)).timeOutMs(10_000L)
+                                                       .hedgePolicy(createHedgePolicy(settings)).build();
+        this.endpoint = guardedHttpClient.endpoint(requestConfig);
+        this.cache = requireNonNull(cache);
     }
 
     public Single<AuthenticationInfo> getTokenInfo(final AccessToken accessToken, final HeaderMap requestHeaders) {
-        return guardedHttpClient.executeRequest(buildRequest(accessToken),
-            response -> parseResponse(response, requestHeaders),
-            requestConfig);
+        final String overrideHeader = settings.getBusinessPartnerIdOverrideHeader();
+        return cache.lookup(accessToken, requestTokenInfo(accessToken)).map(authInfo ->
+                    injectBusinessPartnerId(authInfo, overrideHeader, requestHeaders));
+    }
+
+    /**
+     * Sets the business partner identifier of {@code authInfo} to the value of the {@code overrideHeader} request
+     * header, if present. The override itself is authorized later on, based on the scopes of the access token.
+     */
+    static AuthenticationInfo injectBusinessPartnerId(final AuthenticationInfo authInfo, final String overrideHeader,
+            final HeaderMap requestHeaders) {
+        final String businessPartnerId = overrideHeader == null ? null : requestHeaders.getFirst(overrideHeader);
+        return businessPartnerId == null ? authInfo : authInfo.with().businessPartnerId(businessPartnerId).build();
+    }
+
+    /**
+     * Token info requests are idempotent {@code GET} requests, so they can be hedged safely.
+     */
+    private static HedgePolicy createHedgePolicy(final AuthenticationInfoSettings settings) {
+        final int percentage = settings.getTokenInfoHedgePercentage();
+        if (percentage <= 0) {
+            return HedgePolicy.none();
+        }
+
+        final Duration delay = settings.getTokenInfoHedgeDelay();
+        if (delay == null || delay.isZero() || delay.isNegative()) {
+            return HedgePolicy.p95(INITIAL_HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS, percentage);
+        }
+
+        return HedgePolicy.fixed(delay.toNanos(), TimeUnit.NANOSECONDS, percentage);
+    }
+
+    private Single<TokenInfo> requestTokenInfo(final AccessToken accessToken) {
+        return Single.defer(() ->
+                    endpoint.executeRequest(buildRequest(accessToken), this::parseResponse));
     }
 
     private BoundRequestBuilder buildRequest(final AccessToken accessToken) {
@@ -54,26 +113,28 @@ class TokenInfoRequestProvider extends OAuth2RequestProvider {
                       .addQueryParam("access_token", accessToken.getValue());
     }
 
-    private AuthenticationInfo parseResponse(final Response response, final HeaderMap requestHeaders) {
-        final int statusCode = response.getStatusCode();
+    private TokenInfo parseResponse(final int statusCode, final ResponseBody body) {
         switch (statusCode) {
 
             case StatusCodes.OK :
 
-                final Payload payload = parse(response.getResponseBody(), Payload.class);
-                return
-                    AuthenticationInfo.builder()                                           //
-                                      .uid(payload.uid)                                    //
-                                      .scopes(payload.scope)                               //
-                                      .businessPartnerId(
-                                          Optional.ofNullable(settings.getBusinessPartnerIdOverrideHeader()) //
-                                          .map(requestHeaders::getFirst).orElse(null))     //
+                final Payload payload = parse(body, Payload.ADAPTER);
+                if (payload == null) {
+                    throw new TokenInfoRequestException("No payload for OK response");
+                }
+
+                final AuthenticationInfo authInfo =
+                    AuthenticationInfo.builder()             //
+                                      .uid(payload.uid)      //
+                                      .scopes(payload.scope) //
                                       .build();
 
+                return new TokenInfo(authInfo, Optional.ofNullable(payload.expiresIn).map(Duration::ofSeconds));
+
             case StatusCodes.BAD_REQUEST :
             case StatusCodes.UNAUTHORIZED :
 
-                final ErrorPayload errorPayload = parse(response.getResponseBody(), ErrorPayload.class);
+                final ErrorPayload errorPayload = parse(body, ErrorPayload.ADAPTER);
 
                 // Fix wrong error from Zalando endpoint
                 if ("invalid_request".equals(errorPayload.error)
@@ -84,12 +145,74 @@ class TokenInfoRequestProvider extends OAuth2RequestProvider {
                 throw new BadTokenInfoException(errorPayload.error, errorPayload.errorDescription);
         }
 
-        throw new TokenInfoRequestException("Unsupported status code: " + statusCode + ": "
-                + response.getResponseBody());
+        throw new TokenInfoRequestException("Unsupported status code: " + statusCode + ": " + body);
     }
 
     private static final class Payload {
         Set<String> scope;
         String uid;
+        Long expiresIn;
+
+        static final TypeAdapter<Payload> ADAPTER = new PayloadAdapter<Payload>() {
+            @Override
+            Payload create() {
+                return new Payload();
+            }
+
+            @Override
+            void readField(final JsonReader in, final String name, final Payload payload) throws IOException {
+                switch (name) {
+
+                    case "scope" :
+                        payload.scope = readScopes(in);
+                        break;
+
+                    case "uid" :
+                        payload.uid = nextString(in);
+                        break;
+
+                    case "expires_in" :
+                        payload.expiresIn = nextLong(in);
+                        break;
+
+                    default :
+                        in.skipValue();
+                }
+            }
+
+            @Override
+            void writeFields(final JsonWriter out, final Payload payload) throws IOException {
+                out.name("scope");
+                if (payload.scope == null) {
+                    out.nullValue();
+                } else {
+                    out.beginArray();
+                    for (final String scope : payload.scope) {
+                        out.value(scope);
+                    }
+
+                    out.endArray();
+                }
+
+                out.name("uid").value(payload.uid);
+                out.name("expires_in").value(payload.expiresIn);
+            }
+
+            private Set<String> readScopes(final JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+
+                final ImmutableSet.Builder<String> scopes = ImmutableSet.builder();
+                in.beginArray();
+                while (in.hasNext()) {
+                    scopes.add(in.nextString());
+                }
+
+                in.endArray();
+                return scopes.build();
+            }
+        };
     }
 }
@@ -5,6 +5,8 @@ import static java.util.Objects.requireNonNull;
 import java.time.Duration;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -17,6 +19,8 @@ import javax.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.zalando.undertaking.ClientDisconnects;
+
 import org.zalando.undertaking.inject.HttpExchangeScope;
 import org.zalando.undertaking.oauth2.AuthenticationInfo;
 import org.zalando.undertaking.oauth2.AuthenticationInfoPredicate;
@@ -24,14 +28,25 @@ import org.zalando.undertaking.oauth2.AuthenticationInfoSettings;
 import org.zalando.undertaking.oauth2.BadTokenInfoException;
 import org.zalando.undertaking.oauth2.MalformedAccessTokenException;
 import org.zalando.undertaking.oauth2.NoAccessTokenException;
+import org.zalando.undertaking.oauth2.ScopeSet;
 import org.zalando.undertaking.oauth2.TokenInfoRequestException;
 import org.zalando.undertaking.problem.ProblemHandlerBuilder;
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
 
+import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+
+import io.reactivex.subjects.AsyncSubject;
+
 import io.undertow.Handlers;
 
 import io.undertow.server.HttpHandler;
@@ -51,19 +66,35 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultAuthorizationHandler.class);
     private static final String FORBIDDEN_ERROR_DESCRIPTION =
         "The request requires higher privileges than provided by the access token.";
+    private static final long MAX_PRERENDERED_PROBLEMS = 256;
     private final Settings settings;
     private final HttpExchangeScope scope;
     private final Provider<Single<AuthenticationInfo>> authInfoProvider;
     private final Provider<ProblemHandlerBuilder> problemBuilder;
+    private final TimeoutScheduler timeouts;
+    private volatile BusinessPartnerOverridePredicate overridePredicate = new BusinessPartnerOverridePredicate(null);
+    private final Cache<List<Object>, HttpHandler> authProblems = //
+        CacheBuilder.newBuilder().maximumSize(MAX_PRERENDERED_PROBLEMS).build();
+    private volatile HttpHandler circuitOpenProblem;
 
     @Inject
     public DefaultAuthorizationHandler(final Settings settings, final HttpExchangeScope scope,
             final Provider<Single<AuthenticationInfo>> authInfoProvider,
             final Provider<ProblemHandlerBuilder> problemBuilder) {
+        this(settings, scope, authInfoProvider, problemBuilder, TimeoutScheduler.hashedWheel());
+    }
+
+    /**
+     * @param  timeouts  schedules the timeouts for the authorization flows
+     */
+    public DefaultAuthorizationHandler(final Settings settings, final HttpExchangeScope scope,
+            final Provider<Single<AuthenticationInfo>> authInfoProvider,
+            final Provider<ProblemHandlerBuilder> problemBuilder, final TimeoutScheduler timeouts) {
         this.settings = requireNonNull(settings);
         this.scope = requireNonNull(scope);
         this.authInfoProvider = requireNonNull(authInfoProvider);
         this.problemBuilder = requireNonNull(problemBuilder);
+        this.timeouts = requireNonNull(timeouts);
     }
 
     @Override
@@ -72,7 +103,8 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
         requireNonNull(next);
 
         final Flowable<HttpHandler> nextEmitter = Flowable.just(next);
-        return exchange -> handleRequest(exchange, predicate, nextEmitter);
+        final Cache<AuthenticationInfo, Optional<HttpHandler>> decisions = newDecisionCache();
+        return exchange -> handleRequest(exchange, predicate, decisions, next, nextEmitter);
     }
 
     @Override
@@ -81,34 +113,90 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
         requireNonNull(predicate);
         requireNonNull(nextProvider);
 
+        final Cache<AuthenticationInfo, Optional<HttpHandler>> decisions = newDecisionCache();
         return exchange ->
-                handleRequest(exchange, predicate, Flowable.defer(() -> nextProvider.apply(exchange).toFlowable()));
+                handleRequest(exchange, predicate, decisions, null,
+                    Flowable.defer(() -> nextProvider.apply(exchange).toFlowable()));
     }
 
+    /**
+     * Creates the cache for the authorization decisions of a single route. Decisions are keyed by the identity of the
+     * {@code AuthenticationInfo} instances, which are weakly referenced: once the {@code AuthenticationInfo} of a token
+     * is evicted from whatever cache holds it, the decision goes away, too.
+     *
+     * @return  the decision cache, or {@code null} if decisions shall not be cached
+     */
+    private Cache<AuthenticationInfo, Optional<HttpHandler>> newDecisionCache() {
+        final long maximumSize = settings.getAuthorizationDecisionCacheMaximumSize();
+        return maximumSize <= 0 ? null : CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * @param  next         the next handler, if known upfront
+     * @param  nextEmitter  emits the next handler
+     */
     private void handleRequest(final HttpServerExchange exchange, final Predicate<? super AuthenticationInfo> predicate,
-            final Flowable<HttpHandler> nextEmitter) {
+            final Cache<AuthenticationInfo, Optional<HttpHandler>> decisions, final HttpHandler next,
+            final Flowable<HttpHandler> nextEmitter) throws Exception {
 
         final Predicate<? super AuthenticationInfo> authPredicate = //
             wrapBusinessPartnerOverride(predicate, exchange.getRequestHeaders());
 
+        // Overrides yield a fresh AuthenticationInfo per request, there's nothing to be reused.
+        final Cache<AuthenticationInfo, Optional<HttpHandler>> decisionCache = //
+            authPredicate == predicate ? decisions : null;
+
         // HttpHandlers are supposed to set their own status codes.
         // This is the last resort if something gets wrong.
         exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
 
-        final Flowable<HttpHandler> authEmitter =                                //
-            authInfoProvider.get().toFlowable()                                  //
-                            .filter(authInfo -> !authPredicate.test(authInfo))   //
-                            .map(authInfo -> forbidden(authInfo, authPredicate)) //
-                            .onErrorResumeNext(error -> {
-                                return Flowable.just(handleAuthError(error));
-                            });
+        // Missing or malformed tokens as well as cached authentication results are usually known right away. Those
+        // requests are handled inline, without going through the reactive pipeline below.
+        final AsyncSubject<AuthenticationInfo> authResult = AsyncSubject.create();
+        final Disposable authLookup = authInfoProvider.get().subscribe(authInfo -> {
+                    authResult.onNext(authInfo);
+                    authResult.onComplete();
+                }, authResult::onError);
+        if (authResult.hasThrowable()) {
+            execute(exchange, handleAuthError(authResult.getThrowable()));
+            return;
+        }
+
+        if (authResult.hasValue()) {
+            final Optional<HttpHandler> rejection;
+            try {
+                rejection = authorize(authResult.getValue(), authPredicate, decisionCache);
+            } catch (final RuntimeException e) {
+                execute(exchange, internalServerError(e));
+                return;
+            }
+
+            if (rejection.isPresent()) {
+                execute(exchange, rejection.get());
+                return;
+            }
+
+            if (next != null) {
+                exchange.dispatch(scope.scoped(next));
+                return;
+            }
+        }
+
+        final Flowable<HttpHandler> authEmitter =                                           //
+            authResult.toFlowable(BackpressureStrategy.LATEST)                              //
+                      .map(authInfo -> authorize(authInfo, authPredicate, decisionCache))   //
+                      .filter(Optional::isPresent)                                          //
+                      .map(Optional::get)                                                   //
+                      .onErrorResumeNext(error -> {
+                          return Flowable.just(handleAuthError(error));
+                      });
 
         final Single<HttpHandler> handlerSingle =
             Flowable.concatEager(Arrays.asList(authEmitter, nextEmitter))                   //
                     .take(1)                                                                //
                     .singleOrError()                                                        //
-                    .timeout(settings.getTimeout().toNanos(), TimeUnit.NANOSECONDS,
-                        Single.error(new TimeoutException("Timed out while authorizing request."))) //
+                    .lift(timeouts.timeout(settings.getTimeout().toNanos(), TimeUnit.NANOSECONDS,
+                            () -> new TimeoutException("Timed out while authorizing request.")))   //
                     .onErrorResumeNext(error -> Single.just(internalServerError(error)));
 
         final String requestId = LOG.isTraceEnabled() ? Integer.toHexString(exchange.hashCode()) : null;
@@ -116,17 +204,30 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
             LOG.trace("Dispatching request [{}].", requestId);
         }
 
-        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> subscribe(requestId, handlerSingle, exchange));
+        exchange.dispatch(SameThreadExecutor.INSTANCE,
+            () -> subscribe(requestId, authLookup, handlerSingle, exchange));
     }
 
-    private void subscribe(final Object requestId, final Single<HttpHandler> handlerSingle,
-            final HttpServerExchange exchange) {
+    /**
+     * Executes a handler rejecting a request. Those handlers merely send a problem response, so there's no need to
+     * leave the IO thread for them.
+     */
+    private void execute(final HttpServerExchange exchange, final HttpHandler handler) throws Exception {
+        if (exchange.isInIoThread()) {
+            scope.scoped(handler).handleRequest(exchange);
+        } else {
+            exchange.dispatch(scope.scoped(handler));
+        }
+    }
+
+    private void subscribe(final Object requestId, final Disposable authLookup,
+            final Single<HttpHandler> handlerSingle, final HttpServerExchange exchange) {
 
         if (requestId != null) {
             LOG.trace("Subscribing for request [{}].", requestId);
         }
 
-        handlerSingle.subscribe( //
+        final Disposable handling = handlerSingle.subscribe( //
             handler -> {
                 if (requestId != null) {
                     LOG.trace("Executing for request [{}]: [{}]", requestId, handler);
@@ -146,11 +247,36 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
                 exchange.endExchange();
             });
 
+        // The token info lookup is shared with the subscribers of authResult, hence it is disposed separately.
+        ClientDisconnects.disposeOnDisconnect(exchange, new CompositeDisposable(handling, authLookup));
+
         if (requestId != null) {
             LOG.trace("Subscribed for request [{}].", requestId);
         }
     }
 
+    /**
+     * @return  the handler rejecting the request, or an empty {@code Optional} if the request is authorized
+     */
+    private Optional<HttpHandler> authorize(final AuthenticationInfo authInfo,
+            final Predicate<? super AuthenticationInfo> predicate,
+            final Cache<AuthenticationInfo, Optional<HttpHandler>> decisions) {
+        if (decisions != null) {
+            final Optional<HttpHandler> decision = decisions.getIfPresent(authInfo);
+            if (decision != null) {
+                return decision;
+            }
+        }
+
+        final Optional<HttpHandler> decision = predicate.test(authInfo) ? Optional.empty()
+                                                                        : Optional.of(forbidden(authInfo, predicate));
+        if (decisions != null) {
+            decisions.put(authInfo, decision);
+        }
+
+        return decision;
+    }
+
     private HttpHandler handleAuthError(final Throwable e) {
 
         if (e instanceof BadTokenInfoException) {
@@ -182,14 +308,7 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
     }
 
     protected HttpHandler unauthorized(final String oauthError, final String message) {
-        return Handlers.header(                             //
-                problemBuilder.get()                        //
-                .setDetail(message)                         //
-                .setParameter("error", oauthError)          //
-                .setParameter("error_description", message) //
-                .build(StatusCodes.UNAUTHORIZED),           //
-                Headers.WWW_AUTHENTICATE_STRING,            //
-                getWwwAuthenticateHeaderValue(oauthError));
+        return authProblem(StatusCodes.UNAUTHORIZED, oauthError, message);
     }
 
     protected HttpHandler forbidden(final AuthenticationInfo info,
@@ -202,14 +321,31 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
                                                          .orElse(errorDescription);
         }
 
-        return Handlers.header(                                      //
-                problemBuilder.get()                                 //
-                .setDetail(errorDescription)                         //
-                .setParameter("error", "insufficient_scope")         //
-                .setParameter("error_description", errorDescription) //
-                .build(StatusCodes.FORBIDDEN),                       //
-                Headers.WWW_AUTHENTICATE_STRING,                     //
-                getWwwAuthenticateHeaderValue("insufficient_scope"));
+        return authProblem(StatusCodes.FORBIDDEN, "insufficient_scope", errorDescription);
+    }
+
+    /**
+     * Authorization problems only depend on the realm, the OAuth error and its description, so they're rendered once
+     * and reused afterwards.
+     */
+    private HttpHandler authProblem(final int statusCode, final String oauthError, final String message) {
+        final String realm = settings.getRealm();
+        final List<Object> key = Arrays.asList(statusCode, realm, oauthError, message);
+
+        HttpHandler handler = authProblems.getIfPresent(key);
+        if (handler == null) {
+            handler = Handlers.header(                          //
+                    problemBuilder.get()                        //
+                    .setDetail(message)                         //
+                    .setParameter("error", oauthError)          //
+                    .setParameter("error_description", message) //
+                    .buildPrerendered(statusCode),              //
+                    Headers.WWW_AUTHENTICATE_STRING,            //
+                    getWwwAuthenticateHeaderValue(realm, oauthError));
+            authProblems.put(key, handler);
+        }
+
+        return handler;
     }
 
     protected HttpHandler badGateway(final Throwable e) {
@@ -229,6 +365,20 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
     }
 
     private HttpHandler gatewayTimeout(final Throwable e) {
+
+        // An open circuit is already tracked by the circuit breaker, no need to log each rejected request.
+        if (e instanceof CircuitBreakerOpenException) {
+            HttpHandler handler = circuitOpenProblem;
+            if (handler == null) {
+                circuitOpenProblem = handler =
+                        problemBuilder.get()                                                           //
+                                      .setDetail("Communication with a downstream service timed out.") //
+                                      .buildPrerendered(StatusCodes.GATEWAY_TIME_OUT);
+            }
+
+            return handler;
+        }
+
         return
             problemBuilder.get()                                                           //
                           .setError(e)                                                     //
@@ -242,8 +392,8 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
                              .build(StatusCodes.INTERNAL_SERVER_ERROR);
     }
 
-    private String getWwwAuthenticateHeaderValue(final String error) {
-        return String.format("Bearer realm=\"%s\", error=\"%s\"", settings.getRealm(), error);
+    private static String getWwwAuthenticateHeaderValue(final String realm, final String error) {
+        return String.format("Bearer realm=\"%s\", error=\"%s\"", realm, error);
     }
 
     private Predicate<? super AuthenticationInfo> wrapBusinessPartnerOverride(
@@ -255,7 +405,12 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
         }
 
         final String overrideScope = settings.getBusinessPartnerIdOverrideScope();
-        return new BusinessPartnerOverridePredicate(overrideScope).and(predicate);
+        BusinessPartnerOverridePredicate overridePredicate = this.overridePredicate;
+        if (!Objects.equals(overrideScope, overridePredicate.requiredScope)) {
+            this.overridePredicate = overridePredicate = new BusinessPartnerOverridePredicate(overrideScope);
+        }
+
+        return overridePredicate.and(predicate);
     }
 
     public interface Settings extends AuthenticationInfoSettings {
@@ -270,23 +425,50 @@ public class DefaultAuthorizationHandler implements AuthorizationHandler {
          * aborted and an {@code Internal Server Error} is reported to clients.
          */
         Duration getTimeout();
+
+        /**
+         * Defaults to half of the {@linkplain #getTimeout() authorization timeout}, so that expired token info can be
+         * served before the authorization flow times out.
+         */
+        @Override
+        default Duration getTokenInfoCacheRevalidationTimeout() {
+            final Duration timeout = getTimeout();
+            return timeout == null ? AuthenticationInfoSettings.super.getTokenInfoCacheRevalidationTimeout()
+                                   : timeout.dividedBy(2);
+        }
+
+        /**
+         * Maximum number of authorization decisions cached per route. A decision, including the handler responding
+         * with {@code Forbidden}, is reused as long as the same {@code AuthenticationInfo} instance is served for a
+         * token, which is the case if authentication results are cached, e.g. by
+         * {@link org.zalando.undertaking.oauth2.TokenInfoCache}. Since forbidden handlers are reused across requests,
+         * overrides of {@link DefaultAuthorizationHandler#forbidden(AuthenticationInfo, Predicate)} must not depend on
+         * the current request.
+         *
+         * @return  the maximum number of cached decisions per route, zero disables caching
+         */
+        default long getAuthorizationDecisionCacheMaximumSize() {
+            return 0L;
+        }
     }
 
     private static final class BusinessPartnerOverridePredicate implements AuthenticationInfoPredicate {
         private static final Optional<String> ERROR_DESC = Optional.of(
                 "The request is not authorized to override the business partner.");
 
-        private final String requiredScope;
+        final String requiredScope;
+        private final ScopeSet requiredScopes;
 
         BusinessPartnerOverridePredicate(final String requiredScope) {
             this.requiredScope = requiredScope;
+            this.requiredScopes = requiredScope == null ? null : ScopeSet.of(requiredScope);
         }
 
         @Override
         public boolean test(final AuthenticationInfo authInfo) {
 
             // if, for some reason, the required scope is null, reject all requests due to security considerations
-            return requiredScope != null && authInfo.getScopes().contains(requiredScope);
+            return requiredScopes != null && authInfo.getScopeSet().containsAll(requiredScopes);
         }
 
         @Override
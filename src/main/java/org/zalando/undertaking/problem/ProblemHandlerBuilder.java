@@ -2,6 +2,11 @@ package org.zalando.undertaking.problem;
 
 import static java.util.Objects.requireNonNull;
 
+import static com.google.common.base.Preconditions.checkState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import java.util.Map;
 import java.util.Optional;
 
@@ -15,6 +20,8 @@ import com.google.gson.Gson;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 
+import io.undertow.util.Headers;
+
 /**
  * Builds {@code HttpHandlers} that send a {@code application/problem+json} structure back to clients.
  */
@@ -31,6 +38,25 @@ public class ProblemHandlerBuilder extends SimpleProblemSetter<ProblemHandlerBui
         return new Handler(gson, statusCode, getData(), getError());
     }
 
+    /**
+     * Builds a handler that sends a problem which has been serialized upfront. Meant for problems that are sent over
+     * and over again with the same data: the handler writes the very same read-only buffer for each request, there's
+     * neither JSON serialization nor any copying on the request path.
+     *
+     * <p>Since a pre-rendered problem is identical for all its occurrences, it cannot carry an error: errors get a
+     * unique identifier per occurrence, which is logged along with the error.</p>
+     *
+     * @param   statusCode  the HTTP status code to be sent
+     *
+     * @return  a handler that sends the pre-rendered problem
+     *
+     * @throws  IllegalStateException  if an error has been set
+     */
+    public HttpHandler buildPrerendered(final int statusCode) {
+        checkState(!getError().isPresent(), "Pre-rendered problems cannot carry an error");
+        return new PrerenderedHandler(statusCode, gson.toJson(ProblemResponder.newProblem(statusCode, getData())));
+    }
+
     @Override
     protected ProblemHandlerBuilder self() {
         return this;
@@ -76,4 +102,36 @@ public class ProblemHandlerBuilder extends SimpleProblemSetter<ProblemHandlerBui
             return gson.toJson(problem);
         }
     }
+
+    private static final class PrerenderedHandler implements HttpHandler {
+        private final int statusCode;
+        private final String json;
+        private final ByteBuffer body;
+
+        PrerenderedHandler(final int statusCode, final String json) {
+            this.statusCode = statusCode;
+            this.json = json;
+
+            final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer body = ByteBuffer.allocateDirect(bytes.length);
+            body.put(bytes).flip();
+            this.body = body.asReadOnlyBuffer();
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper("ProblemHandlerBuilder.PrerenderedHandler") //
+                              .addValue(statusCode)                                        //
+                              .addValue(json)                                              //
+                              .toString();
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) {
+            exchange.setStatusCode(statusCode);
+            ExchangeProblemStore.recordProblemDataSent(exchange);
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, ProblemResponder.CONTENT_TYPE);
+            exchange.getResponseSender().send(body.duplicate());
+        }
+    }
 }
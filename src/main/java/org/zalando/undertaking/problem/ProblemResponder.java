@@ -18,18 +18,15 @@ import io.undertow.util.StatusCodes;
  */
 abstract class ProblemResponder {
 
+    static final String CONTENT_TYPE = "application/problem+json; charset=UTF-8";
+
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
     protected void sendProblem(final HttpServerExchange exchange, final Map<String, ?> data,
             final Optional<Throwable> error) {
         final int statusCode = exchange.getStatusCode();
         final String reason = StatusCodes.getReason(statusCode);
-
-        // fill with default values
-        final Map<String, Object> problem = new HashMap<>(data.size() + 2);
-        problem.put("type", "https://httpstatus.es/" + statusCode);
-        problem.put("title", reason);
-        problem.putAll(data);
+        final Map<String, Object> problem = newProblem(statusCode, data);
 
         if (error.isPresent()) {
             final UUID uuid = UUID.randomUUID();
@@ -46,9 +43,19 @@ abstract class ProblemResponder {
 
         final String json = toJson(problem);
         ExchangeProblemStore.recordProblemDataSent(exchange);
-        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/problem+json; charset=UTF-8");
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, CONTENT_TYPE);
         exchange.getResponseSender().send(json);
     }
 
+    static Map<String, Object> newProblem(final int statusCode, final Map<String, ?> data) {
+
+        // fill with default values
+        final Map<String, Object> problem = new HashMap<>(data.size() + 3);
+        problem.put("type", "https://httpstatus.es/" + statusCode);
+        problem.put("title", StatusCodes.getReason(statusCode));
+        problem.putAll(data);
+        return problem;
+    }
+
     protected abstract String toJson(final Map<String, ?> problem);
 }
@@ -0,0 +1,166 @@
+package org.zalando.undertaking.rx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * {@code Single} that subscribes to its source at most once at a time and shares the outcome with all of its
+ * observers. Once the source signalled, its outcome is replayed to all later observers, without subscribing to the
+ * source again.
+ *
+ * <p>The subscription to the source is reference counted: if all observers get disposed before the source signalled,
+ * the source gets disposed as well, e.g. to cancel an outstanding HTTP request nobody is interested in anymore. The
+ * next observer then subscribes to the source again.</p>
+ */
+public final class SharedSingle<T> extends Single<T> {
+
+    private final Single<? extends T> source;
+
+    private final List<Inner<T>> observers = new ArrayList<>();
+    private SourceObserver current;
+    private Disposable upstream;
+    private boolean done;
+    private T value;
+    private Throwable error;
+
+    public SharedSingle(final Single<? extends T> source) {
+        this.source = requireNonNull(source);
+    }
+
+    @Override
+    protected void subscribeActual(final SingleObserver<? super T> observer) {
+        final Inner<T> inner = new Inner<>(observer, this);
+        observer.onSubscribe(inner);
+
+        final SourceObserver connect;
+        synchronized (this) {
+            if (done) {
+                connect = null;
+            } else if (inner.get()) {
+                return;
+            } else {
+                observers.add(inner);
+                if (current != null) {
+                    return;
+                }
+
+                current = new SourceObserver();
+                connect = current;
+            }
+        }
+
+        if (connect != null) {
+            source.subscribe(connect);
+        } else {
+            // done is never reset, hence value and error are safely published by the synchronized block above
+            inner.signal(value, error);
+        }
+    }
+
+    private void remove(final Inner<T> inner) {
+        final Disposable toDispose;
+        synchronized (this) {
+            if (!observers.remove(inner) || !observers.isEmpty() || done) {
+                return;
+            }
+
+            // Nobody is interested in the outcome anymore. Late signals of the disposed source are ignored.
+            toDispose = upstream;
+            current = null;
+            upstream = null;
+        }
+
+        if (toDispose != null) {
+            toDispose.dispose();
+        }
+    }
+
+    private void complete(final SourceObserver observer, final T value, final Throwable error) {
+        final List<Inner<T>> toSignal;
+        synchronized (this) {
+            if (current != observer) {
+                return;
+            }
+
+            done = true;
+            this.value = value;
+            this.error = error;
+            upstream = null;
+
+            toSignal = new ArrayList<>(observers);
+            observers.clear();
+        }
+
+        for (final Inner<T> inner : toSignal) {
+            inner.signal(value, error);
+        }
+    }
+
+    private final class SourceObserver implements SingleObserver<T> {
+        @Override
+        public void onSubscribe(final Disposable d) {
+            synchronized (SharedSingle.this) {
+                if (current == this) {
+                    upstream = d;
+                    return;
+                }
+            }
+
+            // All observers have been disposed while subscribing.
+            d.dispose();
+        }
+
+        @Override
+        public void onSuccess(final T value) {
+            complete(this, value, null);
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            complete(this, null, e);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Inner<T> extends AtomicBoolean implements Disposable {
+        private final SingleObserver<? super T> observer;
+        private final SharedSingle<T> parent;
+
+        Inner(final SingleObserver<? super T> observer, final SharedSingle<T> parent) {
+            this.observer = observer;
+            this.parent = parent;
+        }
+
+        void signal(final T value, final Throwable error) {
+            if (get()) {
+                return;
+            }
+
+            if (error == null) {
+                observer.onSuccess(value);
+            } else {
+                observer.onError(error);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(false, true)) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get();
+        }
+    }
+}
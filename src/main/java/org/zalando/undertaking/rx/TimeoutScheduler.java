@@ -0,0 +1,288 @@
+package org.zalando.undertaking.rx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.netty.util.HashedWheelTimer;
+
+import io.reactivex.Scheduler;
+import io.reactivex.SingleObserver;
+import io.reactivex.SingleOperator;
+
+import io.reactivex.disposables.Disposable;
+
+import io.reactivex.plugins.RxJavaPlugins;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Schedules timeouts for in-flight operations. Almost all of those timeouts get cancelled again, since the operations
+ * they guard complete in time, so implementations should make scheduling and cancellation as cheap as possible.
+ *
+ * <p>Keeps track of how many timeouts have been scheduled, cancelled and fired.</p>
+ *
+ * @see  #hashedWheel()
+ */
+public abstract class TimeoutScheduler {
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+
+    /**
+     * Returns the shared {@code TimeoutScheduler} backed by a hashed wheel timer with a tick duration of ten
+     * milliseconds. Scheduling and cancelling timeouts are constant time operations that don't contend on a common
+     * queue, at the expense of precision: timeouts fire up to one tick late.
+     */
+    public static TimeoutScheduler hashedWheel() {
+        return HashedWheelTimeoutScheduler.INSTANCE;
+    }
+
+    /**
+     * Returns a {@code TimeoutScheduler} that schedules timeouts on RxJava's computation scheduler, which is what the
+     * {@code timeout} operators of RxJava do.
+     */
+    public static TimeoutScheduler computation() {
+        return using(Schedulers::computation);
+    }
+
+    /**
+     * Returns a {@code TimeoutScheduler} that schedules timeouts on the {@code Scheduler} returned by the given
+     * supplier. The supplier gets called for each timeout, so that scheduler hooks installed via
+     * {@link RxJavaPlugins} are respected.
+     */
+    public static TimeoutScheduler using(final Supplier<? extends Scheduler> scheduler) {
+        requireNonNull(scheduler);
+        return new TimeoutScheduler() {
+            @Override
+            protected Disposable doSchedule(final Runnable task, final long delay, final TimeUnit unit) {
+                return scheduler.get().scheduleDirect(task, delay, unit);
+            }
+        };
+    }
+
+    /**
+     * Schedules the given task to be run after the given delay, unless the returned {@code Disposable} gets disposed
+     * before.
+     */
+    public Disposable schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        final ScheduledTimeout timeout = new ScheduledTimeout(requireNonNull(task));
+        scheduled.increment();
+        timeout.setHandle(doSchedule(timeout, delay, requireNonNull(unit)));
+        return timeout;
+    }
+
+    /**
+     * Returns an operator that mirrors its upstream {@code Single}, unless it doesn't signal within the given time. In
+     * this case, the upstream gets disposed and a {@code TimeoutException} is signalled.
+     */
+    public <T> SingleOperator<T, T> timeout(final long timeout, final TimeUnit unit) {
+        return timeout(timeout, unit, TimeoutException::new);
+    }
+
+    /**
+     * Returns an operator that mirrors its upstream {@code Single}, unless it doesn't signal within the given time. In
+     * this case, the upstream gets disposed and the error provided by {@code error} is signalled.
+     */
+    public <T> SingleOperator<T, T> timeout(final long timeout, final TimeUnit unit,
+            final Supplier<? extends Throwable> error) {
+        requireNonNull(unit);
+        requireNonNull(error);
+        return child -> new TimeoutObserver<>(child, this, timeout, unit, error);
+    }
+
+    /**
+     * @return  the number of timeouts that have been scheduled
+     */
+    public long getScheduledCount() {
+        return scheduled.sum();
+    }
+
+    /**
+     * @return  the number of timeouts that have been cancelled before they fired
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return  the number of timeouts that have fired
+     */
+    public long getFiredCount() {
+        return fired.sum();
+    }
+
+    /**
+     * Schedules the given task to be run after the given delay. Disposing the returned {@code Disposable} is supposed
+     * to prevent the execution of the task, if possible.
+     */
+    protected abstract Disposable doSchedule(Runnable task, long delay, TimeUnit unit);
+
+    private final class ScheduledTimeout extends AtomicInteger implements Runnable, Disposable {
+        private static final int PENDING = 0;
+        private static final int FIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Runnable task;
+        private volatile Disposable handle;
+
+        ScheduledTimeout(final Runnable task) {
+            this.task = task;
+        }
+
+        void setHandle(final Disposable handle) {
+            this.handle = handle;
+
+            // Might have been cancelled while being scheduled.
+            if (get() == CANCELLED) {
+                handle.dispose();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (compareAndSet(PENDING, FIRED)) {
+                fired.increment();
+                task.run();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(PENDING, CANCELLED)) {
+                cancelled.increment();
+
+                final Disposable handle = this.handle;
+                if (handle != null) {
+                    handle.dispose();
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() != PENDING;
+        }
+    }
+
+    private static final class TimeoutObserver<T> extends AtomicInteger implements SingleObserver<T>, Disposable,
+        Runnable {
+        private static final int ACTIVE = 0;
+        private static final int DONE = 1;
+
+        private final SingleObserver<? super T> child;
+        private final TimeoutScheduler scheduler;
+        private final long timeout;
+        private final TimeUnit unit;
+        private final Supplier<? extends Throwable> error;
+
+        private volatile Disposable upstream;
+        private volatile Disposable timer;
+
+        TimeoutObserver(final SingleObserver<? super T> child, final TimeoutScheduler scheduler, final long timeout,
+                final TimeUnit unit, final Supplier<? extends Throwable> error) {
+            this.child = child;
+            this.scheduler = scheduler;
+            this.timeout = timeout;
+            this.unit = unit;
+            this.error = error;
+        }
+
+        @Override
+        public void onSubscribe(final Disposable d) {
+            upstream = d;
+            child.onSubscribe(this);
+            if (get() == ACTIVE) {
+                timer = scheduler.schedule(this, timeout, unit);
+
+                // Might have been completed while being scheduled.
+                if (get() != ACTIVE) {
+                    timer.dispose();
+                }
+            }
+        }
+
+        @Override
+        public void onSuccess(final T value) {
+            if (compareAndSet(ACTIVE, DONE)) {
+                cancelTimer();
+                child.onSuccess(value);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            if (compareAndSet(ACTIVE, DONE)) {
+                cancelTimer();
+                child.onError(e);
+            } else {
+                RxJavaPlugins.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (compareAndSet(ACTIVE, DONE)) {
+                upstream.dispose();
+                child.onError(error.get());
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(ACTIVE, DONE)) {
+                cancelTimer();
+                upstream.dispose();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() != ACTIVE;
+        }
+
+        private void cancelTimer() {
+            final Disposable timer = this.timer;
+            if (timer != null) {
+                timer.dispose();
+            }
+        }
+    }
+
+    private static final class HashedWheelTimeoutScheduler extends TimeoutScheduler {
+        static final HashedWheelTimeoutScheduler INSTANCE = new HashedWheelTimeoutScheduler();
+
+        private final HashedWheelTimer timer;
+
+        private HashedWheelTimeoutScheduler() {
+            final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("undertaking-timeouts-%d")
+                                                                          .setDaemon(true)
+                                                                          .build();
+            timer = new HashedWheelTimer(threadFactory, 10, TimeUnit.MILLISECONDS, 512);
+        }
+
+        @Override
+        protected Disposable doSchedule(final Runnable task, final long delay, final TimeUnit unit) {
+            final io.netty.util.Timeout timeout = timer.newTimeout(t -> task.run(), delay, unit);
+            return new Disposable() {
+                @Override
+                public void dispose() {
+                    timeout.cancel();
+                }
+
+                @Override
+                public boolean isDisposed() {
+                    return timeout.isCancelled() || timeout.isExpired();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.zalando.undertaking.rx;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.WeakReference;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xnio.XnioExecutor;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import io.reactivex.Scheduler;
+import io.reactivex.SingleTransformer;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+
+import io.reactivex.plugins.RxJavaPlugins;
+
+import io.undertow.server.HttpServerExchange;
+
+/**
+ * RxJava {@code Scheduler} backed by Undertow's XNIO threads, either by a single IO thread or by the worker pool.
+ * Scheduling onto the IO thread of an exchange keeps its processing on the thread that owns its connection, which saves
+ * the context switches and cache misses of hopping onto RxJava's global pools and back. Delayed tasks are scheduled
+ * via the timer of an IO thread, so no additional timer thread is needed.
+ *
+ * <p>Tasks scheduled on a {@code Worker} of a worker pool scheduler are executed one at a time and in order, as
+ * required by RxJava. Keeps track of the number of queued tasks and of the time they spent waiting for execution, see
+ * {@link #ioThreadStatistics()} and {@link #workerStatistics()}.</p>
+ *
+ * <p>IO threads must never be blocked, so only non-blocking work should be scheduled on IO thread schedulers.</p>
+ */
+public final class XnioScheduler extends Scheduler {
+
+    private static final Statistics IO_THREAD_STATISTICS = new Statistics();
+    private static final Statistics WORKER_STATISTICS = new Statistics();
+
+    // Each start of a server creates a new XNIO worker. Schedulers only reference their thread or worker weakly, so
+    // that the entries of stopped ones get cleared along with them. Running IO threads keep themselves and their
+    // worker reachable.
+    private static final LoadingCache<XnioIoThread, XnioScheduler> IO_THREAD_SCHEDULERS = //
+        CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(
+                thread -> new XnioScheduler(thread, IO_THREAD_STATISTICS)));
+
+    private static final LoadingCache<XnioWorker, XnioScheduler> WORKER_SCHEDULERS = //
+        CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(
+                worker -> new XnioScheduler(worker, WORKER_STATISTICS)));
+
+    private final WeakReference<Executor> executor;
+    private final Statistics statistics;
+
+    private XnioScheduler(final Executor executor, final Statistics statistics) {
+        this.executor = new WeakReference<>(executor);
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the scheduler that executes tasks on the given IO thread.
+     *
+     * @throws  NullPointerException  if {@code thread} is {@code null}
+     */
+    public static XnioScheduler ioThread(final XnioIoThread thread) {
+        return IO_THREAD_SCHEDULERS.getUnchecked(requireNonNull(thread));
+    }
+
+    /**
+     * Returns the scheduler that executes tasks on the IO thread of the given exchange's connection.
+     *
+     * @throws  NullPointerException  if {@code exchange} is {@code null}
+     */
+    public static XnioScheduler ioThread(final HttpServerExchange exchange) {
+        return ioThread(exchange.getIoThread());
+    }
+
+    /**
+     * Returns the scheduler that executes tasks on the given worker pool. Delayed tasks are timed by one of the pool's
+     * IO threads.
+     *
+     * @throws  NullPointerException  if {@code worker} is {@code null}
+     */
+    public static XnioScheduler worker(final XnioWorker worker) {
+        return WORKER_SCHEDULERS.getUnchecked(requireNonNull(worker));
+    }
+
+    /**
+     * Returns the scheduler that executes tasks on the worker pool serving the given exchange's connection.
+     *
+     * @throws  NullPointerException  if {@code exchange} is {@code null}
+     */
+    public static XnioScheduler worker(final HttpServerExchange exchange) {
+        return worker(exchange.getConnection().getWorker());
+    }
+
+    /**
+     * Returns a transformer that moves the signals of a {@code Single} to the IO thread of the given exchange's
+     * connection, e.g. to continue on that thread after a response of an outgoing HTTP request has been received on
+     * one of the HTTP client's threads.
+     *
+     * @throws  NullPointerException  if {@code exchange} is {@code null}
+     */
+    public static <T> SingleTransformer<T, T> observeOnIoThread(final HttpServerExchange exchange) {
+        final XnioScheduler scheduler = ioThread(exchange);
+        return upstream -> upstream.observeOn(scheduler);
+    }
+
+    /**
+     * @return  the statistics shared by all IO thread schedulers
+     */
+    public static Statistics ioThreadStatistics() {
+        return IO_THREAD_STATISTICS;
+    }
+
+    /**
+     * @return  the statistics shared by all worker pool schedulers
+     */
+    public static Statistics workerStatistics() {
+        return WORKER_STATISTICS;
+    }
+
+    /**
+     * @return  the statistics of this scheduler, which are shared with all other schedulers of the same kind
+     */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new SerialWorker();
+    }
+
+    @Override
+    public Disposable scheduleDirect(final Runnable run, final long delay, final TimeUnit unit) {
+        final DirectTask task = new DirectTask(RxJavaPlugins.onSchedule(requireNonNull(run)));
+        if (delay <= 0) {
+            submit(task);
+        } else {
+            task.setTimeout(timer().executeAfter(() -> submit(task), delay, unit));
+        }
+
+        return task;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)       //
+                          .add("executor", executor.get()) //
+                          .toString();
+    }
+
+    /**
+     * @throws  RejectedExecutionException  if the thread or worker of this scheduler has been shut down and collected
+     */
+    private Executor executor() {
+        final Executor executor = this.executor.get();
+        if (executor == null) {
+            throw new RejectedExecutionException("XNIO thread or worker has been shut down");
+        }
+
+        return executor;
+    }
+
+    /**
+     * @return  the executor itself for IO threads, one of its IO threads for worker pools
+     */
+    private XnioExecutor timer() {
+        final Executor executor = executor();
+        return executor instanceof XnioWorker ? ((XnioWorker) executor).getIoThread() : (XnioExecutor) executor;
+    }
+
+    private void submit(final Runnable task) {
+        final Executor executor = executor();
+        final long submitted = System.nanoTime();
+        statistics.queued.increment();
+        executor.execute(() -> {
+            statistics.executed(System.nanoTime() - submitted);
+            task.run();
+        });
+    }
+
+    /**
+     * Statistics of the tasks that have been handed over to XNIO threads.
+     */
+    public static final class Statistics {
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder queueTimeNanos = new LongAdder();
+
+        Statistics() { }
+
+        /**
+         * @return  the number of tasks that have been submitted, but haven't been executed yet
+         */
+        public long getQueueDepth() {
+            return Math.max(0, queued.sum() - executed.sum());
+        }
+
+        /**
+         * @return  the number of tasks that have been executed
+         */
+        public long getExecutedCount() {
+            return executed.sum();
+        }
+
+        /**
+         * @return  the time all executed tasks have spent waiting for their execution, in nanoseconds; divided by
+         *          {@link #getExecutedCount()}, that's the mean scheduling latency
+         */
+        public long getQueueTimeNanos() {
+            return queueTimeNanos.sum();
+        }
+
+        void executed(final long queueTimeNanos) {
+            executed.increment();
+            this.queueTimeNanos.add(queueTimeNanos);
+        }
+    }
+
+    private static final class DirectTask extends AtomicReference<XnioExecutor.Key> implements Runnable, Disposable {
+        private final Runnable run;
+        private volatile boolean disposed;
+        private long enqueuedNanos;
+
+        DirectTask(final Runnable run) {
+            this.run = run;
+        }
+
+        void setTimeout(final XnioExecutor.Key timeout) {
+            set(timeout);
+
+            // Might have been disposed while being scheduled.
+            if (disposed) {
+                timeout.remove();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!disposed) {
+                try {
+                    run.run();
+                } catch (final Throwable t) {
+                    RxJavaPlugins.onError(t);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+
+            final XnioExecutor.Key timeout = get();
+            if (timeout != null) {
+                timeout.remove();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /**
+     * Executes its tasks one at a time and in order by draining them from a queue in a single submission to the
+     * executor. A new submission is made only if the queue has been drained completely.
+     */
+    private final class SerialWorker extends Worker implements Runnable {
+        private final Queue<DirectTask> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final CompositeDisposable tasks = new CompositeDisposable();
+
+        @Override
+        public Disposable schedule(final Runnable run, final long delay, final TimeUnit unit) {
+            if (tasks.isDisposed()) {
+                return Disposables.disposed();
+            }
+
+            final DirectTask task = new DirectTask(RxJavaPlugins.onSchedule(requireNonNull(run)));
+            tasks.add(task);
+            if (delay <= 0) {
+                enqueue(task);
+            } else {
+                task.setTimeout(timer().executeAfter(() -> enqueue(task), delay, unit));
+            }
+
+            return task;
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+            discardQueued();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return tasks.isDisposed();
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                DirectTask task;
+                while ((task = queue.poll()) != null) {
+                    if (tasks.isDisposed()) {
+                        statistics.queued.decrement();
+                        discardQueued();
+                        return;
+                    }
+
+                    tasks.delete(task);
+                    statistics.executed(System.nanoTime() - task.enqueuedNanos);
+                    task.run();
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void discardQueued() {
+            while (queue.poll() != null) {
+                statistics.queued.decrement();
+            }
+        }
+
+        private void enqueue(final DirectTask task) {
+            if (task.isDisposed()) {
+                return;
+            }
+
+            // Accounted per task, the drain submission itself isn't counted.
+            task.enqueuedNanos = System.nanoTime();
+            statistics.queued.increment();
+            queue.offer(task);
+            if (wip.getAndIncrement() == 0) {
+                executor().execute(this);
+            }
+        }
+    }
+}
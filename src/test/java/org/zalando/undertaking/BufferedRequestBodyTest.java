@@ -0,0 +1,68 @@
+package org.zalando.undertaking;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class BufferedRequestBodyTest {
+
+    private Path file;
+
+    @After
+    public void deleteFile() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void readsChunksInMemory() throws IOException {
+        final BufferedRequestBody underTest = BufferedRequestBody.inMemory(Arrays.asList(chunk("foo"), chunk("bar")));
+
+        assertThat(underTest.isInMemory()).isTrue();
+        assertThat(underTest.getFile()).isEmpty();
+        assertThat(underTest.length()).isEqualTo(6);
+        try(InputStream in = underTest.openStream()) {
+            assertThat(new String(ByteStreams.toByteArray(in), UTF_8)).isEqualTo("foobar");
+        }
+
+        assertThat(UTF_8.decode(underTest.asByteBuffer()).toString()).isEqualTo("foobar");
+        assertThat(underTest.asByteBuffer().isReadOnly()).isTrue();
+    }
+
+    @Test
+    public void readsSpilledFiles() throws IOException {
+        file = Files.createTempFile("undertaking-test-", ".body");
+        Files.write(file, "foobar".getBytes(UTF_8));
+
+        final BufferedRequestBody underTest = BufferedRequestBody.spilled(file, 6);
+
+        assertThat(underTest.isInMemory()).isFalse();
+        assertThat(underTest.getFile()).contains(file);
+        try(ReadableByteChannel channel = underTest.openChannel()) {
+            assertThat(channel).isInstanceOf(FileChannel.class);
+        }
+
+        assertThat(UTF_8.decode(underTest.asByteBuffer()).toString()).isEqualTo("foobar");
+    }
+
+    private static ByteBuffer chunk(final String value) {
+        return ByteBuffer.wrap(value.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package org.zalando.undertaking;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+
+public class ClientDisconnectsTest {
+
+    private ServerConnection connection;
+
+    @Before
+    public void setUp() {
+        connection = mock(ServerConnection.class, withSettings().defaultAnswer(Mockito.CALLS_REAL_METHODS));
+        doNothing().when(connection).addCloseListener(any());
+    }
+
+    @Test
+    public void disposesWorkWhenConnectionCloses() {
+        final Disposable work = Disposables.empty();
+        final long disposedBefore = ClientDisconnects.getDisposedCount();
+
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), work);
+        assertThat(work.isDisposed()).isFalse();
+
+        closeConnection();
+        assertThat(work.isDisposed()).isTrue();
+        assertThat(ClientDisconnects.getDisposedCount()).isEqualTo(disposedBefore + 1);
+    }
+
+    @Test
+    public void registersOneCloseListenerPerConnection() {
+        final Disposable first = Disposables.empty();
+        final Disposable second = Disposables.empty();
+
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), first);
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), second);
+        verify(connection, times(1)).addCloseListener(any());
+
+        closeConnection();
+        assertThat(first.isDisposed()).isTrue();
+        assertThat(second.isDisposed()).isTrue();
+    }
+
+    @Test
+    public void keepsWorkOfCompletedExchanges() throws Exception {
+        final HttpServerExchange exchange = spy(new HttpServerExchange(connection));
+        final Disposable work = Disposables.empty();
+        final long disposedBefore = ClientDisconnects.getDisposedCount();
+
+        ClientDisconnects.disposeOnDisconnect(exchange, work);
+
+        final ArgumentCaptor<ExchangeCompletionListener> completionListener = //
+            ArgumentCaptor.forClass(ExchangeCompletionListener.class);
+        verify(exchange).addExchangeCompleteListener(completionListener.capture());
+        completionListener.getValue().exchangeEvent(exchange, mock(ExchangeCompletionListener.NextListener.class));
+
+        closeConnection();
+        assertThat(work.isDisposed()).isFalse();
+        assertThat(ClientDisconnects.getDisposedCount()).isEqualTo(disposedBefore);
+    }
+
+    @Test
+    public void doesNotCountWorkThatHasBeenDisposedAlready() {
+        final Disposable work = Disposables.empty();
+        final long disposedBefore = ClientDisconnects.getDisposedCount();
+
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), work);
+        work.dispose();
+
+        closeConnection();
+        assertThat(ClientDisconnects.getDisposedCount()).isEqualTo(disposedBefore);
+    }
+
+    @Test
+    public void disposesWorkRightAwayIfConnectionHasBeenClosed() {
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), Disposables.empty());
+        closeConnection();
+
+        final Disposable work = Disposables.empty();
+        ClientDisconnects.disposeOnDisconnect(new HttpServerExchange(connection), work);
+
+        assertThat(work.isDisposed()).isTrue();
+    }
+
+    private void closeConnection() {
+        final ArgumentCaptor<ServerConnection.CloseListener> closeListener = //
+            ArgumentCaptor.forClass(ServerConnection.CloseListener.class);
+        verify(connection).addCloseListener(closeListener.capture());
+        closeListener.getValue().closed(connection);
+    }
+}
@@ -0,0 +1,66 @@
+package org.zalando.undertaking;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonSyntaxException;
+
+public class JsonArrayElementSplitterTest {
+
+    private final JsonArrayElementSplitter underTest = new JsonArrayElementSplitter();
+
+    @Test
+    public void splitsElementsAcrossChunks() {
+        final List<String> elements = new ArrayList<>();
+        elements.addAll(split(" [ {\"a\": [1, 2], \"b\": \"],\\\"}\"}"));
+        elements.addAll(split(" , 42 ,\"x"));
+        elements.addAll(split("y\", null,[[]]] \n"));
+        underTest.finish();
+
+        assertThat(elements).containsExactly("{\"a\": [1, 2], \"b\": \"],\\\"}\"} ", "42 ", "\"xy\"", "null", "[[]]");
+    }
+
+    @Test
+    public void splitsEmptyArrays() {
+        assertThat(split("[ ]")).isEmpty();
+        underTest.finish();
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsNonArrays() {
+        split("{\"a\": 1}");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsTrailingCommas() {
+        split("[1, ]");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsTrailingContent() {
+        split("[1] 2");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsUnterminatedArrays() {
+        split("[1, 2");
+        underTest.finish();
+    }
+
+    private List<String> split(final String chunk) {
+        final List<String> elements = new ArrayList<>();
+        for (final byte[] element : underTest.split(ByteBuffer.wrap(chunk.getBytes(UTF_8)))) {
+            elements.add(new String(element, UTF_8));
+        }
+
+        return elements;
+    }
+}
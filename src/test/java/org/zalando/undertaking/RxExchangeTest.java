@@ -1,5 +1,7 @@
 package org.zalando.undertaking;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import static org.hamcrest.Matchers.is;
@@ -10,11 +12,24 @@ import static org.mockito.ArgumentMatchers.same;
 
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import java.lang.reflect.Field;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -23,32 +38,80 @@ import org.junit.runner.RunWith;
 
 import org.mockito.*;
 
+import org.mockito.invocation.InvocationOnMock;
+
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.xnio.ChannelListeners;
+import org.xnio.XnioIoThread;
+
+import org.xnio.conduits.ConduitStreamSinkChannel;
+import org.xnio.conduits.ConduitStreamSourceChannel;
+import org.xnio.conduits.StreamSinkConduit;
+import org.xnio.conduits.StreamSourceConduit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 
+import io.reactivex.observers.TestObserver;
+
+import io.reactivex.processors.PublishProcessor;
+
+import io.reactivex.subjects.SingleSubject;
+
+import io.reactivex.subscribers.TestSubscriber;
+
 import io.undertow.io.Receiver;
 import io.undertow.io.Receiver.ErrorCallback;
 import io.undertow.io.Receiver.FullStringCallback;
+import io.undertow.io.Receiver.PartialBytesCallback;
 
+import io.undertow.server.DefaultByteBufferPool;
+import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.ServerConnection;
 
+import io.undertow.util.Headers;
 import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RxExchangeTest {
 
+    private static final String MULTIPART_BODY =                                        //
+        "--xyz\r\n"                                                                      //
+            + "Content-Disposition: form-data; name=\"field\"\r\n\r\n"                     //
+            + "value\r\n"                                                                //
+            + "--xyz\r\n"                                                                //
+            + "Content-Disposition: form-data; name=\"upload\"; filename=\"a.txt\"\r\n"    //
+            + "Content-Type: text/plain\r\n\r\n"                                         //
+            + "file content\r\n"                                                         //
+            + "--xyz--\r\n";
+
     @Mock
     private Receiver receiver;
 
     @Mock
     private HttpHandler handler;
 
+    @Mock
+    private StreamSinkConduit sinkConduit;
+
+    private ConduitStreamSinkChannel sinkChannel;
+
+    private final ByteArrayOutputStream response = new ByteArrayOutputStream();
+
     @Captor
     private ArgumentCaptor<FullStringCallback> fullStringCallback;
 
+    @Captor
+    private ArgumentCaptor<PartialBytesCallback> partialBytesCallback;
+
     @Captor
     private ArgumentCaptor<ErrorCallback> errorCallback;
 
@@ -88,6 +151,55 @@ public class RxExchangeTest {
         verify(exchange).endExchange();
     }
 
+    @Test
+    public void dispatchExecutesSynchronouslyAvailableHandlerInline() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+
+        RxExchange.dispatch(Single.just(handler), exchange);
+
+        verify(handler).handleRequest(same(exchange));
+        assertThat(exchange.isDispatched(), is(false));
+    }
+
+    @Test
+    public void dispatchExecutesAsynchronouslyEmittedHandler() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final SingleSubject<HttpHandler> handlerSingle = SingleSubject.create();
+
+        RxExchange.dispatch(handlerSingle, exchange);
+        verify(handler, never()).handleRequest(any());
+
+        handlerSingle.onSuccess(handler);
+        verify(handler).handleRequest(same(exchange));
+    }
+
+    @Test
+    public void dispatchDisposesHandlerSingleWhenExchangeCompletes() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final SingleSubject<HttpHandler> handlerSingle = SingleSubject.create();
+
+        RxExchange.dispatch(handlerSingle, exchange);
+        assertThat(handlerSingle.hasObservers(), is(true));
+
+        exchange.endExchange();
+        assertThat(handlerSingle.hasObservers(), is(false));
+    }
+
+    @Test
+    public void dispatchDisposesHandlerSingleWhenClientDisconnects() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final SingleSubject<HttpHandler> handlerSingle = SingleSubject.create();
+
+        RxExchange.dispatch(handlerSingle, exchange);
+
+        final ArgumentCaptor<ServerConnection.CloseListener> closeListener = //
+            ArgumentCaptor.forClass(ServerConnection.CloseListener.class);
+        verify(exchange.getConnection()).addCloseListener(closeListener.capture());
+        closeListener.getValue().closed(exchange.getConnection());
+
+        assertThat(handlerSingle.hasObservers(), is(false));
+    }
+
     @Test
     public void receiveFullStringForwardsMessage() throws Exception {
         final HttpServerExchange exchange = new HttpServerExchange(mock(ServerConnection.class));
@@ -103,6 +215,24 @@ public class RxExchangeTest {
         assertThat(single.blockingGet(), is(sameInstance(message)));
     }
 
+    @Test
+    public void receiveFullStringReplaysMessage() throws Exception {
+        final HttpServerExchange exchange = new HttpServerExchange(mock(ServerConnection.class));
+        final Field receiverField = HttpServerExchange.class.getDeclaredField("receiver");
+        receiverField.setAccessible(true);
+        receiverField.set(exchange, receiver);
+
+        final Single<String> single = RxExchange.receiveFullString(exchange);
+        final TestObserver<String> early = single.test();
+        final TestObserver<String> disposed = single.test(true);
+
+        fullStringCallback.getValue().handle(exchange, "foo");
+
+        early.assertResult("foo");
+        disposed.assertEmpty();
+        single.test().assertResult("foo");
+    }
+
     @Test
     public void receiveFullStringForwardsError() throws Exception {
         final HttpServerExchange exchange = new HttpServerExchange(mock(ServerConnection.class));
@@ -117,4 +247,479 @@ public class RxExchangeTest {
 
         single.test().assertError(exception);
     }
+
+    @Test
+    public void receiveStartsReadingOnDemand() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<ByteBuffer> test = RxExchange.receive(exchange).test(0);
+        verify(receiver, never()).receivePartialBytes(any(), any());
+
+        test.request(1);
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+    }
+
+    @Test
+    public void receiveEmitsChunks() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<String> test = RxExchange.receive(exchange).map(RxExchangeTest::decode).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        partialBytesCallback.getValue().handle(exchange, "foo".getBytes(UTF_8), false);
+        partialBytesCallback.getValue().handle(exchange, "bar".getBytes(UTF_8), false);
+        partialBytesCallback.getValue().handle(exchange, new byte[0], true);
+
+        test.assertResult("foo", "bar");
+        verify(receiver, never()).pause();
+    }
+
+    @Test
+    public void receivePausesWithoutDemand() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<String> test = RxExchange.receive(exchange).map(RxExchangeTest::decode).test(1);
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        partialBytesCallback.getValue().handle(exchange, "foo".getBytes(UTF_8), false);
+        verify(receiver).pause();
+
+        test.request(1);
+        verify(receiver).resume();
+
+        partialBytesCallback.getValue().handle(exchange, "bar".getBytes(UTF_8), true);
+        test.assertResult("foo", "bar");
+    }
+
+    @Test
+    public void receiveForwardsError() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<ByteBuffer> test = RxExchange.receive(exchange).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        final IOException exception = new IOException("foo");
+        errorCallback.getValue().error(exchange, exception);
+
+        test.assertError(exception);
+    }
+
+    @Test
+    public void receiveCanOnlyBeSubscribedOnce() throws Exception {
+        final Flowable<ByteBuffer> body = RxExchange.receive(exchangeWithReceiver());
+
+        body.test(0);
+        body.test().assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void receiveJsonDecodesChunks() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestObserver<Map<String, String>> test =
+            RxExchange.<Map<String, String>>receiveJson(exchange, new Gson(), Map.class).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        final byte[] payload = "{\"name\":\"J\u00f6rg\"}".getBytes(UTF_8);
+        final int split = 12; // in between the two bytes of the umlaut
+        partialBytesCallback.getValue().handle(exchange, Arrays.copyOfRange(payload, 0, split), false);
+        partialBytesCallback.getValue().handle(exchange, Arrays.copyOfRange(payload, split, payload.length), true);
+
+        test.assertResult(Collections.singletonMap("name", "J\u00f6rg"));
+    }
+
+    @Test
+    public void receiveJsonRejectsEmptyBody() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestObserver<Object> test = RxExchange.receiveJson(exchange, new Gson(), Map.class).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, new byte[0], true);
+
+        test.assertError(JsonParseException.class);
+    }
+
+    @Test
+    public void receiveJsonRejectsMalformedBody() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestObserver<Object> test = RxExchange.receiveJson(exchange, new Gson(), Map.class).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "{\"name\":".getBytes(UTF_8), true);
+
+        test.assertError(JsonParseException.class);
+    }
+
+    @Test
+    public void receiveJsonArrayEmitsElementsOnDemand() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<Map<String, Double>> test =
+            RxExchange.<Map<String, Double>>receiveJsonArray(exchange, new Gson(), Map.class).test(1);
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        partialBytesCallback.getValue().handle(exchange, "[{\"a\":1},{\"a\":2},".getBytes(UTF_8), false);
+        test.assertValues(Collections.singletonMap("a", 1.0));
+        verify(receiver).pause();
+
+        test.request(1);
+        test.assertValueCount(2);
+        verify(receiver).resume();
+
+        partialBytesCallback.getValue().handle(exchange, "{\"a\":3}]".getBytes(UTF_8), true);
+        test.assertValueCount(2);
+        test.assertNotComplete();
+
+        test.request(1);
+        test.assertValueCount(3);
+        test.assertComplete();
+    }
+
+    @Test
+    public void receiveJsonArrayRejectsNullElements() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<Object> test = RxExchange.receiveJsonArray(exchange, new Gson(), Map.class).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "[{},null]".getBytes(UTF_8), true);
+
+        test.assertValueCount(1);
+        test.assertError(JsonParseException.class);
+    }
+
+    @Test
+    public void receiveJsonArrayRejectsUnterminatedArrays() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestSubscriber<Object> test = RxExchange.receiveJsonArray(exchange, new Gson(), Map.class).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "[{},{}".getBytes(UTF_8), true);
+
+        test.assertValueCount(1);
+        test.assertError(JsonParseException.class);
+    }
+
+    @Test
+    public void receiveBufferedKeepsSmallBodiesInMemory() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+
+        final TestObserver<BufferedRequestBody> test = RxExchange.receiveBuffered(exchange, 6).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "foo".getBytes(UTF_8), false);
+        partialBytesCallback.getValue().handle(exchange, "bar".getBytes(UTF_8), true);
+
+        final BufferedRequestBody body = test.assertComplete().values().get(0);
+        assertThat(body.isInMemory(), is(true));
+        assertThat(body.length(), is(6L));
+        assertThat(decode(body.asByteBuffer()), is("foobar"));
+    }
+
+    @Test
+    public void receiveBufferedSpillsLargeBodiesToDisk() throws Exception {
+        final HttpServerExchange exchange = spy(exchangeWithReceiver());
+
+        final TestObserver<BufferedRequestBody> test = RxExchange.receiveBuffered(exchange, 4).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "foo".getBytes(UTF_8), false);
+        partialBytesCallback.getValue().handle(exchange, "bar".getBytes(UTF_8), false);
+        partialBytesCallback.getValue().handle(exchange, "baz".getBytes(UTF_8), true);
+
+        assertThat(test.awaitTerminalEvent(5, TimeUnit.SECONDS), is(true));
+        final BufferedRequestBody body = test.assertComplete().values().get(0);
+        assertThat(body.isInMemory(), is(false));
+        assertThat(body.length(), is(9L));
+        assertThat(decode(body.asByteBuffer()), is("foobarbaz"));
+
+        final ArgumentCaptor<ExchangeCompletionListener> listener =
+            ArgumentCaptor.forClass(ExchangeCompletionListener.class);
+        verify(exchange).addExchangeCompleteListener(listener.capture());
+
+        final Path file = body.getFile().get();
+        assertThat(Files.exists(file), is(true));
+        listener.getValue().exchangeEvent(exchange, mock(ExchangeCompletionListener.NextListener.class));
+        assertThat(Files.exists(file), is(false));
+    }
+
+    @Test
+    public void receiveBufferedDeletesSpilledBodiesOnError() throws Exception {
+        final HttpServerExchange exchange = spy(exchangeWithReceiver());
+        final List<Path> existingFiles = listSpilledFiles();
+
+        final TestObserver<BufferedRequestBody> test = RxExchange.receiveBuffered(exchange, 0).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, "foo".getBytes(UTF_8), false);
+
+        final ArgumentCaptor<ExchangeCompletionListener> listener =
+            ArgumentCaptor.forClass(ExchangeCompletionListener.class);
+        verify(exchange).addExchangeCompleteListener(listener.capture());
+
+        final IOException exception = new IOException("foo");
+        errorCallback.getValue().error(exchange, exception);
+
+        test.assertError(exception);
+        assertThat(listSpilledFiles(), is(existingFiles));
+    }
+
+    @Test
+    public void receiveMultipartEmitsParts() throws Exception {
+        final HttpServerExchange exchange = multipartExchange();
+
+        final TestSubscriber<String> test =
+            RxExchange.receiveMultipart(exchange)
+                      .concatMap(part ->
+                              part.getContent().map(RxExchangeTest::decode).reduce("", String::concat)
+                                  .map(content -> part.getName().get() + "=" + content).toFlowable())
+                      .test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+        final byte[] body = MULTIPART_BODY.getBytes(UTF_8);
+        for (int i = 0; i < body.length; i += 7) {
+            partialBytesCallback.getValue().handle(exchange, Arrays.copyOfRange(body, i, Math.min(i + 7, body.length)),
+                false);
+        }
+
+        partialBytesCallback.getValue().handle(exchange, new byte[0], true);
+
+        test.assertResult("field=value", "upload=file content");
+    }
+
+    @Test
+    public void receiveMultipartTransfersFileParts() throws Exception {
+        final HttpServerExchange exchange = multipartExchange();
+        final Path file = Files.createTempFile("undertaking-test-", ".upload");
+        try {
+            final TestSubscriber<Long> test =
+                RxExchange.receiveMultipart(exchange)
+                          .concatMap(part ->
+                                  part.getFileName().isPresent() ? part.transferTo(file).toFlowable()
+                                                                 : part.getContent().ignoreElements().<Long>toFlowable())
+                          .test();
+            verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+            partialBytesCallback.getValue().handle(exchange, MULTIPART_BODY.getBytes(UTF_8), true);
+
+            test.awaitDone(5, TimeUnit.SECONDS).assertResult(12L);
+            assertThat(new String(Files.readAllBytes(file), UTF_8), is("file content"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void receiveMultipartTransfersFilePartsReceivedInChunks() throws Exception {
+        final HttpServerExchange exchange = multipartExchange();
+        final Path file = Files.createTempFile("undertaking-test-", ".upload");
+        try {
+            final TestSubscriber<Long> test =
+                RxExchange.receiveMultipart(exchange)
+                          .concatMap(part ->
+                                  part.getFileName().isPresent() ? part.transferTo(file).toFlowable()
+                                                                 : part.getContent().ignoreElements().<Long>toFlowable())
+                          .test();
+            verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+
+            final byte[] body = MULTIPART_BODY.getBytes(UTF_8);
+            for (int i = 0; i < body.length; i += 3) {
+                partialBytesCallback.getValue().handle(exchange,
+                    Arrays.copyOfRange(body, i, Math.min(i + 3, body.length)), false);
+            }
+
+            partialBytesCallback.getValue().handle(exchange, new byte[0], true);
+
+            test.awaitDone(5, TimeUnit.SECONDS).assertResult(12L);
+            assertThat(new String(Files.readAllBytes(file), UTF_8), is("file content"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void receiveMultipartRejectsTruncatedBodies() throws Exception {
+        final HttpServerExchange exchange = multipartExchange();
+
+        final TestSubscriber<ByteBuffer> test =
+            RxExchange.receiveMultipart(exchange).concatMap(MultipartPart::getContent).test();
+        verify(receiver).receivePartialBytes(partialBytesCallback.capture(), errorCallback.capture());
+        partialBytesCallback.getValue().handle(exchange, MULTIPART_BODY.substring(0, 90).getBytes(UTF_8), true);
+
+        test.assertError(IOException.class);
+    }
+
+    @Test
+    public void receiveMultipartRejectsOtherContentTypes() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+        exchange.getRequestHeaders().put(Headers.CONTENT_TYPE, "application/json");
+
+        RxExchange.receiveMultipart(exchange).test().assertError(IllegalArgumentException.class);
+        verify(receiver, never()).receivePartialBytes(any(), any());
+    }
+
+    @Test
+    public void sendWritesChunksAndEndsExchange() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final ExchangeCompletionListener completionListener = mock(ExchangeCompletionListener.class);
+        exchange.addExchangeCompleteListener(completionListener);
+
+        RxExchange.send(exchange, Flowable.just("foo", "bar").map(s -> ByteBuffer.wrap(s.getBytes(UTF_8))));
+
+        assertThat(new String(response.toByteArray(), UTF_8), is("foobar"));
+        verify(completionListener).exchangeEvent(same(exchange), any());
+    }
+
+    @Test
+    public void sendRequestsNextChunkWhenChannelIsWritableAgain() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final List<Long> requests = new ArrayList<>();
+        final PublishProcessor<ByteBuffer> body = PublishProcessor.create();
+
+        when(sinkConduit.write(any(ByteBuffer.class))).thenReturn(0);
+        RxExchange.send(exchange, body.doOnRequest(requests::add));
+        body.onNext(ByteBuffer.wrap("foo".getBytes(UTF_8)));
+
+        assertThat(requests, is(Collections.singletonList(1L)));
+        verify(sinkConduit).resumeWrites();
+
+        when(sinkConduit.write(any(ByteBuffer.class))).then(this::writeResponse);
+        ChannelListeners.invokeChannelListener(sinkChannel, sinkChannel.getWriteListener());
+
+        assertThat(new String(response.toByteArray(), UTF_8), is("foo"));
+        assertThat(requests, is(Arrays.asList(1L, 1L)));
+    }
+
+    @Test
+    public void sendRespondsWithInternalServerErrorIfBodyFailsBeforeFirstChunk() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final ExchangeCompletionListener completionListener = mock(ExchangeCompletionListener.class);
+        exchange.addExchangeCompleteListener(completionListener);
+
+        RxExchange.send(exchange, Flowable.error(new RuntimeException("any error")));
+
+        assertThat(exchange.getStatusCode(), is(StatusCodes.INTERNAL_SERVER_ERROR));
+        verify(completionListener).exchangeEvent(same(exchange), any());
+    }
+
+    @Test
+    public void sendCancelsBodyWhenExchangeCompletesPrematurely() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final PublishProcessor<ByteBuffer> body = PublishProcessor.create();
+
+        RxExchange.send(exchange, body);
+        body.onNext(ByteBuffer.wrap("foo".getBytes(UTF_8)));
+        exchange.endExchange();
+
+        assertThat(body.hasSubscribers(), is(false));
+    }
+
+    @Test
+    public void sendNdjsonWritesOneElementPerLine() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+        final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+        RxExchange.sendNdjson(exchange, Flowable.just(Collections.singletonMap("a", 1), Arrays.asList("b", "c")), gson);
+
+        assertThat(exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE), is("application/x-ndjson"));
+        assertThat(new String(response.toByteArray(), UTF_8), is("{\"a\":1}\n[\"b\",\"c\"]\n"));
+    }
+
+    @Test
+    public void sendEventsWritesServerSentEvents() throws Exception {
+        final HttpServerExchange exchange = exchangeWithResponseChannel();
+
+        RxExchange.sendEvents(exchange, Flowable.just("foo", "bar\nbaz"));
+
+        assertThat(exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE),
+            is("text/event-stream; charset=UTF-8"));
+        assertThat(exchange.getResponseHeaders().getFirst(Headers.CACHE_CONTROL), is("no-cache"));
+        assertThat(new String(response.toByteArray(), UTF_8), is("data: foo\n\ndata: bar\ndata: baz\n\n"));
+    }
+
+    private HttpServerExchange multipartExchange() throws Exception {
+        final HttpServerExchange exchange = exchangeWithReceiver();
+        when(exchange.getConnection().getByteBufferPool()).thenReturn(new DefaultByteBufferPool(false, 1024));
+        exchange.getRequestHeaders().put(Headers.CONTENT_TYPE, "multipart/form-data; boundary=\"xyz\"");
+        return exchange;
+    }
+
+    private HttpServerExchange exchangeWithReceiver() throws Exception {
+        final ServerConnection connection = mock(ServerConnection.class);
+        final XnioIoThread ioThread = mock(XnioIoThread.class);
+        doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(0)).run();
+                return null;
+            }).when(ioThread).execute(any());
+        when(connection.getIoThread()).thenReturn(ioThread);
+
+        final HttpServerExchange exchange = new HttpServerExchange(connection);
+        final Field receiverField = HttpServerExchange.class.getDeclaredField("receiver");
+        receiverField.setAccessible(true);
+        receiverField.set(exchange, receiver);
+        return exchange;
+    }
+
+    /**
+     * Creates an exchange without request body whose response channel writes to {@link #sinkConduit}, which appends
+     * everything written to {@link #response}. {@code ServerConnection} exposes its channels only to its own package,
+     * hence the default answer.
+     */
+    private HttpServerExchange exchangeWithResponseChannel() throws Exception {
+        final XnioIoThread ioThread = mock(XnioIoThread.class);
+        doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(0)).run();
+                return null;
+            }).when(ioThread).execute(any());
+
+        when(sinkConduit.write(any(ByteBuffer.class))).then(this::writeResponse);
+        when(sinkConduit.flush()).thenReturn(true);
+        sinkChannel = new ConduitStreamSinkChannel(null, sinkConduit);
+
+        final StreamSourceConduit sourceConduit = mock(StreamSourceConduit.class);
+        when(sourceConduit.read(any(ByteBuffer.class))).thenReturn(-1);
+
+        final ConduitStreamSourceChannel sourceChannel = new ConduitStreamSourceChannel(null, sourceConduit);
+        final ServerConnection connection = mock(ServerConnection.class,
+                invocation -> {
+                    switch (invocation.getMethod().getName()) {
+
+                        case "getIoThread" :
+                            return ioThread;
+
+                        case "getSinkChannel" :
+                            return sinkChannel;
+
+                        case "getSourceChannel" :
+                            return sourceChannel;
+
+                        case "getSinkConduit" :
+                            return invocation.getArgument(1);
+
+                        default :
+                            return RETURNS_DEFAULTS.answer(invocation);
+                    }
+                });
+
+        return new HttpServerExchange(connection);
+    }
+
+    private int writeResponse(final InvocationOnMock invocation) {
+        final ByteBuffer buffer = invocation.getArgument(0);
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            response.write(buffer.get());
+        }
+
+        return length;
+    }
+
+    private static List<Path> listSpilledFiles() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")),
+                        "undertaking-*.body")) {
+            stream.forEach(files::add);
+        }
+
+        return files;
+    }
+
+    private static String decode(final ByteBuffer buffer) {
+        return UTF_8.decode(buffer).toString();
+    }
 }
@@ -0,0 +1,44 @@
+package org.zalando.undertaking.ahc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BackoffTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void noneRetriesImmediately() {
+        assertThat(Backoff.none().delayNanos(3, 0)).isZero();
+    }
+
+    @Test
+    public void fullJitterStaysBelowExponentialBound() {
+        final Backoff underTest = Backoff.fullJitter(10, 100, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(underTest.delayNanos(1, 0)).isBetween(0L, 10 * MILLIS);
+            assertThat(underTest.delayNanos(3, 0)).isBetween(0L, 40 * MILLIS);
+            assertThat(underTest.delayNanos(100, 0)).isBetween(0L, 100 * MILLIS);
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterGrowsFromPreviousDelay() {
+        final Backoff underTest = Backoff.decorrelatedJitter(10, 100, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(underTest.delayNanos(1, 0)).isBetween(10 * MILLIS, 30 * MILLIS);
+            assertThat(underTest.delayNanos(2, 20 * MILLIS)).isBetween(10 * MILLIS, 60 * MILLIS);
+            assertThat(underTest.delayNanos(5, 90 * MILLIS)).isBetween(10 * MILLIS, 100 * MILLIS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapBelowBase() {
+        Backoff.fullJitter(10, 5, TimeUnit.MILLISECONDS);
+    }
+}
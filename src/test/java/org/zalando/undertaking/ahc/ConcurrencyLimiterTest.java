@@ -0,0 +1,157 @@
+package org.zalando.undertaking.ahc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import io.reactivex.Single;
+
+import io.reactivex.observers.TestObserver;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import io.reactivex.subjects.SingleSubject;
+
+public class ConcurrencyLimiterTest {
+    private TestScheduler testScheduler;
+    private TimeoutScheduler timeouts;
+    private SingleSubject<String> first;
+    private SingleSubject<String> second;
+
+    @Before
+    public void setUp() {
+        testScheduler = new TestScheduler();
+        timeouts = TimeoutScheduler.using(() -> testScheduler);
+        first = SingleSubject.create();
+        second = SingleSubject.create();
+    }
+
+    @Test
+    public void rejectsRightAwayIfLimitIsReached() {
+        final ConcurrencyLimiter underTest = ConcurrencyLimiter.builder().initialLimit(1).build();
+
+        underTest.limit(first, timeouts).test();
+        underTest.limit(second, timeouts).test().assertError(ConcurrencyLimitExceededException.class);
+
+        assertThat(second.hasObservers()).isFalse();
+        assertThat(underTest.getInFlight()).isEqualTo(1);
+        assertThat(underTest.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void waitsForReleasedPermit() {
+        final ConcurrencyLimiter underTest = waitingLimiter();
+
+        underTest.limit(first, timeouts).test();
+
+        final TestObserver<String> waiting = underTest.limit(second, timeouts).test();
+        assertThat(second.hasObservers()).isFalse();
+        assertThat(underTest.getQueued()).isEqualTo(1);
+
+        first.onSuccess("first");
+        second.onSuccess("second");
+
+        waiting.assertValue("second");
+        assertThat(underTest.getQueued()).isZero();
+        assertThat(underTest.getInFlight()).isZero();
+        assertThat(underTest.getWaitedCount()).isEqualTo(1);
+        assertThat(underTest.getRejectedCount()).isZero();
+    }
+
+    @Test
+    public void rejectsAfterMaximumWait() {
+        final ConcurrencyLimiter underTest = waitingLimiter();
+
+        underTest.limit(first, timeouts).test();
+
+        final TestObserver<String> waiting = underTest.limit(second, timeouts).test();
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        waiting.assertError(ConcurrencyLimitExceededException.class);
+        assertThat(underTest.getQueued()).isZero();
+        assertThat(underTest.getQueueTimeNanos()).isGreaterThan(0);
+        assertThat(underTest.getRejectedCount()).isEqualTo(1);
+
+        first.onSuccess("first");
+        assertThat(underTest.getInFlight()).isZero();
+    }
+
+    @Test
+    public void rejectsRightAwayIfQueueIsFull() {
+        final ConcurrencyLimiter underTest = waitingLimiter();
+
+        underTest.limit(first, timeouts).test();
+        underTest.limit(second, timeouts).test();
+        underTest.limit(Single.just("third"), timeouts).test().assertError(ConcurrencyLimitExceededException.class);
+
+        assertThat(underTest.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    public void releasesPermitsOfDisposedRequests() {
+        final ConcurrencyLimiter underTest = waitingLimiter();
+
+        final TestObserver<String> running = underTest.limit(first, timeouts).test();
+        final TestObserver<String> waiting = underTest.limit(second, timeouts).test();
+
+        waiting.dispose();
+        assertThat(underTest.getQueued()).isZero();
+
+        running.dispose();
+        assertThat(underTest.getInFlight()).isZero();
+        assertThat(first.hasObservers()).isFalse();
+
+        underTest.limit(Single.just("third"), timeouts).test().assertValue("third");
+    }
+
+    @Test
+    public void adaptsLimitToLatency() {
+        final ConcurrencyLimiter underTest = ConcurrencyLimiter.builder().initialLimit(2).limitBounds(1, 10).build();
+
+        underTest.limit(Single.just("fast"), timeouts).test();
+        underTest.limit(Single.just("fast"), timeouts).test();
+        underTest.limit(Single.just("fast"), timeouts).test();
+        assertThat(underTest.getLimit()).isEqualTo(3);
+
+        underTest.limit(Single.error(new TimeoutException()), timeouts).test();
+        assertThat(underTest.getLimit()).isEqualTo(2);
+
+        underTest.limit(Single.error(new IllegalStateException()), timeouts).test();
+        assertThat(underTest.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void decreasesLimitOnSlowResponses() {
+        final ConcurrencyLimiter underTest = ConcurrencyLimiter.builder().initialLimit(10).limitBounds(5, 10)
+                                                               .latencyThreshold(1, TimeUnit.NANOSECONDS).build();
+
+        for (int i = 0; i < 20; i++) {
+            underTest.limit(Single.just("slow").delay(1, TimeUnit.MILLISECONDS, testScheduler), timeouts).test();
+            testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(underTest.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    public void decreasesLimitIfDisposedAfterDeadline() {
+        final ConcurrencyLimiter underTest = ConcurrencyLimiter.builder().initialLimit(10).build();
+
+        underTest.limit(first, timeouts, System.nanoTime() + TimeUnit.HOURS.toNanos(1)).test().dispose();
+        assertThat(underTest.getLimit()).isEqualTo(10);
+
+        underTest.limit(second, timeouts, System.nanoTime()).test().dispose();
+        assertThat(underTest.getLimit()).isEqualTo(9);
+        assertThat(underTest.getInFlight()).isZero();
+    }
+
+    private ConcurrencyLimiter waitingLimiter() {
+        return ConcurrencyLimiter.builder().initialLimit(1).maxWait(100, TimeUnit.MILLISECONDS, 1).build();
+    }
+}
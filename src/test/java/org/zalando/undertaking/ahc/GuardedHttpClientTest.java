@@ -1,28 +1,41 @@
 package org.zalando.undertaking.ahc;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static org.assertj.core.api.Java6Assertions.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 
 import static org.mockito.Mockito.*;
 
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
+import java.lang.ref.WeakReference;
+
 import java.net.SocketTimeoutException;
 
+import java.nio.ByteBuffer;
+
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.asynchttpclient.BoundRequestBuilder;
 import org.asynchttpclient.Response;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
 import com.google.common.collect.ImmutableSet;
 
 import io.github.robwin.circuitbreaker.CircuitBreaker;
+import io.github.robwin.circuitbreaker.CircuitBreakerConfig;
 import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
 
 import io.reactivex.Single;
@@ -34,6 +47,8 @@ import io.reactivex.plugins.RxJavaPlugins;
 
 import io.reactivex.schedulers.TestScheduler;
 
+import io.reactivex.subjects.SingleSubject;
+
 public class GuardedHttpClientTest {
     private GuardedHttpClient underTest;
     private BoundRequestBuilder boundRequestBuilder;
@@ -51,6 +66,11 @@ public class GuardedHttpClientTest {
         defaultBuilder = ClientConfig.builder().circuitBreakerName("testBreaker");
     }
 
+    @After
+    public void tearDown() {
+        RxJavaPlugins.reset();
+    }
+
     @Test
     public void success() {
         single = spy(Single.just(mock(Response.class)));
@@ -141,6 +161,336 @@ public class GuardedHttpClientTest {
         assertThat(circuitBreakerMetrics("testBreaker").getNumberOfFailedCalls()).isEqualTo(0);
     }
 
+    @Test
+    public void parsesResponseBody() {
+        final Response response = mock(Response.class);
+        when(response.getStatusCode()).thenReturn(200);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(ByteBuffer.wrap("body".getBytes(UTF_8)));
+        single = spy(Single.just(response));
+
+        underTest.executeRequest(boundRequestBuilder, (statusCode, body) -> statusCode + ": " + body,
+            defaultBuilder.build()).test().assertValue("200: body");
+    }
+
+    @Test
+    public void resolvesCircuitBreakerOncePerConfig() {
+        circuitBreakerRegistry = spy(CircuitBreakerRegistry.ofDefaults());
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single);
+        single = Single.just(mock(Response.class));
+
+        // Endpoints are cached as long as they are referenced.
+        final ClientConfig config = defaultBuilder.build();
+        final GuardedEndpoint endpoint = underTest.endpoint(config);
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertValue("completed");
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertValue("completed");
+
+        assertThat(underTest.endpoint(config)).isSameAs(underTest.endpoint(config)).isSameAs(endpoint);
+        verify(circuitBreakerRegistry, times(1)).circuitBreaker(eq("testBreaker"), any(CircuitBreakerConfig.class));
+    }
+
+    @Test
+    public void evictsEndpointsOfDroppedConfigs() throws InterruptedException {
+        single = Single.just(mock(Response.class));
+
+        ClientConfig config = defaultBuilder.build();
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertValue("completed");
+        assertThat(underTest.cachedEndpoints()).isEqualTo(1);
+
+        final WeakReference<ClientConfig> ref = new WeakReference<>(config);
+        config = null;
+        for (int i = 0; i < 50 && (ref.get() != null || underTest.cachedEndpoints() > 0); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(ref.get()).isNull();
+        assertThat(underTest.cachedEndpoints()).isZero();
+    }
+
+    @Test
+    public void executesRequestsViaEndpoint() {
+        single = spy(Single.error(new SocketTimeoutException()));
+
+        final GuardedEndpoint endpoint = underTest.endpoint(defaultBuilder.maxRetries(2).build());
+
+        endpoint.executeRequest(boundRequestBuilder, staticMessage()).test().assertError(SocketTimeoutException.class);
+
+        verifyNumberOfSubscribes(single, 3);
+        assertThat(endpoint.getCircuitBreaker().getName()).isEqualTo("testBreaker");
+        assertThat(circuitBreakerMetrics("testBreaker").getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void delaysRetriesByBackoff() {
+        RxJavaPlugins.setComputationSchedulerHandler((s) -> testScheduler);
+
+        single = spy(Single.error(new SocketTimeoutException()));
+
+        ClientConfig config = defaultBuilder.maxRetries(2)
+                                            .backoff(Backoff.decorrelatedJitter(100, 100, TimeUnit.MILLISECONDS))
+                                            .retryBudget(RetryBudget.unlimited()).build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        verifyNumberOfSubscribes(single, 1);
+
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        verifyNumberOfSubscribes(single, 2);
+
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        verifyNumberOfSubscribes(single, 3);
+        testObserver.assertError(SocketTimeoutException.class);
+    }
+
+    @Test
+    public void schedulesRetryDelaysOnTimeoutScheduler() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+        single = spy(Single.error(new SocketTimeoutException()));
+
+        ClientConfig config = defaultBuilder.maxRetries(1)
+                                            .backoff(Backoff.decorrelatedJitter(100, 100, TimeUnit.MILLISECONDS))
+                                            .build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        verifyNumberOfSubscribes(single, 1);
+
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        verifyNumberOfSubscribes(single, 2);
+        testObserver.assertError(SocketTimeoutException.class);
+    }
+
+    @Test
+    public void doesNotLimitRetriesByDefault() {
+        assertThat(defaultBuilder.build().getRetryBudget()).isSameAs(RetryBudget.unlimited());
+    }
+
+    @Test
+    public void doesNotRetryBeyondBudget() {
+        single = spy(Single.error(new SocketTimeoutException()));
+
+        final RetryBudget budget = RetryBudget.of(10, 2);
+        ClientConfig config = defaultBuilder.maxRetries(5).retryBudget(budget).build();
+
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertError(
+            SocketTimeoutException.class);
+
+        verifyNumberOfSubscribes(single, 3);
+        assertThat(budget.getGrantedCount()).isEqualTo(2);
+        assertThat(budget.getDeniedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void hedgesSlowRequests() {
+        RxJavaPlugins.setComputationSchedulerHandler((s) -> testScheduler);
+
+        final Response response = mock(Response.class);
+        final AtomicInteger subscriptions = new AtomicInteger();
+        final AtomicBoolean primaryDisposed = new AtomicBoolean();
+        single = Single.defer(() ->
+                        subscriptions.getAndIncrement() == 0
+                            ? Single.<Response>never().doOnDispose(() -> primaryDisposed.set(true))
+                            : Single.just(response));
+
+        final HedgePolicy hedgePolicy = HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10);
+        ClientConfig config = defaultBuilder.hedgePolicy(hedgePolicy).build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        testScheduler.advanceTimeBy(49, TimeUnit.MILLISECONDS);
+        assertThat(subscriptions.get()).isEqualTo(1);
+        testObserver.assertNoValues();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        testObserver.assertValue("completed");
+        assertThat(primaryDisposed.get()).isTrue();
+        assertThat(hedgePolicy.getSentCount()).isEqualTo(1);
+        assertThat(hedgePolicy.getWonCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void schedulesHedgeDelaysOnTimeoutScheduler() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+
+        final AtomicInteger subscriptions = new AtomicInteger();
+        single = Single.defer(() ->
+                        subscriptions.getAndIncrement() == 0 ? Single.<Response>never()
+                                                             : Single.just(mock(Response.class)));
+
+        ClientConfig config = defaultBuilder.hedgePolicy(HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10)).build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        testObserver.assertValue("completed");
+        assertThat(subscriptions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void doesNotFailIfHedgeFailsBeforeFirstAttemptSucceeds() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+
+        final SingleSubject<Response> primary = SingleSubject.create();
+        final AtomicInteger subscriptions = new AtomicInteger();
+        single = Single.defer(() ->
+                        subscriptions.getAndIncrement() == 0 ? primary : Single.error(new SocketTimeoutException()));
+
+        final HedgePolicy hedgePolicy = HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10);
+        ClientConfig config = defaultBuilder.hedgePolicy(hedgePolicy).maxRetries(0).build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        assertThat(subscriptions.get()).isEqualTo(2);
+        testObserver.assertNotTerminated();
+
+        primary.onSuccess(mock(Response.class));
+        testObserver.assertValue("completed");
+        assertThat(hedgePolicy.getWonCount()).isZero();
+    }
+
+    @Test
+    public void failsWithFirstErrorOnceAllHedgedAttemptsFailed() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+
+        final SingleSubject<Response> primary = SingleSubject.create();
+        final SingleSubject<Response> hedge = SingleSubject.create();
+        final AtomicInteger subscriptions = new AtomicInteger();
+        single = Single.defer(() -> subscriptions.getAndIncrement() == 0 ? primary : hedge);
+
+        ClientConfig config = defaultBuilder.hedgePolicy(HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10))
+                                            .maxRetries(0).build();
+
+        TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(), config)
+                                                     .test();
+
+        testScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        hedge.onError(new SocketTimeoutException());
+        testObserver.assertNotTerminated();
+
+        primary.onError(new IllegalStateException());
+        testObserver.assertError(SocketTimeoutException.class);
+    }
+
+    @Test
+    public void failsRightAwayIfFirstAttemptFailsBeforeHedging() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+        single = spy(Single.error(new SocketTimeoutException()));
+
+        ClientConfig config = defaultBuilder.hedgePolicy(HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10))
+                                            .maxRetries(0).build();
+
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertError(
+            SocketTimeoutException.class);
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        verifyNumberOfSubscribes(single, 1);
+    }
+
+    @Test
+    public void recordsLatencyOfSuccessfulFirstAttemptsOnly() {
+        single = Single.error(new NullPointerException());
+
+        final HedgePolicy hedgePolicy = HedgePolicy.p95(1, TimeUnit.SECONDS, 10);
+        ClientConfig config = defaultBuilder.hedgePolicy(hedgePolicy).maxRetries(0).build();
+
+        for (int i = 0; i < 64; i++) {
+            underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertError(
+                NullPointerException.class);
+        }
+
+        assertThat(hedgePolicy.getDelayNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+        single = Single.just(mock(Response.class));
+        for (int i = 0; i < 64; i++) {
+            underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertValue("completed");
+        }
+
+        assertThat(hedgePolicy.getDelayNanos()).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void doesNotRecordLatencyOfWinningHedges() {
+        underTest = new GuardedHttpClient(circuitBreakerRegistry, (r) -> single,
+                TimeoutScheduler.using(() -> testScheduler));
+
+        final AtomicInteger subscriptions = new AtomicInteger();
+        single = Single.defer(() ->
+                        subscriptions.getAndIncrement() % 2 == 0 ? Single.<Response>never()
+                                                                 : Single.just(mock(Response.class)));
+
+        final HedgePolicy hedgePolicy = HedgePolicy.p95(1, TimeUnit.MILLISECONDS, 100);
+        ClientConfig config = defaultBuilder.hedgePolicy(hedgePolicy).maxRetries(0).build();
+
+        for (int i = 0; i < 64; i++) {
+            final TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(),
+                        config).test();
+            testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+            testObserver.assertValue("completed");
+        }
+
+        assertThat(hedgePolicy.getWonCount()).isEqualTo(64);
+        assertThat(hedgePolicy.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void doesNotHedgeFastRequests() {
+        RxJavaPlugins.setComputationSchedulerHandler((s) -> testScheduler);
+
+        single = spy(Single.just(mock(Response.class)));
+
+        final HedgePolicy hedgePolicy = HedgePolicy.fixed(50, TimeUnit.MILLISECONDS, 10);
+        ClientConfig config = defaultBuilder.hedgePolicy(hedgePolicy).build();
+
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertValue("completed");
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        verifyNumberOfSubscribes(single, 1);
+        assertThat(hedgePolicy.getSentCount()).isZero();
+    }
+
+    @Test
+    public void doesNotRetryNorRecordRejectedRequests() {
+        single = spy(Single.never());
+
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(1).build();
+        ClientConfig config = defaultBuilder.maxRetries(5).concurrencyLimiter(limiter).build();
+
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test();
+        underTest.executeRequest(boundRequestBuilder, staticMessage(), config).test().assertError(
+            ConcurrencyLimitExceededException.class);
+
+        verifyNumberOfSubscribes(single, 1);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+        assertThat(circuitBreakerMetrics("testBreaker").getNumberOfFailedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void decreasesConcurrencyLimitOnTimeout() {
+        single = Single.never();
+
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(10).build();
+        ClientConfig config = defaultBuilder.timeOutMs(20).maxRetries(0).concurrencyLimiter(limiter).build();
+
+        final TestObserver<String> testObserver = underTest.executeRequest(boundRequestBuilder, staticMessage(),
+                    config).test();
+
+        assertThat(testObserver.awaitTerminalEvent(5, TimeUnit.SECONDS)).isTrue();
+        testObserver.assertError(TimeoutException.class);
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
     private CircuitBreaker.Metrics circuitBreakerMetrics(final String name) {
         return circuitBreakerRegistry.circuitBreaker(name).getMetrics();
     }
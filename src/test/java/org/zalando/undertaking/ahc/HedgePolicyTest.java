@@ -0,0 +1,63 @@
+package org.zalando.undertaking.ahc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class HedgePolicyTest {
+
+    @Test
+    public void noneIsDisabled() {
+        assertThat(HedgePolicy.none().isEnabled()).isFalse();
+        assertThat(HedgePolicy.fixed(1, TimeUnit.MILLISECONDS, 5).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void fixedDelayIgnoresLatencies() {
+        final HedgePolicy underTest = HedgePolicy.fixed(10, TimeUnit.MILLISECONDS, 5);
+
+        for (int i = 0; i < 256; i++) {
+            underTest.record(i);
+        }
+
+        assertThat(underTest.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void tracksPercentileOfLatencies() {
+        final HedgePolicy underTest = HedgePolicy.p95(10, TimeUnit.MILLISECONDS, 5);
+
+        for (int i = 1; i < 64; i++) {
+            underTest.record(i);
+        }
+
+        assertThat(underTest.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+
+        for (int i = 64; i <= 1000; i++) {
+            underTest.record(i);
+        }
+
+        // The latest 256 latencies recorded when recomputing at the 960th one, i.e. 705 to 960.
+        assertThat(underTest.getDelayNanos()).isEqualTo(948);
+    }
+
+    @Test
+    public void capsHedgesToPercentageOfRequests() {
+        final HedgePolicy underTest = HedgePolicy.fixed(1, TimeUnit.MILLISECONDS, 50);
+
+        int sent = 0;
+        for (int i = 0; i < 100; i++) {
+            underTest.requested();
+            if (underTest.tryHedge()) {
+                sent++;
+            }
+        }
+
+        // Ten hedges saved up initially, half a hedge deposited per request afterwards.
+        assertThat(sent).isBetween(55, 60);
+        assertThat(underTest.getSentCount()).isEqualTo(sent);
+        assertThat(underTest.getDeniedCount()).isEqualTo(100 - sent);
+    }
+}
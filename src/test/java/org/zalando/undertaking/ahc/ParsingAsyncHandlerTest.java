@@ -0,0 +1,69 @@
+package org.zalando.undertaking.ahc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.asynchttpclient.AsyncHandler.State;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseStatus;
+
+import org.junit.Test;
+
+public class ParsingAsyncHandlerTest {
+
+    @Test
+    public void handsReceivedPartsToParser() throws Exception {
+        final ParsingAsyncHandler<String> handler = new ParsingAsyncHandler<>((statusCode, body) ->
+                    statusCode + ": " + body);
+
+        assertThat(handler.onStatusReceived(status(200))).isEqualTo(State.CONTINUE);
+        assertThat(handler.onBodyPartReceived(bodyPart("{\"a\":"))).isEqualTo(State.CONTINUE);
+        assertThat(handler.onBodyPartReceived(bodyPart(""))).isEqualTo(State.CONTINUE);
+        assertThat(handler.onBodyPartReceived(bodyPart("1}"))).isEqualTo(State.CONTINUE);
+
+        assertThat(handler.onCompleted()).isEqualTo("200: {\"a\":1}");
+    }
+
+    @Test
+    public void passesNullWithoutBody() throws Exception {
+        final ParsingAsyncHandler<String> handler = new ParsingAsyncHandler<>((statusCode, body) ->
+                    statusCode + ": " + body);
+
+        handler.onStatusReceived(status(204));
+        handler.onBodyPartReceived(bodyPart(""));
+
+        assertThat(handler.onCompleted()).isEqualTo("204: null");
+    }
+
+    @Test
+    public void propagatesParserFailures() {
+        final IllegalStateException failure = new IllegalStateException();
+        final ParsingAsyncHandler<String> handler = new ParsingAsyncHandler<>((statusCode, body) -> {
+                throw failure;
+            });
+
+        assertThatThrownBy(handler::onCompleted).isSameAs(failure);
+    }
+
+    private static HttpResponseStatus status(final int statusCode) {
+        final HttpResponseStatus status = mock(HttpResponseStatus.class);
+        when(status.getStatusCode()).thenReturn(statusCode);
+        return status;
+    }
+
+    private static HttpResponseBodyPart bodyPart(final String content) {
+        final byte[] bytes = content.getBytes(UTF_8);
+        final HttpResponseBodyPart part = mock(HttpResponseBodyPart.class);
+        when(part.length()).thenReturn(bytes.length);
+        if (bytes.length > 0) {
+            when(part.getBodyPartBytes()).thenReturn(bytes);
+        }
+
+        return part;
+    }
+}
@@ -0,0 +1,88 @@
+package org.zalando.undertaking.ahc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+
+import org.asynchttpclient.Response;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+
+public class ResponseBodyTest {
+
+    @Test
+    public void decodesUtf8SpanningMultipleParts() throws IOException {
+        final byte[] bytes = "{\"uid\":\"jürgen 😀\"}".getBytes(UTF_8);
+
+        for (int split = 0; split <= bytes.length; split++) {
+            final ResponseBody body = new ResponseBody(ImmutableList.of(Arrays.copyOfRange(bytes, 0, split),
+                        Arrays.copyOfRange(bytes, split, bytes.length)));
+
+            assertThat(read(body.openUtf8Reader())).isEqualTo("{\"uid\":\"jürgen 😀\"}");
+        }
+    }
+
+    @Test
+    public void replacesMalformedInput() throws IOException {
+        final ResponseBody body = new ResponseBody(ImmutableList.of(new byte[] { 'a', (byte) 0xc3, 'b', (byte) 0xff }));
+
+        assertThat(read(body.openUtf8Reader())).isEqualTo("a�b�");
+    }
+
+    @Test
+    public void readsRawBytes() throws IOException {
+        final ResponseBody body = new ResponseBody(ImmutableList.of(new byte[] { 1, 2 }, new byte[] { 3 }));
+
+        assertThat(ByteStreams.toByteArray(body.openStream())).containsExactly(1, 2, 3);
+        assertThat(body.length()).isEqualTo(3);
+    }
+
+    @Test
+    public void wrapsBodyOfResponse() throws IOException {
+        final byte[] bytes = "{\"a\":1}".getBytes(UTF_8);
+        final Response response = mock(Response.class);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(ByteBuffer.wrap(bytes));
+
+        final ResponseBody body = ResponseBody.of(response);
+
+        assertThat(ByteStreams.toByteArray(body.openStream())).isEqualTo(bytes);
+        assertThat(body.toString()).isEqualTo("{\"a\":1}");
+    }
+
+    @Test
+    public void copiesSlicedBodyOfResponse() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap("xx{\"a\":1}".getBytes(UTF_8));
+        buffer.position(2);
+
+        final Response response = mock(Response.class);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(buffer.slice());
+
+        assertThat(ResponseBody.of(response).toString()).isEqualTo("{\"a\":1}");
+    }
+
+    @Test
+    public void hasNoBodyIfResponseIsEmpty() {
+        final Response response = mock(Response.class);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(ByteBuffer.allocate(0));
+
+        assertThat(ResponseBody.of(response)).isNull();
+    }
+
+    private static String read(final Reader reader) throws IOException {
+        return CharStreams.toString(reader);
+    }
+}
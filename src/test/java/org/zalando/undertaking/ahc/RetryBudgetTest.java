@@ -0,0 +1,61 @@
+package org.zalando.undertaking.ahc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void startsFull() {
+        final RetryBudget underTest = RetryBudget.of(10, 2);
+
+        assertThat(underTest.tryRetry()).isTrue();
+        assertThat(underTest.tryRetry()).isTrue();
+        assertThat(underTest.tryRetry()).isFalse();
+        assertThat(underTest.getAttemptedCount()).isEqualTo(3);
+        assertThat(underTest.getGrantedCount()).isEqualTo(2);
+        assertThat(underTest.getDeniedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void grantsRetriesForPercentageOfRequests() {
+        final RetryBudget underTest = RetryBudget.of(20, 1);
+        underTest.tryRetry();
+
+        for (int i = 0; i < 4; i++) {
+            underTest.deposit();
+        }
+
+        assertThat(underTest.tryRetry()).isFalse();
+
+        underTest.deposit();
+
+        assertThat(underTest.tryRetry()).isTrue();
+        assertThat(underTest.tryRetry()).isFalse();
+    }
+
+    @Test
+    public void savesUpToCapacity() {
+        final RetryBudget underTest = RetryBudget.of(100, 3);
+
+        for (int i = 0; i < 10; i++) {
+            underTest.deposit();
+        }
+
+        assertThat(underTest.getBalance()).isEqualTo(3);
+    }
+
+    @Test
+    public void unlimitedGrantsEveryRetry() {
+        final RetryBudget underTest = RetryBudget.unlimited();
+        final long granted = underTest.getGrantedCount();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(underTest.tryRetry()).isTrue();
+        }
+
+        assertThat(underTest.getGrantedCount() - granted).isEqualTo(1000);
+        assertThat(underTest.getDeniedCount()).isZero();
+    }
+}
@@ -0,0 +1,62 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.AbstractObjectAssert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+public class CacheDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+    private Cache<String, String> cache;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        cache = CacheBuilder.newBuilder().maximumSize(1).recordStats().build();
+
+        CacheDropwizardMetrics.register("auth/tokenInfo", cache::stats, metricRegistry);
+    }
+
+    @Test
+    public void publishesHitsAndMisses() {
+        cache.put("a", "a");
+        cache.getIfPresent("a");
+        cache.getIfPresent("b");
+
+        assertGauge("cache.auth.tokenInfo.requests").isEqualTo(2L);
+        assertGauge("cache.auth.tokenInfo.hits").isEqualTo(1L);
+        assertGauge("cache.auth.tokenInfo.misses").isEqualTo(1L);
+        assertGauge("cache.auth.tokenInfo.hitRate").isEqualTo(0.5);
+    }
+
+    @Test
+    public void publishesEvictions() {
+        cache.put("a", "a");
+        cache.put("b", "b");
+
+        assertGauge("cache.auth.tokenInfo.evictions").isEqualTo(1L);
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        CacheDropwizardMetrics.register("auth/tokenInfo", cache::stats, metricRegistry);
+
+        assertGauge("cache.auth.tokenInfo.requests").isEqualTo(0L);
+    }
+
+    private AbstractObjectAssert<?, Object> assertGauge(final String key) {
+        Gauge gauge = metricRegistry.getGauges(MetricFilter.ALL).get(key);
+
+        assertThat(gauge).as("gauge named " + key).isNotNull();
+        return assertThat(gauge.getValue()).as("value of gauge named '" + key + "'");
+    }
+}
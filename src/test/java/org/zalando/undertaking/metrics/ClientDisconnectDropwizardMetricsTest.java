@@ -0,0 +1,37 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.ClientDisconnects;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+public class ClientDisconnectDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        ClientDisconnectDropwizardMetrics.register(metricRegistry);
+    }
+
+    @Test
+    public void publishesDisposedWork() {
+        final Gauge gauge = metricRegistry.getGauges(MetricFilter.ALL).get("disconnects.disposed");
+
+        assertThat(gauge).isNotNull();
+        assertThat(gauge.getValue()).isEqualTo(ClientDisconnects.getDisposedCount());
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        ClientDisconnectDropwizardMetrics.register(metricRegistry);
+
+        assertThat(metricRegistry.getGauges(MetricFilter.ALL)).containsOnlyKeys("disconnects.disposed");
+    }
+}
@@ -0,0 +1,51 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.AbstractObjectAssert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.ahc.ConcurrencyLimiter;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+public class ConcurrencyLimitDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+    private ConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        limiter = ConcurrencyLimiter.builder().initialLimit(7).build();
+
+        ConcurrencyLimitDropwizardMetrics.register("auth/tokenInfo", limiter, metricRegistry);
+    }
+
+    @Test
+    public void publishesLimiterStatistics() {
+        assertGauge("concurrency.auth.tokenInfo.limit").isEqualTo(7);
+        assertGauge("concurrency.auth.tokenInfo.inFlight").isEqualTo(0);
+        assertGauge("concurrency.auth.tokenInfo.queued").isEqualTo(0);
+        assertGauge("concurrency.auth.tokenInfo.waited").isEqualTo(0L);
+        assertGauge("concurrency.auth.tokenInfo.queueTimeNanos").isEqualTo(0L);
+        assertGauge("concurrency.auth.tokenInfo.rejected").isEqualTo(0L);
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        ConcurrencyLimitDropwizardMetrics.register("auth/tokenInfo", ConcurrencyLimiter.unlimited(), metricRegistry);
+
+        assertGauge("concurrency.auth.tokenInfo.limit").isEqualTo(7);
+    }
+
+    private AbstractObjectAssert<?, Object> assertGauge(final String key) {
+        Gauge gauge = metricRegistry.getGauges(MetricFilter.ALL).get(key);
+
+        assertThat(gauge).as("gauge named " + key).isNotNull();
+        return assertThat(gauge.getValue()).as("value of gauge named '" + key + "'");
+    }
+}
@@ -0,0 +1,54 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.api.AbstractObjectAssert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.ahc.RetryBudget;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+public class RetryBudgetDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+    private RetryBudget budget;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        budget = RetryBudget.of(50, 1);
+
+        RetryBudgetDropwizardMetrics.register("auth/tokenInfo", budget, metricRegistry);
+    }
+
+    @Test
+    public void publishesRetryStatistics() {
+        budget.tryRetry();
+        budget.tryRetry();
+
+        assertGauge("retries.auth.tokenInfo.attempted").isEqualTo(2L);
+        assertGauge("retries.auth.tokenInfo.granted").isEqualTo(1L);
+        assertGauge("retries.auth.tokenInfo.denied").isEqualTo(1L);
+        assertGauge("retries.auth.tokenInfo.balance").isEqualTo(0L);
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        RetryBudgetDropwizardMetrics.register("auth/tokenInfo", RetryBudget.unlimited(), metricRegistry);
+
+        budget.tryRetry();
+
+        assertGauge("retries.auth.tokenInfo.granted").isEqualTo(1L);
+    }
+
+    private AbstractObjectAssert<?, Object> assertGauge(final String key) {
+        Gauge gauge = metricRegistry.getGauges(MetricFilter.ALL).get(key);
+
+        assertThat(gauge).as("gauge named " + key).isNotNull();
+        return assertThat(gauge.getValue()).as("value of gauge named '" + key + "'");
+    }
+}
@@ -0,0 +1,63 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.AbstractObjectAssert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.rx.TimeoutScheduler;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.reactivex.disposables.Disposable;
+
+import io.reactivex.schedulers.TestScheduler;
+
+public class TimeoutDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+    private TestScheduler testScheduler;
+    private TimeoutScheduler timeouts;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        testScheduler = new TestScheduler();
+        timeouts = TimeoutScheduler.using(() -> testScheduler);
+
+        TimeoutDropwizardMetrics.register("auth/flow", timeouts, metricRegistry);
+    }
+
+    @Test
+    public void publishesTimeoutStatistics() {
+        final Disposable cancelled = timeouts.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        timeouts.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        cancelled.dispose();
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertGauge("timeouts.auth.flow.scheduled").isEqualTo(2L);
+        assertGauge("timeouts.auth.flow.cancelled").isEqualTo(1L);
+        assertGauge("timeouts.auth.flow.fired").isEqualTo(1L);
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        TimeoutDropwizardMetrics.register("auth/flow", TimeoutScheduler.computation(), metricRegistry);
+
+        timeouts.schedule(() -> { }, 1, TimeUnit.SECONDS);
+
+        assertGauge("timeouts.auth.flow.scheduled").isEqualTo(1L);
+    }
+
+    private AbstractObjectAssert<?, Object> assertGauge(final String key) {
+        Gauge gauge = metricRegistry.getGauges(MetricFilter.ALL).get(key);
+
+        assertThat(gauge).as("gauge named " + key).isNotNull();
+        return assertThat(gauge.getValue()).as("value of gauge named '" + key + "'");
+    }
+}
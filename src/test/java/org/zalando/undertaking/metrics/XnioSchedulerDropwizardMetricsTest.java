@@ -0,0 +1,37 @@
+package org.zalando.undertaking.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.zalando.undertaking.rx.XnioScheduler;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+public class XnioSchedulerDropwizardMetricsTest {
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        XnioSchedulerDropwizardMetrics.register(metricRegistry);
+    }
+
+    @Test
+    public void publishesSchedulerStatistics() {
+        assertThat(metricRegistry.getGauges(MetricFilter.ALL)).containsOnlyKeys( //
+            "schedulers.ioThread.queueDepth", "schedulers.ioThread.executed", "schedulers.ioThread.queueTimeNanos",
+            "schedulers.worker.queueDepth", "schedulers.worker.executed", "schedulers.worker.queueTimeNanos");
+        assertThat(metricRegistry.getGauges(MetricFilter.ALL).get("schedulers.worker.queueDepth").getValue()) //
+        .isEqualTo(XnioScheduler.workerStatistics().getQueueDepth());
+    }
+
+    @Test
+    public void doesNotRegisterTwice() {
+        XnioSchedulerDropwizardMetrics.register(metricRegistry);
+
+        assertThat(metricRegistry.getGauges(MetricFilter.ALL)).hasSize(6);
+    }
+}
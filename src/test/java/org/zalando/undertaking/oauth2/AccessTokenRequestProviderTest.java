@@ -1,5 +1,7 @@
 package org.zalando.undertaking.oauth2;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import static org.hamcrest.Matchers.hasItem;
@@ -17,6 +19,8 @@ import static org.mockito.Mockito.when;
 
 import java.net.URI;
 
+import java.nio.ByteBuffer;
+
 import java.time.Clock;
 import java.time.Instant;
 
@@ -120,7 +124,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void extractsToken() {
         when(response.getStatusCode()).thenReturn(200);
-        when(response.getResponseBody()).thenReturn("{access_token:foo, expires_in:5}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{access_token:foo, expires_in:5}"));
         when(clock.instant()).thenReturn(Instant.ofEpochSecond(0), Instant.ofEpochSecond(60));
         requestSingle = Single.just(response);
 
@@ -138,7 +142,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void handlesClientError() {
         when(response.getStatusCode()).thenReturn(400);
-        when(response.getResponseBody()).thenReturn("{error: foo, error_description: bar}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{error: foo, error_description: bar}"));
         requestSingle = Single.just(response);
 
         expected.expect(BadAccessTokenException.class);
@@ -150,7 +154,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void handlesClientErrorWithEmptyPayload() {
         when(response.getStatusCode()).thenReturn(400);
-        when(response.getResponseBody()).thenReturn("");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8(""));
         requestSingle = Single.just(response);
 
         expected.expect(BadAccessTokenException.class);
@@ -162,7 +166,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void handlesClientErrorWithEmptyJson() {
         when(response.getStatusCode()).thenReturn(400);
-        when(response.getResponseBody()).thenReturn("{}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{}"));
         requestSingle = Single.just(response);
 
         expected.expect(BadAccessTokenException.class);
@@ -174,7 +178,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void handlesClientErrorWithInvalidJson() {
         when(response.getStatusCode()).thenReturn(400);
-        when(response.getResponseBody()).thenReturn("{error}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{error}"));
         requestSingle = Single.just(response);
 
         expected.expect(BadAccessTokenException.class);
@@ -197,7 +201,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void failsOnMalformedJson() {
         when(response.getStatusCode()).thenReturn(200);
-        when(response.getResponseBody()).thenReturn("{access_token}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{access_token}"));
         requestSingle = Single.just(response);
 
         expected.expect(AccessTokenRequestException.class);
@@ -209,7 +213,7 @@ public class AccessTokenRequestProviderTest {
     @Test
     public void failsOnMissingAccessToken() {
         when(response.getStatusCode()).thenReturn(200);
-        when(response.getResponseBody()).thenReturn("{}");
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8("{}"));
         requestSingle = Single.just(response);
 
         expected.expect(AccessTokenRequestException.class);
@@ -269,4 +273,8 @@ public class AccessTokenRequestProviderTest {
     private AccessTokenResponse requestToken() {
         return underTest.requestAccessToken(credentials).blockingGet();
     }
+
+    private static ByteBuffer utf8(final String body) {
+        return ByteBuffer.wrap(body.getBytes(UTF_8));
+    }
 }
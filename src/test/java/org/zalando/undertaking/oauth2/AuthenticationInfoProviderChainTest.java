@@ -12,6 +12,7 @@ import static org.mockito.Mockito.when;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Provider;
@@ -25,10 +26,17 @@ import org.mockito.Mock;
 
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.zalando.undertaking.oauth2.AuthenticationInfoProviderChain.CostOrderedStrategy;
+import org.zalando.undertaking.oauth2.AuthenticationInfoProviderChain.EvaluationStrategy;
+
+import com.google.common.base.Ticker;
+
 import io.reactivex.Single;
 
 import io.reactivex.observers.TestObserver;
 
+import io.reactivex.subjects.SingleSubject;
+
 @RunWith(MockitoJUnitRunner.class)
 public class AuthenticationInfoProviderChainTest {
 
@@ -140,4 +148,76 @@ public class AuthenticationInfoProviderChainTest {
         assertThat(firstSubscribeTimesCalled.get(), is(1L));
         assertThat(secondSubscribeTimesCalled.get(), lessThanOrEqualTo(1L));
     }
+
+    @Test
+    public void sequentialStrategyDoesNotSubscribeToFallbackOnSuccess() {
+        final AtomicBoolean secondSubscribed = new AtomicBoolean();
+        when(first.get()).thenReturn(Single.just(firstInfo));
+        when(second.get()).thenReturn(Single.just(secondInfo).doOnSubscribe(d -> secondSubscribed.set(true)));
+
+        underTest = new AuthenticationInfoProviderChain(Arrays.asList(first, second), EvaluationStrategy.sequential());
+
+        subscribeTo(underTest.get()).assertValue(firstInfo);
+        assertThat(secondSubscribed.get(), is(false));
+    }
+
+    @Test
+    public void sequentialStrategyFallsBackOnBadToken() {
+        when(first.get()).thenReturn(Single.error(new MalformedAccessTokenException()));
+        when(second.get()).thenReturn(Single.just(secondInfo));
+
+        underTest = new AuthenticationInfoProviderChain(Arrays.asList(first, second), EvaluationStrategy.sequential());
+
+        subscribeTo(underTest.get()).assertValue(secondInfo);
+    }
+
+    @Test
+    public void parallelStrategyEmitsFirstSuccessAndCancelsTheRest() {
+        final SingleSubject<AuthenticationInfo> pending = SingleSubject.create();
+        when(first.get()).thenReturn(pending);
+        when(second.get()).thenReturn(Single.just(secondInfo));
+
+        underTest = new AuthenticationInfoProviderChain(Arrays.asList(first, second), EvaluationStrategy.parallel());
+
+        subscribeTo(underTest.get()).assertValue(secondInfo);
+        assertThat(pending.hasObservers(), is(false));
+    }
+
+    @Test
+    public void parallelStrategyIgnoresErrorsIfAnotherProviderSucceeds() {
+        when(first.get()).thenReturn(Single.error(new RuntimeException()));
+        when(second.get()).thenReturn(Single.just(secondInfo));
+
+        underTest = new AuthenticationInfoProviderChain(Arrays.asList(first, second), EvaluationStrategy.parallel());
+
+        subscribeTo(underTest.get()).assertValue(secondInfo);
+    }
+
+    @Test
+    public void costOrderedStrategyPrefersCheaperProviders() {
+        final AtomicLong nanos = new AtomicLong();
+        final Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        final AtomicLong secondSubscribeTimesCalled = new AtomicLong();
+        when(first.get()).thenReturn(Single.<AuthenticationInfo>error(new BadTokenInfoException((String) null,
+                    (String) null)).doOnSubscribe(d -> nanos.addAndGet(1_000_000)));
+        when(second.get()).thenReturn(Single.fromCallable(() -> {
+                secondSubscribeTimesCalled.incrementAndGet();
+                return secondInfo;
+            }));
+
+        final CostOrderedStrategy strategy = new CostOrderedStrategy(ticker);
+        underTest = new AuthenticationInfoProviderChain(Arrays.asList(first, second), strategy);
+
+        subscribeTo(underTest.get()).assertValue(secondInfo);
+        assertThat(strategy.getExpectedCost(0) > strategy.getExpectedCost(1), is(true));
+
+        subscribeTo(underTest.get()).assertValue(secondInfo);
+        assertThat(secondSubscribeTimesCalled.get(), is(2L));
+        assertThat(nanos.get(), is(1_000_000L));
+    }
 }
@@ -1,16 +1,27 @@
 package org.zalando.undertaking.oauth2;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.net.URI;
+
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Provider;
 
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.BoundRequestBuilder;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+
+import org.asynchttpclient.extras.rxjava2.single.AsyncHttpSingle;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -20,8 +31,14 @@ import org.mockito.Mock;
 
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.zalando.undertaking.ahc.GuardedHttpClient;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+
 import io.reactivex.Single;
 
+import io.reactivex.observers.TestObserver;
+
 import io.undertow.util.HeaderMap;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -64,4 +81,26 @@ public class AuthenticationInfoProviderTest {
         single.test().awaitDone(1, TimeUnit.SECONDS).assertValue(authenticationInfo);
     }
 
+    @Test
+    public void cancelsTokenInfoRequestIfDisposed() {
+        final AsyncHttpClient ahc = mock(AsyncHttpClient.class);
+        final AuthenticationInfoSettings settings = mock(AuthenticationInfoSettings.class);
+        final ListenableFuture<?> future = mock(ListenableFuture.class);
+
+        when(settings.getTokenInfoEndpoint()).thenReturn(URI.create("http://localhost/tokeninfo"));
+        when(ahc.prepareGet(anyString())).then(invocation ->
+                new BoundRequestBuilder(ahc, "GET", false).setUrl(invocation.getArgument(0)));
+        doReturn(future).when(ahc).executeRequest(any(Request.class), any());
+
+        final GuardedHttpClient guardedHttpClient = new GuardedHttpClient(CircuitBreakerRegistry.ofDefaults(),
+                AsyncHttpSingle::create);
+        underTest = new AuthenticationInfoProvider(accessTokenProvider, requestHeadersProvider,
+                new TokenInfoRequestProvider(settings, ahc, guardedHttpClient, TokenInfoCache.builder().build()));
+
+        final TestObserver<AuthenticationInfo> lookup = underTest.get().test();
+        verify(ahc).executeRequest(any(Request.class), any());
+
+        lookup.dispose();
+        verify(future).cancel(true);
+    }
 }
@@ -0,0 +1,237 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import java.math.BigInteger;
+
+import java.net.URI;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.asynchttpclient.AsyncHttpClient;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.junit.rules.TemporaryFolder;
+
+import org.zalando.undertaking.ahc.GuardedHttpClient;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import com.google.gson.Gson;
+
+import io.reactivex.observers.TestObserver;
+
+public class JwtValidatorTest {
+
+    private static final Instant NOW = Instant.parse("2017-04-01T12:00:00Z");
+    private static final Gson GSON = new Gson();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static KeyPair rsaKeyPair;
+    private static KeyPair ecKeyPair;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private JwtValidator underTest;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        final KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        rsaKeyPair = rsa.generateKeyPair();
+
+        final KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp256r1"));
+        ecKeyPair = ec.generateKeyPair();
+    }
+
+    @Before
+    public void initializeTest() throws Exception {
+        final RSAPublicKey rsaKey = (RSAPublicKey) rsaKeyPair.getPublic();
+        final ECPublicKey ecKey = (ECPublicKey) ecKeyPair.getPublic();
+
+        final Path jwks = tempFolder.newFile("jwks.json").toPath();
+        Files.write(jwks,
+            GSON.toJson(ImmutableMap.of(
+                    "keys",
+                    ImmutableList.of(
+                        ImmutableMap.of(
+                            "kty", "RSA", "kid", "rsa", "use", "sig",                     //
+                            "n", encode(rsaKey.getModulus()), "e", encode(rsaKey.getPublicExponent())),
+                        ImmutableMap.of(
+                            "kty", "EC", "kid", "ec", "crv", "P-256",                     //
+                            "x", encode(ecKey.getW().getAffineX()), "y", encode(ecKey.getW().getAffineY()))))).getBytes(
+                UTF_8));
+
+        final JwtSettings settings = new JwtSettings() {
+            @Override
+            public URI getJwksLocation() {
+                return jwks.toUri();
+            }
+
+            @Override
+            public String getIssuer() {
+                return "https://issuer.example.org";
+            }
+        };
+
+        final Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        underTest = new JwtValidator(settings,
+                new JsonWebKeySetProvider(settings, mock(AsyncHttpClient.class), mock(GuardedHttpClient.class), clock),
+                clock);
+    }
+
+    @Test
+    public void acceptsRsaSignedToken() throws Exception {
+        final String token = sign("RS256", "rsa", rsaKeyPair.getPrivate(), claims(NOW.plusSeconds(60)));
+
+        final AuthenticationInfo authInfo = validate(token).assertNoErrors().values().get(0);
+
+        assertThat(authInfo.getUid()).contains("testuser");
+        assertThat(authInfo.getScopes()).containsOnly("uid", "read");
+    }
+
+    @Test
+    public void acceptsEcSignedToken() throws Exception {
+        final String token = sign("ES256", "ec", ecKeyPair.getPrivate(),
+                ImmutableMap.of("sub", "testuser", "exp", NOW.plusSeconds(60).getEpochSecond(),                //
+                    "iss", "https://issuer.example.org", "scope", ImmutableList.of("uid", "write")));
+
+        final AuthenticationInfo authInfo = validate(token).assertNoErrors().values().get(0);
+
+        assertThat(authInfo.getScopes()).containsOnly("uid", "write");
+    }
+
+    @Test
+    public void rejectsExpiredToken() throws Exception {
+        final String token = sign("RS256", "rsa", rsaKeyPair.getPrivate(), claims(NOW.minusSeconds(60)));
+
+        assertInvalid(token, "Access Token expired");
+    }
+
+    @Test
+    public void rejectsTamperedToken() throws Exception {
+        final String token = sign("RS256", "rsa", rsaKeyPair.getPrivate(), claims(NOW.plusSeconds(60)));
+        final String otherToken = sign("RS256", "rsa", rsaKeyPair.getPrivate(), claims(NOW.plusSeconds(120)));
+
+        final String[] parts = token.split("\\.");
+        assertInvalid(parts[0] + '.' + otherToken.split("\\.")[1] + '.' + parts[2], "Invalid signature.");
+    }
+
+    @Test
+    public void rejectsTokenSignedWithMismatchingKey() throws Exception {
+        final String token = sign("RS256", "ec", rsaKeyPair.getPrivate(), claims(NOW.plusSeconds(60)));
+
+        assertInvalid(token, "Signing key doesn't match the signature algorithm.");
+    }
+
+    @Test
+    public void rejectsUnknownKey() throws Exception {
+        final String token = sign("RS256", "unknown", rsaKeyPair.getPrivate(), claims(NOW.plusSeconds(60)));
+
+        assertInvalid(token, "Unknown signing key.");
+    }
+
+    @Test
+    public void rejectsUnexpectedIssuer() throws Exception {
+        final String token = sign("RS256", "rsa", rsaKeyPair.getPrivate(),
+                ImmutableMap.of("exp", NOW.plusSeconds(60).getEpochSecond(), "iss", "https://evil.example.org"));
+
+        assertInvalid(token, "Unexpected issuer.");
+    }
+
+    @Test
+    public void rejectsOpaqueToken() {
+        assertInvalid("xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx", "Access Token is not a signed JWT.");
+    }
+
+    @Test
+    public void rejectsUnsignedToken() {
+        final String token = BASE64_URL.encodeToString("{\"alg\":\"none\"}".getBytes(UTF_8)) + '.'
+                + BASE64_URL.encodeToString(GSON.toJson(claims(NOW.plusSeconds(60))).getBytes(UTF_8)) + '.';
+
+        assertInvalid(token, "Unsupported signature algorithm.");
+    }
+
+    private static Map<String, Object> claims(final Instant expiry) {
+        return ImmutableMap.of("sub", "testuser", "exp", expiry.getEpochSecond(), "iss", "https://issuer.example.org",
+                "scope", "uid read");
+    }
+
+    private TestObserver<AuthenticationInfo> validate(final String token) {
+        return underTest.validate(AccessToken.bearer(token)).test().awaitDone(5, TimeUnit.SECONDS);
+    }
+
+    private void assertInvalid(final String token, final String description) {
+        final Throwable error = validate(token).assertError(BadTokenInfoException.class).errors().get(0);
+
+        assertThat(((BadTokenInfoException) error).getErrorDescription()).contains(description);
+    }
+
+    private static String sign(final String algorithm, final String keyId, final PrivateKey key,
+            final Map<String, Object> claims) throws Exception {
+        final String signingInput =
+            BASE64_URL.encodeToString(GSON.toJson(ImmutableMap.of("alg", algorithm, "kid", keyId)).getBytes(UTF_8))
+                + '.' + BASE64_URL.encodeToString(GSON.toJson(claims).getBytes(UTF_8));
+
+        final boolean ecdsa = algorithm.startsWith("ES");
+        final Signature signature = Signature.getInstance(ecdsa ? "SHA256withECDSA" : "SHA256withRSA");
+        signature.initSign(key);
+        signature.update(signingInput.getBytes(UTF_8));
+
+        final byte[] signatureBytes = ecdsa ? derToConcatenated(signature.sign(), 32) : signature.sign();
+        return signingInput + '.' + BASE64_URL.encodeToString(signatureBytes);
+    }
+
+    private static byte[] derToConcatenated(final byte[] der, final int length) {
+        final int rLength = der[3];
+        final byte[] r = Arrays.copyOfRange(der, 4, 4 + rLength);
+        final byte[] s = Arrays.copyOfRange(der, 6 + rLength, der.length);
+
+        final byte[] result = new byte[2 * length];
+        System.arraycopy(unsigned(r, length), 0, result, 0, length);
+        System.arraycopy(unsigned(s, length), 0, result, length, length);
+        return result;
+    }
+
+    private static byte[] unsigned(final byte[] value, final int length) {
+        final byte[] magnitude = new BigInteger(value).toByteArray();
+        final byte[] result = new byte[length];
+        final int offset = magnitude.length > length ? magnitude.length - length : 0;
+        System.arraycopy(magnitude, offset, result, length - (magnitude.length - offset), magnitude.length - offset);
+        return result;
+    }
+
+    private static String encode(final BigInteger value) {
+        final byte[] bytes = value.toByteArray();
+        return BASE64_URL.encodeToString(bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes);
+    }
+}
@@ -0,0 +1,83 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Response;
+
+import org.junit.Test;
+
+import org.zalando.undertaking.ahc.ResponseBody;
+import org.zalando.undertaking.oauth2.OAuth2RequestProvider.ErrorPayload;
+
+public class OAuth2RequestProviderTest {
+
+    private final OAuth2RequestProvider underTest = new OAuth2RequestProvider(mock(AsyncHttpClient.class));
+
+    @Test
+    public void readsErrorPayload() {
+        final ErrorPayload payload = underTest.parse(body("{\"error\":\"foo\",\"error_description\":\"bar\"}"),
+                ErrorPayload.ADAPTER);
+
+        assertThat(payload.error).isEqualTo("foo");
+        assertThat(payload.errorDescription).isEqualTo("bar");
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndNulls() {
+        final ErrorPayload payload = underTest.parse(body(
+                    "{\"details\":{\"a\":[1,2]},\"error\":null,\"error_description\":\"bar\"}"), ErrorPayload.ADAPTER);
+
+        assertThat(payload.error).isNull();
+        assertThat(payload.errorDescription).isEqualTo("bar");
+    }
+
+    @Test
+    public void readsLenientJson() {
+        final ErrorPayload payload = underTest.parse(body("{error: foo}"), ErrorPayload.ADAPTER);
+
+        assertThat(payload.error).isEqualTo("foo");
+    }
+
+    @Test
+    public void returnsNullWithoutPayload() {
+        assertThat(underTest.parse((ResponseBody) null, ErrorPayload.ADAPTER)).isNull();
+        assertThat(underTest.parse(body(" "), ErrorPayload.ADAPTER)).isNull();
+        assertThat(underTest.parse(body("null"), ErrorPayload.ADAPTER)).isNull();
+    }
+
+    @Test
+    public void failsOnMalformedPayload() {
+        assertThatThrownBy(() -> underTest.parse(body("{error}"), ErrorPayload.ADAPTER)) //
+            .isInstanceOf(AccessTokenRequestException.class)                           //
+            .hasMessage("Failed to parse JSON payload");
+    }
+
+    @Test
+    public void writesErrorPayload() throws IOException {
+        final ErrorPayload payload = new ErrorPayload();
+        payload.error = "foo";
+
+        final String json = ErrorPayload.ADAPTER.toJson(payload);
+
+        assertThat(json).isEqualTo("{\"error\":\"foo\",\"error_description\":null}");
+        assertThat(ErrorPayload.ADAPTER.fromJson(json).error).isEqualTo("foo");
+        assertThat(ErrorPayload.ADAPTER.toJson(null)).isEqualTo("null");
+    }
+
+    private static ResponseBody body(final String json) {
+        final Response response = mock(Response.class);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(ByteBuffer.wrap(json.getBytes(UTF_8)));
+        return ResponseBody.of(response);
+    }
+}
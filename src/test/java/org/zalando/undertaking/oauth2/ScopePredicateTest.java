@@ -0,0 +1,36 @@
+package org.zalando.undertaking.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ScopePredicateTest {
+
+    private final AuthenticationInfo authInfo = AuthenticationInfo.builder().scopes("uid", "read").build();
+
+    @Test
+    public void requiresAllScopes() {
+        assertThat(ScopePredicate.requireAll("uid", "read").test(authInfo)).isTrue();
+        assertThat(ScopePredicate.requireAll().test(authInfo)).isTrue();
+        assertThat(ScopePredicate.requireAll("uid", "write").test(authInfo)).isFalse();
+    }
+
+    @Test
+    public void requiresAnyScope() {
+        assertThat(ScopePredicate.requireAny("write", "read").test(authInfo)).isTrue();
+        assertThat(ScopePredicate.requireAny("write", "admin").test(authInfo)).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyAlternatives() {
+        ScopePredicate.requireAny();
+    }
+
+    @Test
+    public void describesRequiredScopes() {
+        assertThat(ScopePredicate.requireAll("write").getErrorDescription(authInfo)).contains(
+            "The request requires all of the scopes write.");
+        assertThat(ScopePredicate.requireAny("write").and(ScopePredicate.requireAll("uid")).getErrorDescription(
+                authInfo)).contains("The request requires one of the scopes write.");
+    }
+}
@@ -0,0 +1,46 @@
+package org.zalando.undertaking.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ScopeSetTest {
+
+    @Test
+    public void behavesLikeASet() {
+        final ScopeSet scopes = ScopeSet.of("uid", "read", "uid");
+
+        assertThat(scopes).containsOnly("uid", "read");
+        assertThat(scopes).hasSize(2);
+        assertThat(scopes).doesNotContain("write");
+        assertThat(scopes.contains(42)).isFalse();
+        assertThat(scopes).isEqualTo(ImmutableSet.of("read", "uid"));
+        assertThat(scopes.hashCode()).isEqualTo(ImmutableSet.of("read", "uid").hashCode());
+    }
+
+    @Test
+    public void internsIdenticalSets() {
+        assertThat(ScopeSet.of("a", "b")).isSameAs(ScopeSet.of("b", "a"));
+        assertThat(ScopeSet.of(ImmutableSet.of())).isSameAs(ScopeSet.of());
+        assertThat(AuthenticationInfo.builder().scopes("a", "b").build().getScopeSet()).isSameAs(ScopeSet.of("a", "b"));
+    }
+
+    @Test
+    public void comparesSetsSpanningMultipleWords() {
+        final ImmutableSet<String> many = IntStream.range(0, 200).mapToObj(i -> "scope" + i).collect(
+                ImmutableSet.toImmutableSet());
+        final ScopeSet all = ScopeSet.of(many);
+
+        assertThat(all).hasSize(200).containsAll(many);
+        assertThat(all.containsAll(ScopeSet.of("scope0", "scope199"))).isTrue();
+        assertThat(ScopeSet.of("scope0").containsAll(all)).isFalse();
+        assertThat(ScopeSet.of("scope199", "other").intersects(all)).isTrue();
+        assertThat(ScopeSet.of("other").intersects(all)).isFalse();
+        assertThat(all.stream().collect(Collectors.toSet())).isEqualTo(many);
+    }
+}
@@ -0,0 +1,386 @@
+package org.zalando.undertaking.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Duration;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.Mockito;
+
+import org.zalando.undertaking.inject.HttpExchangeScope;
+import org.zalando.undertaking.oauth2.authorization.DefaultAuthorizationHandler;
+import org.zalando.undertaking.oauth2.authorization.DefaultAuthorizationHandler.Settings;
+
+import com.google.common.base.Ticker;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerOpenException;
+
+import io.reactivex.Single;
+
+import io.reactivex.observers.TestObserver;
+
+import io.reactivex.subjects.PublishSubject;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+
+import io.undertow.util.SameThreadExecutor;
+
+public class TokenInfoCacheTest {
+
+    private final AccessToken accessToken = AccessToken.bearer("token");
+    private final AuthenticationInfo authInfo = AuthenticationInfo.builder().uid("uid").scopes("uid").build();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private TokenInfoCache underTest;
+
+    @Before
+    public void initializeTest() {
+        underTest = TokenInfoCache.builder().ttl(Duration.ofMinutes(1)).maximumSize(100L).ticker(ticker).build();
+    }
+
+    @Test
+    public void servesRepeatedLookupsFromCache() {
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(underTest.getIfPresent(accessToken)).contains(authInfo);
+        assertThat(underTest.stats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void doesNotLoadOnAssembly() {
+        lookup(Optional.empty());
+
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    public void expiresEntriesAfterTtl() {
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        advance(Duration.ofMinutes(1));
+
+        assertThat(underTest.getIfPresent(accessToken)).isEmpty();
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiresEntriesWithTheirTokens() {
+        lookup(Optional.of(Duration.ofSeconds(10))).test().assertValue(authInfo);
+
+        advance(Duration.ofSeconds(9));
+        assertThat(underTest.getIfPresent(accessToken)).contains(authInfo);
+
+        advance(Duration.ofSeconds(1));
+        assertThat(underTest.getIfPresent(accessToken)).isEmpty();
+    }
+
+    @Test
+    public void doesNotCacheErrors() {
+        underTest.lookup(accessToken, Single.error(new BadTokenInfoException("invalid_token", (String) null))).test()
+                 .assertError(BadTokenInfoException.class);
+
+        assertThat(underTest.getIfPresent(accessToken)).isEmpty();
+    }
+
+    @Test
+    public void distinguishesTokens() {
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        assertThat(underTest.getIfPresent(AccessToken.bearer("other"))).isEmpty();
+    }
+
+    @Test
+    public void bypassesCacheIfDisabled() {
+        underTest = TokenInfoCache.builder().ttl(Duration.ZERO).maximumSize(100L).ticker(ticker).build();
+
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        assertThat(underTest.isEnabled()).isFalse();
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(underTest.getIfPresent(accessToken)).isEmpty();
+    }
+
+    @Test
+    public void coalescesConcurrentLookups() {
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+        final Single<TokenInfo> loader = response.singleOrError().doOnSubscribe(d -> loads.incrementAndGet());
+
+        final TestObserver<AuthenticationInfo> first = underTest.lookup(accessToken, loader).test();
+        final TestObserver<AuthenticationInfo> second = underTest.lookup(accessToken, loader).test();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(underTest.getPendingLookups()).isEqualTo(1);
+
+        response.onNext(new TokenInfo(authInfo, Optional.empty()));
+        response.onComplete();
+
+        first.assertValue(authInfo);
+        second.assertValue(authInfo);
+        assertThat(underTest.getPendingLookups()).isZero();
+    }
+
+    @Test
+    public void coalescesConcurrentLookupsIfCachingIsDisabled() {
+        underTest = TokenInfoCache.builder().ttl(null).maximumSize(100L).ticker(ticker).build();
+
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+        final Single<TokenInfo> loader = response.singleOrError().doOnSubscribe(d -> loads.incrementAndGet());
+
+        final TestObserver<AuthenticationInfo> first = underTest.lookup(accessToken, loader).test();
+        final TestObserver<AuthenticationInfo> second = underTest.lookup(accessToken, loader).test();
+
+        response.onError(new BadTokenInfoException("invalid_token", (String) null));
+
+        assertThat(loads.get()).isEqualTo(1);
+        first.assertError(BadTokenInfoException.class);
+        second.assertError(BadTokenInfoException.class);
+        assertThat(underTest.getPendingLookups()).isZero();
+    }
+
+    @Test
+    public void cancelsPendingRequestOnceAllLookupsAreDisposed() {
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+        final AtomicInteger cancellations = new AtomicInteger();
+        final Single<TokenInfo> loader = response.singleOrError().doOnDispose(cancellations::incrementAndGet);
+
+        final TestObserver<AuthenticationInfo> first = underTest.lookup(accessToken, loader).test();
+        final TestObserver<AuthenticationInfo> second = underTest.lookup(accessToken, loader).test();
+
+        first.dispose();
+        assertThat(cancellations.get()).isZero();
+        assertThat(response.hasObservers()).isTrue();
+
+        second.dispose();
+        assertThat(cancellations.get()).isEqualTo(1);
+        assertThat(response.hasObservers()).isFalse();
+        assertThat(underTest.getPendingLookups()).isZero();
+    }
+
+    @Test
+    public void doesNotCancelBackgroundRevalidation() {
+        underTest = gracefulCache();
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        advance(Duration.ofSeconds(30));
+
+        underTest.lookup(accessToken, response.singleOrError()).test().assertValue(authInfo).dispose();
+
+        assertThat(response.hasObservers()).isTrue();
+        assertThat(underTest.getPendingLookups()).isEqualTo(1);
+    }
+
+    @Test
+    public void remembersRejectedTokens() {
+        underTest = TokenInfoCache.builder().rejectionTtl(Duration.ofSeconds(30)).ticker(ticker).build();
+
+        final BadTokenInfoException rejection = new BadTokenInfoException("invalid_token", "Access Token not valid");
+        final Single<TokenInfo> loader = Single.<TokenInfo>error(rejection).doOnSubscribe(d -> loads.incrementAndGet());
+
+        underTest.lookup(accessToken, loader).test().assertError(rejection);
+        underTest.lookup(accessToken, loader).test().assertError(rejection);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(underTest.getRejection(accessToken)).contains(rejection);
+        assertThat(underTest.rejectionStats().hitCount()).isGreaterThanOrEqualTo(1);
+
+        advance(Duration.ofSeconds(30));
+
+        assertThat(underTest.getRejection(accessToken)).isEmpty();
+        underTest.lookup(accessToken, loader).test().assertError(rejection);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void doesNotRememberOtherErrors() {
+        underTest = TokenInfoCache.builder().rejectionTtl(Duration.ofSeconds(30)).ticker(ticker).build();
+
+        underTest.lookup(accessToken, Single.error(new TokenInfoRequestException("unavailable"))).test()
+                 .assertError(TokenInfoRequestException.class);
+
+        assertThat(underTest.getRejection(accessToken)).isEmpty();
+        lookup(Optional.empty()).test().assertValue(authInfo);
+    }
+
+    @Test
+    public void doesNotRememberRejectionsIfDisabled() {
+        underTest.lookup(accessToken, Single.error(new BadTokenInfoException("invalid_token", (String) null))).test()
+                 .assertError(BadTokenInfoException.class);
+
+        assertThat(underTest.getRejection(accessToken)).isEmpty();
+    }
+
+    @Test
+    public void revalidatesInTheBackgroundAfterRefreshInterval() {
+        underTest = gracefulCache();
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+        final AuthenticationInfo refreshed = AuthenticationInfo.builder().uid("uid").scopes("uid", "read").build();
+
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        advance(Duration.ofSeconds(30));
+
+        underTest.lookup(accessToken, response.singleOrError()).test().assertValue(authInfo);
+        assertThat(underTest.getPendingLookups()).isEqualTo(1);
+
+        response.onNext(new TokenInfo(refreshed, Optional.empty()));
+        response.onComplete();
+
+        assertThat(underTest.getIfPresent(accessToken)).contains(refreshed);
+    }
+
+    @Test
+    public void servesExpiredEntriesDuringGracePeriodIfCircuitBreakerIsOpen() {
+        underTest = gracefulCache();
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        advance(Duration.ofMinutes(1));
+        assertThat(underTest.getIfPresent(accessToken)).isEmpty();
+
+        underTest.lookup(accessToken, Single.error(new CircuitBreakerOpenException("open"))).test().assertValue(
+            authInfo);
+        underTest.lookup(accessToken, Single.error(new TimeoutException())).test().assertValue(authInfo);
+        assertThat(underTest.graceHitCount()).isEqualTo(2);
+
+        advance(Duration.ofMinutes(5));
+        underTest.lookup(accessToken, Single.error(new TimeoutException())).test().assertError(
+            TimeoutException.class);
+    }
+
+    @Test
+    public void servesExpiredEntriesIfRevalidationIsSlow() {
+        underTest = gracefulCache(Duration.ofMillis(50));
+        final PublishSubject<TokenInfo> response = PublishSubject.create();
+        final AuthenticationInfo refreshed = AuthenticationInfo.builder().uid("uid").scopes("uid", "read").build();
+
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        advance(Duration.ofMinutes(1));
+
+        underTest.lookup(accessToken, response.singleOrError()).test().awaitDone(5, TimeUnit.SECONDS).assertValue(
+            authInfo);
+        assertThat(underTest.graceHitCount()).isEqualTo(1);
+        assertThat(response.hasObservers()).isTrue();
+
+        response.onNext(new TokenInfo(refreshed, Optional.empty()));
+        response.onComplete();
+
+        assertThat(underTest.getIfPresent(accessToken)).contains(refreshed);
+    }
+
+    @Test
+    public void servesExpiredEntriesBeforeAuthorizationTimesOut() throws Exception {
+        final Settings settings = mock(Settings.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        doReturn(Duration.ofSeconds(2)).when(settings).getTimeout();
+
+        underTest = gracefulCache(settings.getTokenInfoCacheRevalidationTimeout());
+        lookup(Optional.empty()).test().assertValue(authInfo);
+        advance(Duration.ofMinutes(1));
+
+        final HttpExchangeScope scope = mock(HttpExchangeScope.class);
+        when(scope.scoped(any())).then(invocation -> invocation.getArgument(0));
+
+        final Single<TokenInfo> unresponsive = Single.never();
+        final DefaultAuthorizationHandler handler = new DefaultAuthorizationHandler(settings, scope,
+                () -> underTest.lookup(accessToken, unresponsive), () -> null);
+
+        final ServerConnection connection = mock(ServerConnection.class, Mockito.RETURNS_DEEP_STUBS);
+        when(connection.getAttachment(any())).thenReturn(null);
+
+        final HttpServerExchange exchange = spy(new HttpServerExchange(connection));
+        doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return exchange;
+            }).when(exchange).dispatch(same(SameThreadExecutor.INSTANCE), any(Runnable.class));
+
+        final HttpHandler next = mock(HttpHandler.class);
+        handler.require(authInfo -> true, next).handleRequest(exchange);
+
+        verify(exchange, timeout(2_000)).dispatch(next);
+        assertThat(underTest.graceHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotServeExpiredEntriesBeyondTokenExpiry() {
+        underTest = gracefulCache();
+        lookup(Optional.of(Duration.ofSeconds(90))).test().assertValue(authInfo);
+
+        advance(Duration.ofSeconds(90));
+
+        underTest.lookup(accessToken, Single.error(new TimeoutException())).test().assertError(
+            TimeoutException.class);
+    }
+
+    @Test
+    public void dropsExpiredEntriesIfTokenIsRejected() {
+        underTest = gracefulCache();
+        lookup(Optional.empty()).test().assertValue(authInfo);
+
+        advance(Duration.ofMinutes(1));
+        underTest.lookup(accessToken, Single.error(new BadTokenInfoException("invalid_token", (String) null))).test()
+                 .assertError(BadTokenInfoException.class);
+
+        underTest.lookup(accessToken, Single.error(new TimeoutException())).test().assertError(
+            TimeoutException.class);
+        assertThat(underTest.size()).isZero();
+    }
+
+    private TokenInfoCache gracefulCache() {
+        return gracefulCache(Duration.ofSeconds(1));
+    }
+
+    private TokenInfoCache gracefulCache(final Duration revalidationTimeout) {
+        return TokenInfoCache.builder()                                //
+                             .ttl(Duration.ofMinutes(1))               //
+                             .refreshAfter(Duration.ofSeconds(30))     //
+                             .gracePeriod(Duration.ofMinutes(5))       //
+                             .revalidationTimeout(revalidationTimeout) //
+                             .ticker(ticker)                           //
+                             .build();
+    }
+
+    private Single<AuthenticationInfo> lookup(final Optional<Duration> expiresIn) {
+        return underTest.lookup(accessToken,
+                Single.fromCallable(() -> {
+                    loads.incrementAndGet();
+                    return new TokenInfo(authInfo, expiresIn);
+                }));
+    }
+
+    private void advance(final Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,92 @@
+package org.zalando.undertaking.oauth2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import java.nio.ByteBuffer;
+
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.BoundRequestBuilder;
+import org.asynchttpclient.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.junit.runner.RunWith;
+
+import org.mockito.Mock;
+
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.zalando.undertaking.ahc.GuardedHttpClient;
+
+import io.github.robwin.circuitbreaker.CircuitBreakerRegistry;
+
+import io.reactivex.Single;
+
+import io.undertow.util.HeaderMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenInfoRequestProviderTest {
+
+    @Mock
+    private AuthenticationInfoSettings settings;
+
+    @Mock
+    private AsyncHttpClient client;
+
+    @Mock
+    private Response response;
+
+    private TokenInfoRequestProvider underTest;
+
+    @Before
+    public void initializeTest() {
+        when(settings.getTokenInfoEndpoint()).thenReturn(URI.create("http://localhost/tokeninfo"));
+        when(client.prepareGet(anyString())).then(invocation ->
+                new BoundRequestBuilder(client, "GET", false).setUrl(invocation.getArgument(0)));
+
+        final GuardedHttpClient guardedHttpClient = new GuardedHttpClient(CircuitBreakerRegistry.ofDefaults(),
+                builder -> Single.just(response));
+        underTest = new TokenInfoRequestProvider(settings, client, guardedHttpClient, TokenInfoCache.builder().build());
+    }
+
+    @Test
+    public void readsTokenInfoPayload() {
+        when(response.getStatusCode()).thenReturn(200);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8(
+                "{\"realm\":\"/services\",\"scope\":[\"uid\",\"read\"],\"uid\":\"foo\",\"expires_in\":3600,"
+                    + "\"grant_type\":null}"));
+
+        final AuthenticationInfo authInfo = getTokenInfo().blockingGet();
+
+        assertThat(authInfo.getUid()).contains("foo");
+        assertThat(authInfo.getScopes()).containsExactly("uid", "read");
+    }
+
+    @Test
+    public void readsErrorPayload() {
+        when(response.getStatusCode()).thenReturn(400);
+        when(response.getResponseBodyAsByteBuffer()).thenReturn(utf8(
+                "{\"error\":\"invalid_request\",\"error_description\":\"Access Token not valid\"}"));
+
+        getTokenInfo().test().assertError(error ->
+                error instanceof BadTokenInfoException
+                    && "invalid_token".equals(((BadTokenInfoException) error).getError()));
+    }
+
+    private Single<AuthenticationInfo> getTokenInfo() {
+        return underTest.getTokenInfo(AccessToken.bearer("token"), new HeaderMap());
+    }
+
+    private static ByteBuffer utf8(final String body) {
+        return ByteBuffer.wrap(body.getBytes(UTF_8));
+    }
+}
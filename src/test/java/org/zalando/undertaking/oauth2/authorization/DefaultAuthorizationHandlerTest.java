@@ -1,16 +1,25 @@
 package org.zalando.undertaking.oauth2.authorization;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
 
+import java.util.concurrent.Executor;
+
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import javax.inject.Provider;
@@ -20,6 +29,7 @@ import org.junit.Test;
 
 import org.junit.runner.RunWith;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -28,16 +38,22 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import org.zalando.undertaking.inject.HttpExchangeScope;
 import org.zalando.undertaking.oauth2.AuthenticationInfo;
+import org.zalando.undertaking.oauth2.NoAccessTokenException;
 import org.zalando.undertaking.oauth2.authorization.DefaultAuthorizationHandler.Settings;
 import org.zalando.undertaking.problem.ProblemHandlerBuilder;
 
+import com.google.gson.Gson;
+
 import io.reactivex.Single;
 
+import io.reactivex.subjects.SingleSubject;
+
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.ServerConnection;
 
 import io.undertow.util.HttpString;
+import io.undertow.util.SameThreadExecutor;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultAuthorizationHandlerTest {
@@ -167,7 +183,145 @@ public class DefaultAuthorizationHandlerTest {
         inOrder.verify(exchange).dispatch(forbidden);
     }
 
+    @Test
+    public void cachesDecisionsPerAuthenticationInfo() throws Exception {
+        when(settings.getAuthorizationDecisionCacheMaximumSize()).thenReturn(100L);
+        when(authPredicate.test(authInfo)).thenReturn(false);
+
+        final HttpHandler forbidden = mock(HttpHandler.class);
+        doAnswer(invocation -> forbidden).when(underTest).forbidden(same(authInfo), any());
+
+        final HttpHandler handler = underTest.require(authPredicate, next);
+        final HttpServerExchange firstExchange = getExchange();
+        final HttpServerExchange secondExchange = getExchange();
+        handler.handleRequest(firstExchange);
+        handler.handleRequest(secondExchange);
+
+        verify(authPredicate, times(1)).test(authInfo);
+        verify(underTest, times(1)).forbidden(same(authInfo), any());
+        verify(firstExchange).dispatch(forbidden);
+        verify(secondExchange).dispatch(forbidden);
+    }
+
+    @Test
+    public void doesNotShareDecisionsBetweenAuthenticationInfos() throws Exception {
+        when(settings.getAuthorizationDecisionCacheMaximumSize()).thenReturn(100L);
+        when(authPredicate.test(any())).thenReturn(true);
+
+        final HttpHandler handler = underTest.require(authPredicate, next);
+        handler.handleRequest(getExchange());
+
+        authInfo = AuthenticationInfo.builder().build();
+        handler.handleRequest(getExchange());
+
+        verify(authPredicate, times(2)).test(any());
+    }
+
+    @Test
+    public void handlesAvailableAuthenticationInfoInline() throws Exception {
+        when(authPredicate.test(authInfo)).thenReturn(true);
+
+        final HttpServerExchange exchange = getExchange();
+
+        underTest.require(authPredicate, next).handleRequest(exchange);
+
+        verify(exchange).dispatch(next);
+        verify(exchange, never()).dispatch(any(Executor.class), any(Runnable.class));
+    }
+
+    @Test
+    public void rejectsMissingTokensInlineOnIoThread() throws Exception {
+        when(authInfoProvider.get()).thenReturn(Single.error(new NoAccessTokenException()));
+
+        final HttpHandler unauthorized = mock(HttpHandler.class);
+        doAnswer(invocation -> unauthorized).when(underTest).unauthorized(any(), any());
+
+        final HttpServerExchange exchange = getExchange();
+        doReturn(true).when(exchange).isInIoThread();
+
+        underTest.require(authPredicate, next).handleRequest(exchange);
+
+        verify(unauthorized).handleRequest(exchange);
+        verify(exchange, never()).dispatch(any(HttpHandler.class));
+        verify(exchange, never()).dispatch(any(Executor.class), any(Runnable.class));
+    }
+
+    @Test
+    public void rejectsInlineWithoutResolvingNextHandler() throws Exception {
+        when(authPredicate.test(authInfo)).thenReturn(false);
+
+        final HttpHandler forbidden = mock(HttpHandler.class);
+        doAnswer(invocation -> forbidden).when(underTest).forbidden(same(authInfo), any());
+
+        final HttpServerExchange exchange = getExchange();
+
+        final Function<HttpServerExchange, Single<HttpHandler>> nextProvider = mock(Function.class);
+
+        underTest.require(authPredicate, nextProvider).handleRequest(exchange);
+
+        verify(exchange).dispatch(forbidden);
+        verify(nextProvider, never()).apply(any());
+    }
+
+    @Test
+    public void usesReactivePipelineForPendingLookups() throws Exception {
+        final SingleSubject<AuthenticationInfo> lookup = SingleSubject.create();
+        when(authInfoProvider.get()).thenReturn(lookup);
+        when(authPredicate.test(authInfo)).thenReturn(true);
+
+        final HttpServerExchange exchange = getExchange();
+        doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return exchange;
+            }).when(exchange).dispatch(same(SameThreadExecutor.INSTANCE), any(Runnable.class));
+
+        underTest.require(authPredicate, next).handleRequest(exchange);
+        verify(exchange, never()).dispatch(any(HttpHandler.class));
+
+        lookup.onSuccess(authInfo);
+        verify(exchange).dispatch(next);
+    }
+
+    @Test
+    public void disposesPendingLookupsWhenClientDisconnects() throws Exception {
+        final SingleSubject<AuthenticationInfo> lookup = SingleSubject.create();
+        when(authInfoProvider.get()).thenReturn(lookup);
+
+        final HttpServerExchange exchange = getExchange();
+        doAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return exchange;
+            }).when(exchange).dispatch(same(SameThreadExecutor.INSTANCE), any(Runnable.class));
+
+        underTest.require(authPredicate, next).handleRequest(exchange);
+        assertThat(lookup.hasObservers()).isTrue();
+
+        final ArgumentCaptor<ServerConnection.CloseListener> closeListener = //
+            ArgumentCaptor.forClass(ServerConnection.CloseListener.class);
+        verify(exchange.getConnection()).addCloseListener(closeListener.capture());
+        closeListener.getValue().closed(exchange.getConnection());
+
+        assertThat(lookup.hasObservers()).isFalse();
+        verify(exchange, never()).dispatch(any(HttpHandler.class));
+    }
+
+    @Test
+    public void reusesRenderedAuthorizationProblems() {
+        when(settings.getRealm()).thenReturn("/services");
+        when(problemBuilder.get()).then(invocation -> new ProblemHandlerBuilder(new Gson()));
+
+        final HttpHandler first = underTest.unauthorized("invalid_request", "No Authorization provided.");
+        final HttpHandler second = underTest.unauthorized("invalid_request", "No Authorization provided.");
+        final HttpHandler other = underTest.unauthorized("invalid_token", "No Authorization provided.");
+
+        assertThat(second).isSameAs(first);
+        assertThat(other).isNotSameAs(first);
+        verify(problemBuilder, times(2)).get();
+    }
+
     private HttpServerExchange getExchange() {
-        return spy(new HttpServerExchange(mock(ServerConnection.class, Mockito.RETURNS_DEEP_STUBS)));
+        final ServerConnection connection = mock(ServerConnection.class, Mockito.RETURNS_DEEP_STUBS);
+        when(connection.getAttachment(any())).thenReturn(null);
+        return spy(new HttpServerExchange(connection));
     }
 }
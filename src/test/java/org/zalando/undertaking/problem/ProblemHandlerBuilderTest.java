@@ -0,0 +1,76 @@
+package org.zalando.undertaking.problem;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.Mockito;
+
+import com.google.gson.Gson;
+
+import io.undertow.io.Sender;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+
+public class ProblemHandlerBuilderTest {
+    private HeaderMap responseHeaders;
+    private List<String> sent;
+    private HttpServerExchange exchange;
+
+    @Before
+    public void setUp() {
+        responseHeaders = new HeaderMap();
+        sent = new ArrayList<>();
+
+        exchange = mock(HttpServerExchange.class, withSettings().defaultAnswer(Mockito.CALLS_REAL_METHODS));
+        doReturn(responseHeaders).when(exchange).getResponseHeaders();
+
+        final Sender sender = mock(Sender.class);
+        doAnswer(invocation -> {
+                final ByteBuffer buffer = invocation.getArgument(0);
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return sent.add(new String(bytes, UTF_8));
+            }).when(sender).send(any(ByteBuffer.class));
+        doReturn(sender).when(exchange).getResponseSender();
+    }
+
+    @Test
+    public void sendsPrerenderedProblemRepeatedly() throws Exception {
+        final HttpHandler handler = new ProblemHandlerBuilder(new Gson()).setDetail("Nope.").buildPrerendered(401);
+
+        handler.handleRequest(exchange);
+        handler.handleRequest(exchange);
+
+        verify(exchange, times(2)).setStatusCode(401);
+        assertThat(responseHeaders.getFirst(Headers.CONTENT_TYPE)).isEqualTo("application/problem+json; charset=UTF-8");
+        assertThat(ExchangeProblemStore.isProblemDataSent(exchange)).isTrue();
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(1)).isEqualTo(sent.get(0));
+        assertThat(sent.get(0)).as("HTTP Response")                   //
+                               .contains("https://httpstatus.es/401") //
+                               .contains("Unauthorized")              //
+                               .contains("Nope.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doesNotPrerenderErrors() {
+        new ProblemHandlerBuilder(new Gson()).setError(new RuntimeException("u ded")).buildPrerendered(500);
+    }
+}
@@ -0,0 +1,100 @@
+package org.zalando.undertaking.rx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.reactivex.Single;
+
+import io.reactivex.observers.TestObserver;
+
+import io.reactivex.subjects.PublishSubject;
+
+public class SharedSingleTest {
+
+    private final PublishSubject<String> subject = PublishSubject.create();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final AtomicInteger disposals = new AtomicInteger();
+
+    private SharedSingle<String> underTest;
+
+    @Before
+    public void initializeTest() {
+        underTest = new SharedSingle<>(
+                subject.singleOrError()                                     //
+                       .doOnSubscribe(d -> subscriptions.incrementAndGet()) //
+                       .doOnDispose(disposals::incrementAndGet));
+    }
+
+    @Test
+    public void doesNotSubscribeOnAssembly() {
+        assertThat(subscriptions.get()).isZero();
+    }
+
+    @Test
+    public void sharesSubscription() {
+        final TestObserver<String> first = underTest.test();
+        final TestObserver<String> second = underTest.test();
+
+        assertThat(subscriptions.get()).isEqualTo(1);
+
+        subject.onNext("value");
+        subject.onComplete();
+
+        first.assertValue("value");
+        second.assertValue("value");
+    }
+
+    @Test
+    public void replaysOutcome() {
+        underTest.test();
+        subject.onError(new IllegalStateException());
+
+        underTest.test().assertError(IllegalStateException.class);
+        assertThat(subscriptions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void disposesSourceOnceAllObserversAreDisposed() {
+        final TestObserver<String> first = underTest.test();
+        final TestObserver<String> second = underTest.test();
+
+        first.dispose();
+        assertThat(disposals.get()).isZero();
+        second.assertEmpty();
+
+        second.dispose();
+        assertThat(disposals.get()).isEqualTo(1);
+        assertThat(subject.hasObservers()).isFalse();
+    }
+
+    @Test
+    public void resubscribesAfterDisposal() {
+        underTest.test().dispose();
+
+        final TestObserver<String> observer = underTest.test();
+        subject.onNext("value");
+        subject.onComplete();
+
+        observer.assertValue("value");
+        assertThat(subscriptions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void doesNotSubscribeIfDisposedUpfront() {
+        final TestObserver<String> observer = new TestObserver<>();
+        observer.dispose();
+
+        underTest.subscribe(observer);
+
+        assertThat(subscriptions.get()).isZero();
+    }
+
+    @Test
+    public void emitsValueOfSynchronousSource() {
+        new SharedSingle<>(Single.just("value")).test().assertValue("value");
+    }
+}
@@ -0,0 +1,97 @@
+package org.zalando.undertaking.rx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.reactivex.Single;
+
+import io.reactivex.observers.TestObserver;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import io.reactivex.subjects.SingleSubject;
+
+public class TimeoutSchedulerTest {
+
+    private TestScheduler testScheduler;
+    private TimeoutScheduler underTest;
+
+    @Before
+    public void setUp() {
+        testScheduler = new TestScheduler();
+        underTest = TimeoutScheduler.using(() -> testScheduler);
+    }
+
+    @Test
+    public void cancelsTimeoutOnSuccess() {
+        final TestObserver<String> test = Single.just("foo").lift(underTest.<String>timeout(1, TimeUnit.SECONDS))
+                                                .test();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        test.assertResult("foo");
+        assertThat(underTest.getScheduledCount()).isEqualTo(1);
+        assertThat(underTest.getCancelledCount()).isEqualTo(1);
+        assertThat(underTest.getFiredCount()).isZero();
+    }
+
+    @Test
+    public void cancelsTimeoutOnError() {
+        final TestObserver<String> test =
+            Single.<String>error(new IllegalStateException()).lift(underTest.<String>timeout(1, TimeUnit.SECONDS))
+                  .test();
+
+        test.assertError(IllegalStateException.class);
+        assertThat(underTest.getCancelledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void firesTimeoutAndDisposesUpstream() {
+        final SingleSubject<String> upstream = SingleSubject.create();
+        final TestObserver<String> test = upstream.lift(underTest.<String>timeout(1, TimeUnit.SECONDS)).test();
+
+        testScheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        test.assertNotTerminated();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        test.assertError(TimeoutException.class);
+        assertThat(upstream.hasObservers()).isFalse();
+        assertThat(underTest.getFiredCount()).isEqualTo(1);
+        assertThat(underTest.getCancelledCount()).isZero();
+    }
+
+    @Test
+    public void signalsCustomErrors() {
+        final TestObserver<String> test =
+            Single.<String>never().lift(underTest.<String>timeout(1, TimeUnit.SECONDS, IllegalStateException::new))
+                  .test();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        test.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void cancelsTimeoutOnDispose() {
+        Single.never().lift(underTest.timeout(1, TimeUnit.SECONDS)).test().dispose();
+
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertThat(underTest.getCancelledCount()).isEqualTo(1);
+        assertThat(underTest.getFiredCount()).isZero();
+    }
+
+    @Test
+    public void firesTimeoutsOnHashedWheel() throws InterruptedException {
+        final TestObserver<Object> test = Single.never().lift(TimeoutScheduler.hashedWheel().timeout(20,
+                    TimeUnit.MILLISECONDS)).test();
+
+        assertThat(test.awaitTerminalEvent(5, TimeUnit.SECONDS)).isTrue();
+        test.assertError(TimeoutException.class);
+    }
+}
@@ -0,0 +1,162 @@
+package org.zalando.undertaking.rx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.ref.WeakReference;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.xnio.OptionMap;
+import org.xnio.Options;
+import org.xnio.Xnio;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+import io.reactivex.disposables.Disposable;
+
+public class XnioSchedulerTest {
+
+    private XnioWorker worker;
+    private XnioIoThread ioThread;
+
+    @Before
+    public void setUp() throws Exception {
+        worker = Xnio.getInstance().createWorker(OptionMap.builder()                     //
+                                                          .set(Options.WORKER_IO_THREADS, 1) //
+                                                          .set(Options.WORKER_TASK_CORE_THREADS, 4) //
+                                                          .set(Options.WORKER_TASK_MAX_THREADS, 4) //
+                                                          .getMap());
+        ioThread = worker.getIoThread();
+    }
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+    }
+
+    @Test
+    public void reusesSchedulersPerThread() {
+        assertThat(XnioScheduler.ioThread(ioThread)).isSameAs(XnioScheduler.ioThread(ioThread));
+        assertThat(XnioScheduler.worker(worker)).isSameAs(XnioScheduler.worker(worker));
+    }
+
+    @Test
+    public void executesOnIoThread() {
+        final Thread thread = Single.just("foo")                                    //
+                                    .observeOn(XnioScheduler.ioThread(ioThread))    //
+                                    .map(value -> Thread.currentThread())           //
+                                    .blockingGet();
+
+        assertThat(thread).isSameAs(ioThread);
+    }
+
+    @Test
+    public void timesDelayedTasksOnIoThread() {
+        final Thread thread = Single.timer(20, TimeUnit.MILLISECONDS, XnioScheduler.ioThread(ioThread)) //
+                                    .map(value -> Thread.currentThread())                                 //
+                                    .blockingGet();
+
+        assertThat(thread).isSameAs(ioThread);
+    }
+
+    @Test
+    public void executesWorkerTasksInOrderOffTheIoThread() {
+        final List<Integer> values = Flowable.range(0, 10000)                              //
+                                             .observeOn(XnioScheduler.worker(worker), false, 16) //
+                                             .doOnNext(value ->
+                                                     assertThat(Thread.currentThread()).isNotSameAs(ioThread))
+                                             .toList()                                        //
+                                             .blockingGet();
+
+        assertThat(values).hasSize(10000);
+        for (int i = 0; i < values.size(); i++) {
+            assertThat(values.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void doesNotExecuteDisposedTasks() throws Exception {
+        final AtomicBoolean executed = new AtomicBoolean();
+        final Disposable task = XnioScheduler.ioThread(ioThread).scheduleDirect(() -> executed.set(true), 50,
+                TimeUnit.MILLISECONDS);
+        task.dispose();
+
+        final CountDownLatch later = new CountDownLatch(1);
+        XnioScheduler.ioThread(ioThread).scheduleDirect(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.isDisposed()).isTrue();
+        assertThat(executed.get()).isFalse();
+    }
+
+    @Test
+    public void tracksExecutedTasks() throws Exception {
+        final long executedBefore = XnioScheduler.workerStatistics().getExecutedCount();
+
+        final CountDownLatch executed = new CountDownLatch(1);
+        XnioScheduler.worker(worker).scheduleDirect(executed::countDown);
+
+        assertThat(executed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(XnioScheduler.workerStatistics().getExecutedCount()).isGreaterThan(executedBefore);
+        assertThat(XnioScheduler.worker(worker).getStatistics()).isSameAs(XnioScheduler.workerStatistics());
+    }
+
+    @Test
+    public void tracksEachTaskOfAWorker() throws Exception {
+        final XnioScheduler.Statistics statistics = XnioScheduler.workerStatistics();
+        final long executedBefore = statistics.getExecutedCount();
+        final Scheduler.Worker schedulerWorker = XnioScheduler.worker(worker).createWorker();
+
+        // Block the first task so that the others get drained in the same submission.
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch executed = new CountDownLatch(3);
+        schedulerWorker.schedule(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            executed.countDown();
+        });
+        schedulerWorker.schedule(executed::countDown);
+        schedulerWorker.schedule(executed::countDown);
+
+        assertThat(statistics.getQueueDepth()).isGreaterThanOrEqualTo(2);
+        release.countDown();
+
+        assertThat(executed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(statistics.getExecutedCount() - executedBefore).isEqualTo(3);
+        assertThat(statistics.getQueueDepth()).isZero();
+        schedulerWorker.dispose();
+    }
+
+    @Test
+    public void doesNotRetainStoppedWorkers() throws Exception {
+        XnioWorker stopped = Xnio.getInstance().createWorker(OptionMap.create(Options.WORKER_IO_THREADS, 1));
+        XnioScheduler.worker(stopped).scheduleDirect(() -> { });
+        XnioScheduler.ioThread(stopped.getIoThread()).scheduleDirect(() -> { });
+        stopped.shutdown();
+        assertThat(stopped.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        final WeakReference<XnioWorker> ref = new WeakReference<>(stopped);
+        stopped = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(ref.get()).isNull();
+    }
+}